@@ -3,6 +3,7 @@ package org.dashjoin.service.arangodb;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -86,10 +87,14 @@ public class ArangoDB extends AbstractDatabase {
     }
   }
 
-  @SuppressWarnings("unchecked")
   List<Map<String, Object>> query(String query) {
+    return query(query, null);
+  }
+
+  @SuppressWarnings("unchecked")
+  List<Map<String, Object>> query(String query, Map<String, Object> bindVars) {
     @SuppressWarnings("rawtypes")
-    ArangoCursor<Map> cursor = con().query(query, Map.class);
+    ArangoCursor<Map> cursor = con().query(query, bindVars, null, Map.class);
     List<Map<String, Object>> res = new ArrayList<>();
     while (cursor.hasNext()) {
       @SuppressWarnings("rawtypes")
@@ -346,13 +351,18 @@ public class ArangoDB extends AbstractDatabase {
       boolean descending, Map<String, Object> arguments) throws Exception {
 
     String sorts = sort == null ? "" : " sort t." + sort + (descending ? " desc " : " asc ");
+
+    // filter (e.g. the tenant filter) must come before sort and limit so that the collection
+    // index is used and pages are filled with matching documents
     List<String> filters = new ArrayList<>();
+    Map<String, Object> bindVars = new HashMap<>();
     if (arguments != null)
-      for (Entry<String, Object> e : arguments.entrySet())
-        if (e.getValue() instanceof String)
-          filters.add("t." + e.getKey() + "==\"" + e.getValue() + "\"");
-        else
-          filters.add("t." + e.getKey() + "==" + e.getValue());
+      for (Entry<String, Object> e : arguments.entrySet()) {
+        int i = filters.size();
+        filters.add("t.@a" + i + " == @v" + i);
+        bindVars.put("a" + i, e.getKey());
+        bindVars.put("v" + i, e.getValue());
+      }
     String filter = filters.isEmpty() ? "" : " filter " + String.join(" && ", filters) + " ";
 
     String limits = "";
@@ -363,10 +373,10 @@ public class ArangoDB extends AbstractDatabase {
         limits = " limit " + offset + ", " + limit;
     }
 
-    String query = "for t in " + s.name + sorts + limits + filter + " return t";
+    String query = "for t in " + s.name + filter + sorts + limits + " return t";
 
     List<Map<String, Object>> list = new ArrayList<>();
-    for (Map<String, Object> d : query(query)) {
+    for (Map<String, Object> d : query(query, bindVars)) {
       list.add(d);
     }
     return list;
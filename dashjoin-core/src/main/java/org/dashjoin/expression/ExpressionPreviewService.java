@@ -13,6 +13,7 @@ import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.SecurityContext;
 import org.dashjoin.expression.ExpressionService.ExpressionAndData;
+import org.dashjoin.function.Doc2data;
 import org.dashjoin.mapping.ETL;
 import org.dashjoin.service.Services;
 import org.eclipse.microprofile.openapi.annotations.Operation;
@@ -49,6 +50,7 @@ public class ExpressionPreviewService {
     if (e.foreach) {
       try {
         ETL.context.set(new org.dashjoin.mapping.ETL.Context());
+        ETL.context.get().stream = Doc2data.streams(e.expression);
         JsonNode node = expression.jsonata(sc, e.expression, ExpressionService.o2j(e.data), true);
         ETL.context.get().producerDone();
         if (ETL.context.get().queue.size() > 10) {
@@ -2,6 +2,7 @@ package org.dashjoin.expression;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -610,7 +611,10 @@ public class ExpressionService {
   }
 
   /**
-   * data.traverse(database, table, pk1, fk)
+   * data.traverse(database, table, pk1, fk). pk1 can be an array of keys and fk can be an array of
+   * fks (path). In this case, the batch traverse is used and the result is an array aligned with
+   * the keys. Only explicit arrays are batched, separate calls (e.g. from $map) are not collected
+   * across the evaluation and run one query each
    */
   public class Traverse extends Update {
 
@@ -618,6 +622,12 @@ public class ExpressionService {
       super(sc, readOnly);
     }
 
+    @Override
+    public String getSignature() {
+      return "<j:ssjj>";
+    }
+
+    @SuppressWarnings("unchecked")
     @Override
     public JsonNode invoke(ExpressionsVisitor v, Function_callContext ctx) {
       if (getArgumentCountEx(ctx) < 4)
@@ -631,10 +641,25 @@ public class ExpressionService {
       if (getValuesListExpression(v, ctx, 3) == null)
         throw new RuntimeException("fk cannot be null");
       try {
+        JsonNode pk = getValuesListExpression(v, ctx, 2);
+        JsonNode fk = getValuesListExpression(v, ctx, 3);
+        if (pk.isArray() || fk.isArray()) {
+          List<Object> keys =
+              pk.isArray() ? (List<Object>) j2o(pk) : Arrays.asList((Object) pk.asText());
+          List<String> path =
+              fk.isArray() ? (List<String>) j2o(fk) : Arrays.asList(fk.asText());
+          Map<Object, Object> related = data.traverse(sc,
+              getValuesListExpression(v, ctx, 0).asText(),
+              getValuesListExpression(v, ctx, 1).asText(), keys, path);
+          if (!pk.isArray())
+            return o2j(related.get(keys.get(0)));
+          List<Object> res = new ArrayList<>();
+          for (Object key : keys)
+            res.add(related.get(key));
+          return o2j(res);
+        }
         return o2j(data.traverse(sc, getValuesListExpression(v, ctx, 0).asText(),
-            getValuesListExpression(v, ctx, 1).asText(),
-            getValuesListExpression(v, ctx, 2).asText(),
-            getValuesListExpression(v, ctx, 3).asText()));
+            getValuesListExpression(v, ctx, 1).asText(), pk.asText(), fk.asText()));
       } catch (Exception e) {
         throw new RuntimeException(e);
       }
@@ -1,10 +1,12 @@
 package org.dashjoin.function;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringReader;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
@@ -18,17 +20,22 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVRecord;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.dashjoin.mapping.AbstractSource;
+import org.dashjoin.mapping.AbstractSource.Context;
 import org.dashjoin.util.FileResource;
 import org.dashjoin.util.FileSystem;
 import org.dashjoin.util.Home;
 import org.dashjoin.util.MapUtil;
-import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.NodeList;
@@ -36,6 +43,7 @@ import org.w3c.dom.Text;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.StreamReadFeature;
 import com.fasterxml.jackson.core.io.JsonEOFException;
 import com.fasterxml.jackson.databind.JsonMappingException;
@@ -75,6 +83,15 @@ public class Doc2data extends AbstractFunction<String, Object> {
     return httpClient;
   }
 
+  /**
+   * number of bytes inspected to detect the document format
+   */
+  static int SNIFF_SIZE = 8 * 1024;
+
+  enum Format {
+    JSON, XML, CSV
+  }
+
   @Override
   public Object run(String arg) throws Exception {
 
@@ -91,15 +108,13 @@ public class Doc2data extends AbstractFunction<String, Object> {
         FileSystem.getUploadFile(arg);
     }
 
-    try {
-      try {
-        Object res = parseJsonDoc(arg);
-        return res;
-      } catch (Throwable e) {
-        // ignore
-        // log.info("Error parsing JSON: " + e + " - fallback to regular parser");
+    InputStream doc = openDoc(arg);
+    if (doc != null)
+      try (doc) {
+        return parse(doc, true);
       }
 
+    try {
       URL url = FileSystem.getUploadURL(arg);
 
       if (new java.io.File(url.getPath()).length() > MAX_SIZE)
@@ -111,14 +126,14 @@ public class Doc2data extends AbstractFunction<String, Object> {
         Request req = new Request.Builder().url(url).build();
         try (Response res = cl.newCall(req).execute()) {
           log.info("$doc2data " + url);
-          String s = res.peekBody(MAX_SIZE).string();
-          return parse(s);
+          if (res.body().contentLength() > MAX_SIZE)
+            throw new RuntimeException("Data file too large: " + url);
+          return parse(new BoundedInputStream(res.body().byteStream(), MAX_SIZE), false);
         }
       } else {
         // All other protocols
         try (InputStream in = url.openStream()) {
-          String s = IOUtils.toString(in, Charset.defaultCharset());
-          return parse(s);
+          return parse(in, false);
         }
       }
     } catch (MalformedURLException textNotUrl) {
@@ -126,33 +141,250 @@ public class Doc2data extends AbstractFunction<String, Object> {
     }
   }
 
+  /**
+   * opens arg as a file resource from the upload folder (supports zip entries and ranges). Returns
+   * null if arg does not denote a readable upload file
+   */
+  InputStream openDoc(String file) {
+    try {
+      FileResource fr = FileResource.of(file);
+      if (fr.size != null) {
+        if (fr.size > MAX_SIZE)
+          return null;
+      } else if (FileSystem.getUploadFile(fr.file).length() > MAX_SIZE)
+        return null;
+      return fr.getInputStream();
+    } catch (Exception notAFile) {
+      return null;
+    }
+  }
+
   Object parse(String s) throws Exception {
+    return parse(new ByteArrayInputStream(s.getBytes(Charset.defaultCharset())), false);
+  }
+
+  /**
+   * detects the format from the first SNIFF_SIZE bytes and parses the stream without buffering the
+   * entire document. If an ETL context streams, records are passed to the context queue as they
+   * are parsed and null is returned
+   */
+  Object parse(InputStream in, boolean flattenArrays) throws Exception {
+    BufferedInputStream bin = new BufferedInputStream(in, SNIFF_SIZE);
+    bin.mark(SNIFF_SIZE);
+    byte[] head = bin.readNBytes(SNIFF_SIZE);
+    bin.reset();
+    switch (sniff(head, head.length < SNIFF_SIZE)) {
+      case JSON:
+        return parseJson(bin, flattenArrays);
+      case XML:
+        return parseXml(bin);
+      default:
+        return parseCsv(new InputStreamReader(bin, Charset.defaultCharset()));
+    }
+  }
+
+  /**
+   * looks at the first non whitespace character. If the document does not start with an object,
+   * array, or element, it is JSON only if it is small and consists of valid JSON values
+   */
+  static Format sniff(byte[] head, boolean complete) {
+    int i = 0;
+    // skip UTF-8 BOM
+    if (head.length >= 3 && head[0] == (byte) 0xEF && head[1] == (byte) 0xBB
+        && head[2] == (byte) 0xBF)
+      i = 3;
+    while (i < head.length && Character.isWhitespace(head[i]))
+      i++;
+    if (i < head.length) {
+      if (head[i] == '{' || head[i] == '[')
+        return Format.JSON;
+      if (head[i] == '<')
+        return Format.XML;
+    }
+    if (complete)
+      try (JsonParser jp = om.getFactory().createParser(head)) {
+        while (jp.nextToken() != null)
+          ;
+        return Format.JSON;
+      } catch (IOException notJson) {
+        // fall through
+      }
+    return Format.CSV;
+  }
+
+  /**
+   * matches a single top level call
+   */
+  static final Pattern CALL = Pattern.compile("\\s*\\$doc2data\\((.*)\\)\\s*", Pattern.DOTALL);
+
+  /**
+   * true if expression is a single top level $doc2data call. Only then, the records can be passed
+   * to the ETL context queue instead of being returned ($doc2data(url).items needs the result)
+   */
+  public static boolean streams(String expression) {
+    if (expression == null)
+      return false;
+    Matcher m = CALL.matcher(expression);
+    if (!m.matches() || m.group(1).contains("$doc2data"))
+      return false;
+    // make sure the closing bracket belongs to the call ($doc2data(a).b(c))
+    int depth = 0;
+    for (char c : m.group(1).toCharArray())
+      if (c == '(')
+        depth++;
+      else if (c == ')' && --depth < 0)
+        return false;
+    return true;
+  }
+
+  /**
+   * returns the ETL context if records are to be streamed
+   */
+  static Context stream() {
+    Context ctx = AbstractSource.context.get();
+    return ctx != null && ctx.stream ? ctx : null;
+  }
+
+  /**
+   * hands a record to the ETL context queue (if active) or adds it to res. Returns false if parsing
+   * should stop since the (read only) consumer will not accept more records
+   */
+  boolean emit(List<Object> res, Object record) throws InterruptedException {
+    Context ctx = stream();
+    if (ctx == null) {
+      res.add(record);
+      return true;
+    }
+    if (readOnly)
+      return ctx.queue.offer(record);
+    ctx.queue.put(record);
+    return true;
+  }
+
+  /**
+   * returns the records collected by emit
+   */
+  Object result(List<Object> res) {
+    if (stream() != null)
+      return null;
+    if (res.isEmpty())
+      return null;
+    if (res.size() == 1)
+      return res.get(0);
+    return res;
+  }
+
+  Object parseCsv(Reader in) throws Exception {
+    List<Object> res = new ArrayList<>();
+    Iterator<CSVRecord> records = CSVFormat.RFC4180.parse(in).iterator();
+    CSVRecord headers = records.next();
+    while (records.hasNext()) {
+      Map<String, Object> object = new HashMap<>();
+      int col = 0;
+      for (String r : records.next()) {
+        if (col < headers.size())
+          object.put(headers.get(col), r);
+        col++;
+      }
+      if (!emit(res, object))
+        break;
+    }
+    return stream() == null ? res : null;
+  }
+
+  /**
+   * StAX version of the DOM based transformation. If an ETL context is active, the children of the
+   * document element are emitted one by one
+   */
+  Object parseXml(InputStream in) throws Exception {
+    XMLInputFactory f = XMLInputFactory.newInstance();
+    f.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    f.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    f.setProperty(XMLInputFactory.IS_COALESCING, true);
+    XMLStreamReader r = f.createXMLStreamReader(in);
     try {
-      return om.readValue(s, Object.class);
-    } catch (Exception notJson) {
-      try {
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-        DocumentBuilder db = dbf.newDocumentBuilder();
-        Document doc = db.parse(new ByteArrayInputStream(s.getBytes()));
-        return MapUtil.of(doc.getDocumentElement().getNodeName(), xml(doc.getDocumentElement()));
-      } catch (Exception notXML) {
-        List<Object> res = new ArrayList<>();
-        Iterator<CSVRecord> records = CSVFormat.RFC4180.parse(new StringReader(s)).iterator();
-        CSVRecord headers = records.next();
-        while (records.hasNext()) {
-          Map<String, Object> object = new HashMap<>();
-          int col = 0;
-          for (String r : records.next()) {
-            if (col < headers.size())
-              object.put(headers.get(col), r);
-            col++;
-          }
-          res.add(object);
+      while (r.next() != XMLStreamConstants.START_ELEMENT)
+        ;
+      if (stream() == null)
+        return MapUtil.of(name(r.getPrefix(), r.getLocalName()), xml(r, null));
+
+      List<Object> res = new ArrayList<>();
+      int e;
+      while ((e = r.next()) != XMLStreamConstants.END_ELEMENT)
+        if (e == XMLStreamConstants.START_ELEMENT)
+          if (!emit(res, xml(r, null)))
+            break;
+      return null;
+    } finally {
+      r.close();
+    }
+  }
+
+  static String name(String prefix, String local) {
+    return prefix == null || prefix.isEmpty() ? local : prefix + ":" + local;
+  }
+
+  /**
+   * reads the element the reader is positioned on (up to its end tag) and returns the same structure
+   * as xml(Element, List)
+   */
+  @SuppressWarnings("unchecked")
+  static Object xml(XMLStreamReader r, List<String> arrays) throws XMLStreamException {
+    Map<String, Object> res = new LinkedHashMap<>();
+
+    // the DOM has namespace declarations as attributes, sorted by name
+    Map<String, Object> att = new TreeMap<>();
+    for (int i = 0; i < r.getNamespaceCount(); i++) {
+      String prefix = r.getNamespacePrefix(i);
+      att.put(prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix,
+          r.getNamespaceURI(i));
+    }
+    for (int i = 0; i < r.getAttributeCount(); i++)
+      att.put(name(r.getAttributePrefix(i), r.getAttributeLocalName(i)), r.getAttributeValue(i));
+    res.putAll(att);
+
+    int children = 0;
+    String text = null;
+    int e;
+    while ((e = r.next()) != XMLStreamConstants.END_ELEMENT) {
+      if (e == XMLStreamConstants.START_ELEMENT) {
+        children++;
+        String name = name(r.getPrefix(), r.getLocalName());
+        Object kid = xml(r, arrays);
+        Object old = res.get(name);
+        if (old == null) {
+          if (arrays != null && arrays.contains(name))
+            res.put(name, new ArrayList<>(Arrays.asList(kid)));
+          else
+            res.put(name, kid);
+        } else if (old instanceof List)
+          ((List<Object>) old).add(kid);
+        else {
+          List<Object> tmp = new ArrayList<>();
+          tmp.add(old);
+          tmp.add(kid);
+          res.put(name, tmp);
         }
-        return res;
-      }
+      } else if (e == XMLStreamConstants.CHARACTERS || e == XMLStreamConstants.CDATA
+          || e == XMLStreamConstants.SPACE) {
+        children++;
+        if (text == null)
+          text = r.getText();
+      } else if (e == XMLStreamConstants.COMMENT
+          || e == XMLStreamConstants.PROCESSING_INSTRUCTION)
+        children++;
     }
+
+    // special case where the element has attributes and a text child
+    if (!att.isEmpty() && children == 1 && text != null) {
+      res.put("_content", text);
+      return res;
+    }
+
+    if (!res.isEmpty())
+      return cleanArrays(res);
+
+    return text;
   }
 
   public static Object xml(Element node) {
@@ -240,23 +472,8 @@ public class Doc2data extends AbstractFunction<String, Object> {
     return arrayFields;
   }
 
-  Object parseJsonDoc(String file) throws Throwable {
-
-    FileResource fr = FileResource.of(file);
-    if (fr.size != null) {
-      if (fr.size > MAX_SIZE)
-        throw new Exception("Data file too large: " + fr);
-    } else if (FileSystem.getUploadFile(fr.file).length() > MAX_SIZE)
-      throw new Exception("Data file too large: " + fr);
-
-    try (InputStream in = FileResource.of(file).getInputStream()) {
-      return parseJson(in, true);
-    }
-  }
-
-  @SuppressWarnings({"unchecked", "rawtypes"})
   Object parseJson(InputStream in, boolean flattenArrays)
-      throws IOException, JsonParseException, JsonMappingException {
+      throws IOException, JsonParseException, JsonMappingException, InterruptedException {
     JsonFactory jf =
         JsonFactory.builder().configure(StreamReadFeature.AUTO_CLOSE_SOURCE, false).build();
     ObjectMapper _om = new ObjectMapper(jf);
@@ -265,27 +482,25 @@ public class Doc2data extends AbstractFunction<String, Object> {
 
     try (jp) {
       List<Object> res = new ArrayList<>();
-      Object obj;
+      JsonToken token;
       try {
-        while ((obj = _om.readValue(jp, Object.class)) != null) {
-
-          if (flattenArrays && obj instanceof List)
-            res.addAll((List) obj);
-          else
-            res.add(obj);
+        values: while ((token = jp.nextToken()) != null) {
+
+          if (flattenArrays && token == JsonToken.START_ARRAY) {
+            // stream the array elements rather than materializing the array
+            while (jp.nextToken() != JsonToken.END_ARRAY)
+              if (!emit(res, _om.readValue(jp, Object.class)))
+                break values;
+          } else if (!emit(res, _om.readValue(jp, Object.class)))
+            break;
 
           if (readOnly)
             break;
         }
       } catch (MismatchedInputException | JsonEOFException ex) {
-        // EOF
+        // EOF (e.g. a file range that ends within a value)
       }
-      // System.err.println("JSON stream " + file + " : " + res.size());
-      if (res.isEmpty())
-        return null;
-      if (res.size() == 1)
-        return res.get(0);
-      return res;
+      return result(res);
     }
   }
 
@@ -1,11 +1,19 @@
 package org.dashjoin.function;
 
+import java.io.BufferedInputStream;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import org.apache.poi.ooxml.util.SAXHelper;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.CellValue;
@@ -14,26 +22,116 @@ import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * Loads an excel sheet into a json structure (map of sheetname to table). we interpret the first
- * row as the table field names
+ * row as the table field names.
+ *
+ * xlsx workbooks are read with the SAX event API using the cached formula values, so memory does
+ * not depend on the workbook size. The full object model is only loaded for xls workbooks or if
+ * live formula evaluation is requested. Use the latter for workbooks whose cached values are not
+ * up to date (e.g. generated by POI), otherwise formula cells are stale or null.
  */
 public abstract class Excel2data extends AbstractFunction<String, Object> {
 
+  /**
+   * receives the rows of a workbook sheet by sheet
+   */
+  public interface RowHandler {
+
+    /**
+     * called for every row after the header row of sheet
+     */
+    void row(String sheet, Map<String, Object> row) throws Exception;
+
+    /**
+     * called before the rows of sheet are passed
+     */
+    default void sheet(String sheet) throws Exception {}
+  }
+
   @Override
   public String getType() {
     return "read";
   }
-  
+
   protected Object parse(InputStream in) throws Exception {
+    return parse(in, false);
+  }
+
+  /**
+   * parses the workbook into a map of sheet name to table. If evaluateFormulas is true, the full
+   * object model is loaded and formulas are evaluated rather than using the cached values
+   */
+  protected Object parse(InputStream in, boolean evaluateFormulas) throws Exception {
+    Map<String, List<Map<String, Object>>> res = new LinkedHashMap<>();
+    parse(in, evaluateFormulas, new RowHandler() {
+      @Override
+      public void sheet(String sheet) {
+        res.put(sheet, new ArrayList<>());
+      }
+
+      @Override
+      public void row(String sheet, Map<String, Object> row) {
+        res.get(sheet).add(row);
+      }
+    });
+    return res;
+  }
+
+  /**
+   * passes the rows of the workbook sheet by sheet to the handler
+   */
+  protected void parse(InputStream in, boolean evaluateFormulas, RowHandler handler)
+      throws Exception {
+    in = FileMagic.prepareToCheckMagic(in);
+    if (evaluateFormulas || FileMagic.valueOf(in) != FileMagic.OOXML) {
+      parseWorkbook(in, handler);
+      return;
+    }
+
+    // OPCPackage keeps streams in memory, a file allows reading the zip entries on demand
+    Path tmp = Files.createTempFile("dj-excel", ".xlsx");
+    try {
+      Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+      OPCPackage pkg = OPCPackage.open(tmp.toFile(), PackageAccess.READ);
+      try {
+        XSSFReader reader = new XSSFReader(pkg);
+        ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+        XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+        while (sheets.hasNext()) {
+          try (InputStream sheet = new BufferedInputStream(sheets.next())) {
+            String name = sheets.getSheetName();
+            handler.sheet(name);
+            XMLReader parser = SAXHelper.newXMLReader();
+            parser.setContentHandler(new SheetHandler(name, strings, handler));
+            parser.parse(new InputSource(sheet));
+          }
+        }
+      } finally {
+        pkg.revert();
+      }
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * loads the workbook object model and evaluates formulas
+   */
+  void parseWorkbook(InputStream in, RowHandler handler) throws Exception {
     Workbook wb = WorkbookFactory.create(in);
     FormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
-    Map<String, List<Map<String, Object>>> res = new LinkedHashMap<>();
     for (Sheet sheet : wb) {
       Iterator<Row> records = sheet.iterator();
-      List<Map<String, Object>> table = new ArrayList<>();
-      res.put(sheet.getSheetName(), table);
+      handler.sheet(sheet.getSheetName());
 
       Map<Integer, String> cols = new LinkedHashMap<>();
       for (Cell cell : records.next())
@@ -42,13 +140,129 @@ public abstract class Excel2data extends AbstractFunction<String, Object> {
 
       while (records.hasNext()) {
         Map<String, Object> row = new LinkedHashMap<>();
-        table.add(row);
         for (Cell cell : records.next())
           if (cols.get(cell.getColumnIndex()) != null)
             row.put(cols.get(cell.getColumnIndex()), o(evaluator.evaluate(cell)));
+        handler.row(sheet.getSheetName(), row);
       }
     }
-    return res;
+  }
+
+  /**
+   * SAX handler for a sheet part. Converts the cached cell values like o(CellValue)
+   */
+  static class SheetHandler extends DefaultHandler {
+
+    final String sheet;
+    final ReadOnlySharedStringsTable strings;
+    final RowHandler handler;
+
+    Map<Integer, String> cols;
+    Map<Integer, Object> row;
+    int column;
+    String type;
+    StringBuilder value;
+    boolean text;
+
+    SheetHandler(String sheet, ReadOnlySharedStringsTable strings, RowHandler handler) {
+      this.sheet = sheet;
+      this.strings = strings;
+      this.handler = handler;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts) {
+      switch (localName) {
+        case "row":
+          row = new LinkedHashMap<>();
+          column = -1;
+          break;
+        case "c":
+          String ref = atts.getValue("r");
+          column = ref == null ? column + 1 : column(ref);
+          type = atts.getValue("t");
+          value = null;
+          break;
+        case "v":
+          value = new StringBuilder();
+          text = true;
+          break;
+        case "t":
+          // inline strings
+          if (value == null)
+            value = new StringBuilder();
+          text = true;
+          break;
+        default:
+      }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+      if (text)
+        value.append(ch, start, length);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+      switch (localName) {
+        case "v":
+        case "t":
+          text = false;
+          break;
+        case "c":
+          row.put(column, value());
+          break;
+        case "row":
+          try {
+            if (cols == null) {
+              cols = new LinkedHashMap<>();
+              for (Map.Entry<Integer, Object> cell : row.entrySet())
+                if (cell.getValue() != null)
+                  cols.put(cell.getKey(), "" + cell.getValue());
+            } else {
+              Map<String, Object> res = new LinkedHashMap<>();
+              for (Map.Entry<Integer, Object> cell : row.entrySet())
+                if (cols.get(cell.getKey()) != null)
+                  res.put(cols.get(cell.getKey()), cell.getValue());
+              handler.row(sheet, res);
+            }
+          } catch (Exception e) {
+            throw new SAXException(e);
+          }
+          break;
+        default:
+      }
+    }
+
+    Object value() {
+      if (value == null)
+        return null;
+      String v = value.toString();
+      if (type == null || type.equals("n"))
+        return v.isEmpty() ? null : Double.parseDouble(v);
+      switch (type) {
+        case "s":
+          return strings.getItemAt(Integer.parseInt(v)).getString();
+        case "b":
+          return "1".equals(v);
+        case "e":
+          return null;
+        default:
+          // str (formula result), inlineStr, d (ISO date)
+          return v;
+      }
+    }
+
+    /**
+     * zero based column index of a cell reference like AB12
+     */
+    static int column(String ref) {
+      int res = 0;
+      for (int i = 0; i < ref.length() && Character.isLetter(ref.charAt(i)); i++)
+        res = res * 26 + (ref.charAt(i) - 'A' + 1);
+      return res - 1;
+    }
   }
 
   Object o(CellValue cellValue) {
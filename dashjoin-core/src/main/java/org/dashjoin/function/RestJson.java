@@ -1,9 +1,14 @@
 package org.dashjoin.function;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.Base64;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.Response;
 import org.dashjoin.model.JsonSchema;
@@ -11,6 +16,8 @@ import org.dashjoin.service.JSONDatabase;
 import org.dashjoin.util.MapUtil;
 import org.dashjoin.util.Template;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.FormBody.Builder;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -21,7 +28,8 @@ import okhttp3.RequestBody;
  */
 @SuppressWarnings("rawtypes")
 @JsonSchema(required = {"url"},
-    order = {"url", "username", "password", "method", "contentType", "headers", "returnText"})
+    order = {"url", "username", "password", "method", "contentType", "headers", "returnText",
+        "cacheSeconds"})
 public class RestJson extends AbstractConfigurableFunction<Object, Object> {
 
   private static final ObjectMapper objectMapper = new ObjectMapper();
@@ -61,16 +69,74 @@ public class RestJson extends AbstractConfigurableFunction<Object, Object> {
   @JsonSchema(title = "Return the result as raw text")
   public Boolean returnText;
 
+  /**
+   * if set, GET responses are cached for the given number of seconds
+   */
+  @JsonSchema(title = "Cache GET responses (seconds)")
+  public Integer cacheSeconds;
+
+  /**
+   * max number of cached responses
+   */
+  static int MAX_CACHE_ENTRIES = 1000;
+
+  /**
+   * compiled URL templates
+   */
+  static final Map<String, Template.Compiled> templates = new ConcurrentHashMap<>();
+
+  /**
+   * identical GET requests that are currently running. Concurrent callers share the response
+   */
+  static final Map<String, CompletableFuture<String>> inflight = new ConcurrentHashMap<>();
+
+  /**
+   * GET responses of functions with cacheSeconds
+   */
+  static final Map<String, Cached> cache = new ConcurrentHashMap<>();
+
+  static class Cached {
+    final String body;
+    final long expires;
+
+    Cached(String body, long expires) {
+      this.body = body;
+      this.expires = expires;
+    }
+  }
+
   /**
    * returns the result of the REST call with JSON mapped to a Map / List. If arg is specified,
    * POSTs the arg serialized as JSON. If arg is null, GETs the result.
    */
-  @SuppressWarnings("unchecked")
   @Override
   public Object run(Object obj) throws Exception {
+    try {
+      return parse(fetch(request(obj), false).get());
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception)
+        throw (Exception) e.getCause();
+      throw e;
+    }
+  }
+
+  /**
+   * like run, but the call is executed on the HTTP client's dispatcher threads
+   */
+  public CompletableFuture<Object> runAsync(Object obj) throws Exception {
+    return fetch(request(obj), true).thenApply(body -> {
+      try {
+        return parse(body);
+      } catch (Exception e) {
+        throw new CompletionException(e);
+      }
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  Request request(Object obj) throws Exception {
     Map map = obj instanceof Map ? (Map) obj : MapUtil.of();
-    OkHttpClient client = Doc2data.getHttpClient();
-    String sv = map == null ? url : (String) Template.replace(url, map, true);
+    String sv = (String) templates.computeIfAbsent(url, Template::compile).replace(map, true);
     Request.Builder request = new Request.Builder().url(sv);
     if (username != null)
       request = request.header("Authorization",
@@ -92,22 +158,102 @@ public class RestJson extends AbstractConfigurableFunction<Object, Object> {
       }
     else
       request = request.get();
+    return request.build();
+  }
+
+  /**
+   * returns the response body. GET requests are served from the cache or share the response of
+   * an identical request that is already running
+   */
+  CompletableFuture<String> fetch(Request request, boolean async) throws Exception {
+    OkHttpClient client = Doc2data.getHttpClient();
+    if (!"GET".equals(request.method()))
+      return call(client, request, async);
+
+    String key = ID + " " + request.url() + " " + request.headers();
+    if (cacheSeconds != null) {
+      Cached cached = cache.get(key);
+      if (cached != null && cached.expires > System.currentTimeMillis())
+        return CompletableFuture.completedFuture(cached.body);
+    }
 
-    okhttp3.Response response = client.newCall(request.build()).execute();
+    CompletableFuture<String> res = new CompletableFuture<>();
+    CompletableFuture<String> running = inflight.putIfAbsent(key, res);
+    if (running != null)
+      return running;
 
-    if (response.code() >= 400) {
-      String error = "" + response.body().string();
+    res.whenComplete((body, error) -> {
+      if (error == null && cacheSeconds != null)
+        put(key, new Cached(body, System.currentTimeMillis() + cacheSeconds * 1000L));
+      inflight.remove(key, res);
+    });
+    call(client, request, async).whenComplete((body, error) -> {
+      if (error == null)
+        res.complete(body);
+      else
+        res.completeExceptionally(error);
+    });
+    return res;
+  }
+
+  static void put(String key, Cached value) {
+    if (cache.size() >= MAX_CACHE_ENTRIES) {
+      long now = System.currentTimeMillis();
+      cache.values().removeIf(c -> c.expires <= now);
+      if (cache.size() >= MAX_CACHE_ENTRIES)
+        cache.clear();
+    }
+    cache.put(key, value);
+  }
+
+  /**
+   * executes the call on the current thread or enqueues it
+   */
+  CompletableFuture<String> call(OkHttpClient client, Request request, boolean async) {
+    CompletableFuture<String> res = new CompletableFuture<>();
+    Call call = client.newCall(request);
+    if (async)
+      call.enqueue(new Callback() {
+        @Override
+        public void onFailure(Call call, IOException e) {
+          res.completeExceptionally(e);
+        }
+
+        @Override
+        public void onResponse(Call call, okhttp3.Response response) {
+          complete(res, response);
+        }
+      });
+    else
       try {
-        Map<String, Object> s =
-            objectMapper.readValue(new ByteArrayInputStream(error.getBytes()), JSONDatabase.tr);
-        error = (String) s.get("details");
-      } catch (Exception e) {
-        // ignore and keep the body
+        complete(res, call.execute());
+      } catch (IOException e) {
+        res.completeExceptionally(e);
       }
-      throw new WebApplicationException(Response.status(response.code()).entity(error).build());
+    return res;
+  }
+
+  void complete(CompletableFuture<String> res, okhttp3.Response response) {
+    try (response) {
+      if (response.code() >= 400) {
+        String error = "" + response.body().string();
+        try {
+          Map<String, Object> s =
+              objectMapper.readValue(new ByteArrayInputStream(error.getBytes()), JSONDatabase.tr);
+          error = (String) s.get("details");
+        } catch (Exception e) {
+          // ignore and keep the body
+        }
+        res.completeExceptionally(
+            new WebApplicationException(Response.status(response.code()).entity(error).build()));
+      } else
+        res.complete(response.body().string());
+    } catch (Exception e) {
+      res.completeExceptionally(e);
     }
+  }
 
-    String body = response.body().string();
+  Object parse(String body) throws Exception {
     if (body.isEmpty())
       return "";
 
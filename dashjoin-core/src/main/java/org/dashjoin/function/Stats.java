@@ -3,84 +3,108 @@ package org.dashjoin.function;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.regex.Pattern;
 import org.dashjoin.model.AbstractDatabase;
 import org.dashjoin.model.Property;
 import org.dashjoin.model.Table;
+import org.dashjoin.service.ACLContainerRequestFilter;
+import org.dashjoin.service.SQLDatabase;
+import org.dashjoin.util.HyperLogLog;
 import org.dashjoin.util.MapUtil;
+import org.dashjoin.util.TDigest;
 
 /**
  * Generate statistics for a database table (type, min, max, count, distinct values, etc.)
+ *
+ * The whole table (or up to limit rows) is read in a single pass, page by page, so memory does not
+ * depend on the table size. Tables with a single primary key are paged by key (keyset
+ * pagination), other tables by offset. Distinct values are counted exactly up to EXACT_DISTINCT
+ * values, a HyperLogLog sketch is used beyond that. Quantiles of numeric columns are estimated
+ * with a t-digest.
+ *
+ * If pushdown is set and the database is a SQL database, count, nulls, min, and max are computed
+ * via a single aggregate query without reading the rows.
  */
 @SuppressWarnings("rawtypes")
 public class Stats extends AbstractVarArgFunction<Object> {
 
-  @SuppressWarnings("unchecked")
-  @Override
-  public Object run(List arg) throws Exception {
-    String database = (String) arg.get(0);
-    String table = (String) arg.get(1);
-    Integer limit = (Integer) arg.get(2);
-    if (database == null || table == null)
-      throw new IllegalArgumentException("Syntax: $stats(database, table, limit?)");
+  /**
+   * number of rows read per page
+   */
+  static int PAGE_SIZE = 10000;
 
-    List<Map<String, Object>> data = this.expressionService.getData().all(sc, database, table, null,
-        limit == null ? 100000 : limit, null, false, null);
+  /**
+   * number of distinct values that are counted exactly
+   */
+  static int EXACT_DISTINCT = 10000;
 
-    AbstractDatabase db = this.services.getConfig().getDatabase("dj/" + database);
-    Table t = db.tables.get(table);
-    if (t == null)
-      throw new IllegalArgumentException("table not found: " + table);
+  static final Pattern INT = Pattern.compile("[-+]?\\d+");
+  static final Pattern NUM = Pattern.compile("[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?");
 
-    List<Object> x = new ArrayList<>();
+  /**
+   * accumulates the statistics of a column
+   */
+  static class ColumnStats {
+    long count;
+    long nulls;
+    Object min;
+    Object max;
+    Set<Object> distinct = new HashSet<>();
+    HyperLogLog hll = new HyperLogLog();
+    TDigest digest = new TDigest();
+    boolean hasInt;
+    boolean hasBool;
+    boolean hasNum;
+    boolean hasString;
 
-    for (Property col : t.properties.values()) {
+    @SuppressWarnings("unchecked")
+    void add(Property col, Object value) {
+      count++;
+      if (value == null) {
+        nulls++;
+        return;
+      }
 
-      boolean hasInt = false;
-      boolean hasBool = false;
-      boolean hasNum = false;
-      boolean hasString = false;
-      Object min = null;
-      Object max = null;
-      Set<Object> distinct = new HashSet<>();
-      for (Map<String, Object> row : data) {
-        Object value = row.get(col.name);
-        if (value != null)
-          distinct.add(value);
-        if (value instanceof Comparable) {
-          if (max == null)
-            max = value;
-          else if (((Comparable) value).compareTo(max) > 0)
-            max = value;
-          if (min == null)
-            min = value;
-          else if (((Comparable) value).compareTo(min) < 0)
-            min = value;
-        }
-        if ("string".equals(col.type) && value instanceof String) {
-          try {
-            Integer.parseInt((String) value);
-            hasInt = true;
-          } catch (NumberFormatException e) {
-            try {
-              Double.parseDouble((String) value);
-              hasNum = true;
-            } catch (NumberFormatException e2) {
-              if ("true".equalsIgnoreCase((String) value)
-                  || "false".equalsIgnoreCase((String) value)) {
-                Boolean.parseBoolean((String) value);
-                hasBool = true;
-              } else {
-                hasString = true;
-              }
-            }
-          }
-        }
+      hll.add(value);
+      if (distinct != null) {
+        distinct.add(value);
+        if (distinct.size() > EXACT_DISTINCT)
+          distinct = null;
+      }
+
+      if (value instanceof Comparable) {
+        if (max == null || ((Comparable) value).compareTo(max) > 0)
+          max = value;
+        if (min == null || ((Comparable) value).compareTo(min) < 0)
+          min = value;
       }
 
+      if (value instanceof Number)
+        digest.add(((Number) value).doubleValue());
+
+      if ("string".equals(col.type) && value instanceof String)
+        detect((String) value);
+    }
+
+    void detect(String value) {
+      if (INT.matcher(value).matches()) {
+        if (isInt(value))
+          hasInt = true;
+        else
+          hasNum = true;
+      } else if (NUM.matcher(value).matches())
+        hasNum = true;
+      else if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value))
+        hasBool = true;
+      else
+        hasString = true;
+    }
+
+    String detectedType() {
       int types = 0;
       if (hasString)
         types++;
@@ -91,35 +115,141 @@ public class Stats extends AbstractVarArgFunction<Object> {
       if (hasNum)
         types++;
 
-      String detectedType = "string";
       if (types == 2 && hasInt && hasNum)
         // only mixed type that is not string
-        detectedType = "number";
+        return "number";
       else if (types == 1) {
         // column has no mixed type
-        if (hasString)
-          detectedType = "string";
         if (hasInt)
-          detectedType = "integer";
+          return "integer";
         if (hasBool)
-          detectedType = "boolean";
+          return "boolean";
         if (hasNum)
-          detectedType = "number";
-      } else
-        // no data or mixed type
-        detectedType = "string";
+          return "number";
+      }
+      // no data, mixed type, or string
+      return "string";
+    }
+
+    long countDistinct() {
+      return distinct != null ? distinct.size() : hll.cardinality();
+    }
+
+    Double quantile(double q) {
+      return digest.size() == 0 ? null : digest.quantile(q);
+    }
+  }
+
+  /**
+   * checks whether a string of digits fits into an int
+   */
+  static boolean isInt(String value) {
+    int digits = value.length()
+        - (value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0);
+    if (digits < 10)
+      return true;
+    if (digits > 10)
+      return false;
+    long l = Long.parseLong(value);
+    return l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE;
+  }
 
+  @Override
+  public Object run(List arg) throws Exception {
+    String database = (String) arg.get(0);
+    String table = (String) arg.get(1);
+    Integer limit = arg.get(2) == null ? null : ((Number) arg.get(2)).intValue();
+    boolean pushdown = Boolean.TRUE.equals(arg.get(3));
+    if (database == null || table == null)
+      throw new IllegalArgumentException("Syntax: $stats(database, table, limit?, pushdown?)");
+
+    AbstractDatabase db = this.services.getConfig().getDatabase("dj/" + database);
+    Table t = db.tables.get(table);
+    if (t == null)
+      throw new IllegalArgumentException("table not found: " + table);
+
+    if (pushdown && db instanceof SQLDatabase)
+      return pushdown((SQLDatabase) db, t);
+
+    // first key column, used for keyset pagination or to sort the offset pages
+    Property pk = null;
+    int pks = 0;
+    for (Property p : t.properties.values())
+      if (p.pkpos != null) {
+        if (p.pkpos == 0)
+          pk = p;
+        pks++;
+      }
+
+    Map<Property, ColumnStats> stats = new LinkedHashMap<>();
+    for (Property col : t.properties.values())
+      stats.put(col, new ColumnStats());
+
+    long max = limit == null ? Long.MAX_VALUE : limit;
+    boolean keyset = pks == 1 && pk != null;
+    long rows = 0;
+    Object after = null;
+    while (rows < max) {
+      int page = (int) Math.min(PAGE_SIZE, max - rows);
+      List<Map<String, Object>> data = null;
+      if (keyset)
+        try {
+          data = this.expressionService.getData().allAfter(sc, database, table, after, page,
+              false, null);
+        } catch (IllegalArgumentException notSupported) {
+          if (rows > 0)
+            throw notSupported;
+          keyset = false;
+        }
+      if (!keyset)
+        data = this.expressionService.getData().all(sc, database, table, (int) rows, page,
+            pk == null ? null : pk.name, false, null);
+      for (Map<String, Object> row : data)
+        for (Map.Entry<Property, ColumnStats> e : stats.entrySet())
+          e.getValue().add(e.getKey(), row.get(e.getKey().name));
+      rows += data.size();
+      if (data.size() < page)
+        break;
+      if (keyset)
+        after = data.get(data.size() - 1).get(pk.name);
+    }
+
+    List<Object> x = new ArrayList<>();
+    for (Map.Entry<Property, ColumnStats> e : stats.entrySet()) {
+      Property col = e.getKey();
+      ColumnStats s = e.getValue();
+      Map<String, Object> res = MapUtil.of();
+      res.put("ID", col.ID);
+      res.put("count", s.count);
+      res.put("nulls", s.nulls);
+      res.put("countdistinct", s.countDistinct());
+      res.put("min", s.min);
+      res.put("max", s.max);
+      res.put("q1", s.quantile(0.25));
+      res.put("median", s.quantile(0.5));
+      res.put("q3", s.quantile(0.75));
+      res.put("dbType", col.dbType);
+      res.put("type", col.type);
+      res.put("detectedType", s.detectedType());
+      x.add(res);
+    }
+    return x;
+  }
+
+  /**
+   * count, nulls, min, and max computed by the database
+   */
+  List<Object> pushdown(SQLDatabase db, Table t) throws Exception {
+    ACLContainerRequestFilter.check(sc, db, t);
+    Map<String, Map<String, Object>> agg =
+        db.stats(t, ACLContainerRequestFilter.tenantFilter(sc, t, null));
+    List<Object> x = new ArrayList<>();
+    for (Property col : t.properties.values()) {
       Map<String, Object> res = MapUtil.of();
       res.put("ID", col.ID);
-      res.put("count", data.size());
-      res.put("nulls",
-          data.stream().filter(i -> i.get(col.name) == null).collect(Collectors.counting()));
-      res.put("countdistinct", distinct.size());
-      res.put("min", min);
-      res.put("max", max);
+      res.putAll(agg.get(col.name));
       res.put("dbType", col.dbType);
       res.put("type", col.type);
-      res.put("detectedType", detectedType);
       x.add(res);
     }
     return x;
@@ -137,6 +267,6 @@ public class Stats extends AbstractVarArgFunction<Object> {
 
   @Override
   public List<Class> getArgumentClassList() {
-    return Arrays.asList(String.class, String.class, Integer.class);
+    return Arrays.asList(String.class, String.class, Integer.class, Boolean.class);
   }
 }
@@ -68,7 +68,13 @@ public abstract class AbstractSource extends AbstractMapping<Void> {
   public static class Context {
     // default queue size 1000 - producers have to assure that object size is reasonable
     public BlockingQueue<Object> queue = new LinkedBlockingQueue<>(1000);
-    boolean producerDone;
+    volatile boolean producerDone;
+
+    /**
+     * set if the foreach expression is a single streaming call (see Doc2data.streams). Otherwise,
+     * functions return their result as usual
+     */
+    public boolean stream;
 
     public void producerDone() {
       producerDone = true;
@@ -197,11 +203,7 @@ public abstract class AbstractSource extends AbstractMapping<Void> {
   }
 
   protected Void runInternal(Void arg, boolean first) throws Exception {
-    if (database == null)
-      throw new Exception("Please provide a database");
-
-    AbstractDatabase db =
-        services.getConfig().getDatabase(services.getDashjoinID() + "/" + database);
+    AbstractDatabase db = getTargetDatabase();
 
     info("running " + ID);
     PerfTimer timer = new PerfTimer();
@@ -210,6 +212,28 @@ public abstract class AbstractSource extends AbstractMapping<Void> {
     for (Entry<String, List<Map<String, Object>>> e : tables.entrySet())
       info(e.getKey() + ": " + e.getValue().size() + " rows");
 
+    Map<String, Set<Map<String, Object>>> delete = new HashMap<>();
+    db = load(db, tables, first, delete, timer);
+    delete(db, delete, timer);
+    info("done " + ID);
+    return null;
+  }
+
+  AbstractDatabase getTargetDatabase() throws Exception {
+    if (database == null)
+      throw new Exception("Please provide a database");
+
+    return services.getConfig().getDatabase(services.getDashjoinID() + "/" + database);
+  }
+
+  /**
+   * applies the mappings and merges the tables into the database. If the records are loaded in
+   * several batches, first is only true for the first batch. delete collects the keys of the
+   * previous run (if oldData is Refresh) that have not been written by any batch so far
+   */
+  AbstractDatabase load(AbstractDatabase db, Map<String, List<Map<String, Object>>> tables,
+      boolean first, Map<String, Set<Map<String, Object>>> delete, PerfTimer timer)
+      throws Exception {
     Index.reset();
     tables = Mapping.apply(expressionService, sc, tables, mappings);
     info("apply mapping: " + timer.seconds());
@@ -227,16 +251,21 @@ public abstract class AbstractSource extends AbstractMapping<Void> {
             + "' does not exist. Change the mapping or select 'create schema'.");
 
       // IDs of the previous run
-      Set<Map<String, Object>> delete = new HashSet<>();
-      if ("Refresh".equals(oldData))
-        for (Map<String, Object> row : db.all(t, null, null, null, false, of("_dj_source", ID))) {
-          Map<String, Object> search = new HashMap<>();
-          for (Property p : t.properties.values())
-            if (p.pkpos != null)
-              search.put(p.name, row.remove(p.name));
-          delete.add(search);
-          info("check data from prev run: " + timer.seconds());
-        }
+      Set<Map<String, Object>> del = delete.get(table.getKey());
+      if (del == null) {
+        del = new HashSet<>();
+        delete.put(table.getKey(), del);
+        if ("Refresh".equals(oldData))
+          for (Map<String, Object> row : db.all(t, null, null, null, false,
+              of("_dj_source", ID))) {
+            Map<String, Object> search = new HashMap<>();
+            for (Property p : t.properties.values())
+              if (p.pkpos != null)
+                search.put(p.name, row.remove(p.name));
+            del.add(search);
+            info("check data from prev run: " + timer.seconds());
+          }
+      }
 
       int counter = 0;
       MergeBatch mbatch = db.openMergeBatch(t);
@@ -254,22 +283,29 @@ public abstract class AbstractSource extends AbstractMapping<Void> {
           if (p.pkpos != null)
             search.put(p.name, row.get(p.name));
 
-        delete.remove(search);
+        del.remove(search);
       }
       mbatch.complete();
       info("merge: " + timer.seconds());
+    }
+    return db;
+  }
 
+  /**
+   * deletes the records of the previous run that were not written in this run
+   */
+  void delete(AbstractDatabase db, Map<String, Set<Map<String, Object>>> delete,
+      PerfTimer timer) throws Exception {
+    for (Entry<String, Set<Map<String, Object>>> table : delete.entrySet()) {
+      Table t = db.tables.get(table.getKey());
       DeleteBatch batch = db.openDeleteBatch(t);
-      for (Map<String, Object> d : delete) {
+      for (Map<String, Object> d : table.getValue()) {
         db.cast(t, d);
         batch.delete(d);
       }
       batch.complete();
       info("delete: " + timer.seconds());
-      info("done " + ID);
     }
-
-    return null;
   }
 
   /**
@@ -2,17 +2,25 @@ package org.dashjoin.mapping;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import jakarta.ws.rs.core.SecurityContext;
+import org.dashjoin.function.Doc2data;
+import org.dashjoin.function.Index;
+import org.dashjoin.model.AbstractDatabase;
 import org.dashjoin.model.JsonSchema;
 import org.dashjoin.util.MapUtil;
+import org.dashjoin.util.PerfTimer;
 
 /**
  * Uses an expression to extract data which is then transformed and loaded
  */
-@JsonSchema(required = {"expression"}, order = {"expression"})
+@JsonSchema(required = {"expression"}, order = {"foreach", "expression"})
 public class ETL extends AbstractSource {
 
   // cannot use "title" since the widget uses the label to determine whether it is required
@@ -21,16 +29,119 @@ public class ETL extends AbstractSource {
       description = "Expression computing the source data")
   public String expression;
 
+  /**
+   * optional expression that splits the loading process into parts. Its result (or the records
+   * streamed by functions like $doc2data via the context queue) are passed to the expression one
+   * by one and loaded in batches
+   */
+  @JsonSchema(widget = "custom", widgetType = "expression",
+      description = "Optional expression that splits the source data into parts")
+  public String foreach;
+
+  /**
+   * number of foreach records that are mapped and written in one batch
+   */
+  static int BATCH_SIZE = 1000;
+
   @Override
   public Map<String, List<Map<String, Object>>> gather(SecurityContext sc) throws Exception {
+    return gather(sc, null);
+  }
+
+  Map<String, List<Map<String, Object>>> gather(SecurityContext sc, Object data)
+      throws Exception {
 
     if (expression == null)
       throw new Exception("Please provide an expression");
 
-    Object res = expressionService.resolve(sc, expression, null, this.readOnly);
+    Object res = expressionService.resolve(sc, expression, data, this.readOnly);
     return convertToMapOfTables(res);
   }
 
+  @Override
+  public Void runInternal(Void arg) throws Exception {
+    if (foreach == null)
+      return super.runInternal(arg);
+
+    AbstractDatabase db = getTargetDatabase();
+    info("running " + ID);
+    PerfTimer timer = new PerfTimer();
+
+    // evaluate foreach in a producer thread. Streaming functions block once the queue is full,
+    // so only a bounded number of records is in memory at any time
+    Context ctx = new Context();
+    ctx.stream = Doc2data.streams(foreach);
+    Object[] result = new Object[1];
+    Exception[] error = new Exception[1];
+    Thread producer = new Thread(() -> {
+      context.set(ctx);
+      try {
+        result[0] = expressionService.resolve(sc, foreach, null, readOnly);
+      } catch (Exception e) {
+        error[0] = e;
+      } finally {
+        context.set(null);
+        ctx.producerDone();
+      }
+    }, "etl-" + ID);
+    producer.setDaemon(true);
+    producer.start();
+
+    Index.setJobID(ID);
+    try {
+      Index.resetJob();
+      Map<String, Set<Map<String, Object>>> delete = new HashMap<>();
+      boolean first = true;
+      List<Object> batch = new ArrayList<>();
+      while (ctx.hasNext()) {
+        Object item = ctx.queue.poll(100, TimeUnit.MILLISECONDS);
+        if (item != null)
+          batch.add(item);
+        if (batch.size() >= BATCH_SIZE || (!batch.isEmpty() && !ctx.hasNext())) {
+          db = load(db, gather(batch), first, delete, timer);
+          first = false;
+          batch.clear();
+        }
+      }
+      producer.join();
+      if (error[0] != null)
+        throw error[0];
+
+      // foreach did not stream, so iterate over its result
+      if (first && result[0] != null) {
+        List<?> items = result[0] instanceof List ? (List<?>) result[0] : Arrays.asList(result[0]);
+        for (int i = 0; i < items.size(); i += BATCH_SIZE) {
+          db = load(db, gather(items.subList(i, Math.min(items.size(), i + BATCH_SIZE))), first,
+              delete, timer);
+          first = false;
+        }
+      }
+
+      delete(db, delete, timer);
+      info("done " + ID);
+      return null;
+    } finally {
+      // if loading failed, the producer might be blocked on the full queue
+      producer.interrupt();
+      while (producer.isAlive()) {
+        ctx.queue.clear();
+        producer.join(100);
+      }
+      Index.setJobID(null);
+    }
+  }
+
+  /**
+   * evaluates expression for each record of the batch and appends the resulting tables
+   */
+  Map<String, List<Map<String, Object>>> gather(List<?> batch) throws Exception {
+    Map<String, List<Map<String, Object>>> res = new LinkedHashMap<>();
+    for (Object item : batch)
+      for (Entry<String, List<Map<String, Object>>> e : gather(sc, item).entrySet())
+        res.computeIfAbsent(e.getKey(), k -> new ArrayList<>()).addAll(e.getValue());
+    return res;
+  }
+
   @SuppressWarnings("unchecked")
   public Map<String, List<Map<String, Object>>> convertToMapOfTables(Object res) {
     if (res instanceof List<?>)
@@ -1,15 +1,18 @@
 package org.dashjoin.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.Function;
 import jakarta.ws.rs.NotAuthorizedException;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.SecurityContext;
 import org.dashjoin.service.ACLContainerRequestFilter;
+import org.dashjoin.service.Config;
 import org.dashjoin.service.CredentialManager;
 import org.dashjoin.service.Data.Choice;
 import org.dashjoin.service.Data.Origin;
@@ -97,6 +100,14 @@ public abstract class AbstractDatabase implements Database {
     this.services = services;
   }
 
+  /**
+   * the config DB of the tenant (null if init was not called)
+   */
+  @JsonIgnore
+  public Config config() {
+    return services == null ? null : services.getConfig();
+  }
+
   @JsonIgnore
   public String displayUrl() {
     return getClass().getSimpleName();
@@ -125,7 +136,7 @@ public abstract class AbstractDatabase implements Database {
       }
 
       // do not search performance traces
-      if ("dj-query-performance".equals(t.name))
+      if ("dj-query-performance".equals(t.name) || "dj-pool-performance".equals(t.name))
         continue;
 
       for (Map<String, Object> res : all(t, null, null, null, false,
@@ -227,58 +238,116 @@ public abstract class AbstractDatabase implements Database {
    * @return database value
    */
   public Object cast(Property p, Object object) {
+    return converter(p).apply(object);
+  }
 
-    if (object instanceof String) {
-      String s = (String) object;
-
-      if ("integer".equals(p.type)) {
-        if (s.endsWith(".0"))
-          s = s.substring(0, s.length() - 2);
-        try {
-          return Integer.parseInt(s);
-        } catch (Exception e) {
-          return Long.parseLong(s);
-        }
-      }
+  /**
+   * returns the converter of the property. It is compiled on first use and cached on the property,
+   * so bulk operations like ETL do not re-evaluate type, format and dbType for every value
+   */
+  public Function<Object, Object> converter(Property p) {
+    if (p == null)
+      return compile(null);
+    Object owner = ID == null ? this : ID;
+    Property.Converter c = p._converter;
+    if (c == null || !c.matches(owner, p)) {
+      c = new Property.Converter(owner, p, compile(p));
+      p._converter = c;
+    }
+    return c.function;
+  }
 
-      if ("number".equals(p.type)) {
-        try {
-          return Integer.parseInt(s);
-        } catch (Exception e) {
+  /**
+   * compiles the JSON to database conversion of the property (null if unknown). Strings are parsed
+   * according to Property.type, other values are passed through
+   */
+  protected Function<Object, Object> compile(Property p) {
+    String type = p == null ? null : p.type;
+
+    if ("integer".equals(type))
+      return o -> o instanceof String ? parseInteger((String) o) : o;
+
+    if ("number".equals(type))
+      return o -> o instanceof String ? parseNumber((String) o) : o;
+
+    if ("boolean".equals(type))
+      return o -> o instanceof String ? "true".equals(o) : o;
+
+    if ("array".equals(type) || "object".equals(type)) {
+      Function<Object, Object> items = "array".equals(type) ? converter(p.items) : null;
+      return o -> {
+        if (!(o instanceof String))
+          return o;
+        String s = (String) o;
+        String t = s.trim();
+        // only attempt JSON if the string looks like an array or object
+        if (t.startsWith("[") || t.startsWith("{"))
           try {
-            return Long.parseLong(s);
-          } catch (Exception e2) {
-            try {
-              return Double.parseDouble(s);
-            } catch (Exception e3) {
-              throw new NumberFormatException("Expecting a numerical value: " + s);
-            }
+            Object tmp = objectMapper.readValue(s, Object.class);
+            if (tmp instanceof List<?> || tmp instanceof Map<?, ?>)
+              return tmp;
+          } catch (Exception fallback) {
+            // malformed JSON, split below
           }
-        }
-      }
+        if (items == null)
+          return o;
+        List<Object> res = new ArrayList<>();
+        for (String part : s.split(","))
+          res.add(items.apply(part));
+        return res;
+      };
+    }
 
-      if ("boolean".equals(p.type))
-        return "true".equals(s);
-
-      if ("array".equals(p.type) || "object".equals(p.type)) {
-        try {
-          Object tmp = objectMapper.readValue(s, Object.class);
-          // make sure tmp really is an array or object
-          if (!(tmp instanceof List<?> || tmp instanceof Map<?, ?>))
-            throw new Exception();
-          return tmp;
-        } catch (Exception fallback) {
-          if ("array".equals(p.type)) {
-            List<Object> res = new ArrayList<>();
-            for (String part : s.split(","))
-              res.add(cast(p.items, part));
-            return res;
-          }
-        }
-      }
+    return Function.identity();
+  }
+
+  /**
+   * parses an integer (allowing .0), returns an Integer if the value fits, a Long otherwise
+   */
+  static Object parseInteger(String s) {
+    if (s.endsWith(".0"))
+      s = s.substring(0, s.length() - 2);
+    if (!isInteger(s))
+      // throws the usual NumberFormatException
+      return Long.parseLong(s);
+    return narrow(Long.parseLong(s));
+  }
+
+  /**
+   * parses an Integer, Long, or Double
+   */
+  static Object parseNumber(String s) {
+    if (isInteger(s))
+      return narrow(Long.parseLong(s));
+    try {
+      return Double.parseDouble(s);
+    } catch (NumberFormatException e) {
+      throw new NumberFormatException("Expecting a numerical value: " + s);
     }
+  }
 
-    return object;
+  static Object narrow(long l) {
+    if (l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE)
+      return (int) l;
+    return l;
+  }
+
+  /**
+   * true if s is an optionally signed decimal that fits into a long (checked without parsing)
+   */
+  static boolean isInteger(String s) {
+    int start = s.startsWith("-") || s.startsWith("+") ? 1 : 0;
+    int digits = s.length() - start;
+    if (digits == 0 || digits > 19)
+      return false;
+    for (int i = start; i < s.length(); i++)
+      if (Character.digit(s.charAt(i), 10) < 0)
+        return false;
+    if (digits < 19)
+      return true;
+    // 19 digits may exceed the long range
+    String max = s.startsWith("-") ? "9223372036854775808" : "9223372036854775807";
+    return s.substring(start).compareTo(max) <= 0;
   }
 
   /**
@@ -463,38 +532,91 @@ public abstract class AbstractDatabase implements Database {
     }
   }
 
+  /**
+   * foreign key column referencing a primary key
+   */
+  public static class Reference {
+
+    /**
+     * table containing the fk column
+     */
+    public Table table;
+
+    /**
+     * the fk column (or array of fks)
+     */
+    public Property fk;
+  }
+
+  /**
+   * reverse foreign key index: pk ID to the columns referencing it (in table / column order)
+   */
+  public static Map<String, List<Reference>> references(Map<String, Table> tables) {
+    Map<String, List<Reference>> index = new HashMap<>();
+    for (Table s : tables.values())
+      if (s.name != null && s.properties != null)
+        for (Property p : s.properties.values()) {
+          String ref = p.items == null ? p.ref : p.items.ref;
+          if (ref != null) {
+            Reference r = new Reference();
+            r.table = s;
+            r.fk = p;
+            index.computeIfAbsent(ref, k -> new ArrayList<>()).add(r);
+          }
+        }
+    return index;
+  }
+
+  /**
+   * returns the columns referencing the pk. The index is built when the metadata is collected and
+   * kept by database ID with the tenant's pojo cache. Databases that are not managed by the config
+   * DB are indexed on every call
+   */
+  public List<Reference> references(String pk) {
+    Map<String, List<Reference>> index = null;
+    Config config = config();
+    if (config instanceof PojoDatabase && ID != null)
+      try {
+        index = ((PojoDatabase) config).referenceIndex(ID);
+      } catch (Exception e) {
+        // index the pojo
+      }
+    if (index == null)
+      index = references(tables);
+    return index.getOrDefault(pk, Collections.emptyList());
+  }
+
+  /**
+   * finds the records referencing pk. Only queries the tables that have a foreign key to pk (see
+   * references)
+   */
   public List<Origin> incoming(@Context SecurityContext sc, String database, String table,
       String objectId, Integer offset, Integer limit, long start, Integer timeout, String pk)
       throws Exception {
     List<Origin> res = new ArrayList<>();
     AbstractDatabase d = this;
-    for (Table s : d.tables.values()) {
-
-      if (s.name == null)
-        continue;
-
+    for (Reference r : references(pk)) {
+      Table s = r.table;
+      Property p = r.fk;
       try {
         ACLContainerRequestFilter.check(sc, d, s);
-        if (s.properties != null)
-          for (Property p : s.properties.values())
-            if (pk.equals(p.items == null ? p.ref : p.items.ref)) {
-              Map<String, Object> search = new HashMap<>();
-              search.put(p.name, objectId);
-              d.cast(s, search);
-              for (Map<String, Object> match : d.all(s, offset, limit, null, false,
-                  ACLContainerRequestFilter.tenantFilter(sc, s, search))) {
-                Origin o = new Origin();
-                o.id = Resource.of(d, s, match);
-                o.fk = p.ID;
-                o.pk = pk;
-                res.add(o);
-              }
-              if (timeout != null)
-                if (System.currentTimeMillis() - start > timeout)
-                  return res;
-            }
       } catch (NotAuthorizedException ignore) {
+        continue;
+      }
+      Map<String, Object> search = new HashMap<>();
+      search.put(p.name, objectId);
+      d.cast(s, search);
+      for (Map<String, Object> match : d.all(s, offset, limit, null, false,
+          ACLContainerRequestFilter.tenantFilter(sc, s, search))) {
+        Origin o = new Origin();
+        o.id = Resource.of(d, s, match);
+        o.fk = p.ID;
+        o.pk = pk;
+        res.add(o);
       }
+      if (timeout != null)
+        if (System.currentTimeMillis() - start > timeout)
+          return res;
     }
     return res;
   }
@@ -2,7 +2,9 @@ package org.dashjoin.model;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
@@ -201,4 +203,37 @@ public class Property {
    */
   @Schema(title = "custom validation error message")
   public String errorMessage;
+
+  /**
+   * JSON to database value converter compiled by a database (see AbstractDatabase.converter)
+   */
+  static class Converter {
+
+    Converter(Object owner, Property p, Function<Object, Object> function) {
+      this.owner = owner;
+      this.type = p.type;
+      this.dbType = p.dbType;
+      this.function = function;
+    }
+
+    /**
+     * ID (or instance) of the database that compiled the converter
+     */
+    final Object owner;
+
+    /**
+     * type and dbType the converter was compiled for
+     */
+    final String type;
+    final String dbType;
+
+    final Function<Object, Object> function;
+
+    boolean matches(Object owner, Property p) {
+      return this.owner.equals(owner) && type == p.type && dbType == p.dbType;
+    }
+  }
+
+  @JsonIgnore
+  transient Converter _converter;
 }
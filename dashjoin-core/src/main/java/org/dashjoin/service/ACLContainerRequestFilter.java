@@ -1,6 +1,8 @@
 package org.dashjoin.service;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -127,8 +129,7 @@ public class ACLContainerRequestFilter implements ContainerRequestFilter {
       return;
 
     if (m == null) {
-      for (Table t : db.tables.values())
-        check(sc, db, t, operation);
+      compile(db).check(sc, db, operation);
       return;
     }
 
@@ -164,6 +165,104 @@ public class ACLContainerRequestFilter implements ContainerRequestFilter {
     }
   }
 
+  /**
+   * get the compiled all tables checks of db. They are kept by database ID with the tenant's pojo
+   * cache and are recompiled after the database or one of its tables is changed. Databases that
+   * are not managed by the config DB are compiled on every call
+   */
+  static CompiledACL compile(AbstractDatabase db) {
+    Config config = db.config();
+    if (config instanceof PojoDatabase && db.ID != null)
+      try {
+        CompiledACL res = ((PojoDatabase) config).acl(db.ID);
+        if (res != null)
+          return res;
+      } catch (Exception e) {
+        // compile the pojo
+      }
+    return new CompiledACL(db);
+  }
+
+  /**
+   * decision table for checking all tables of a database at once. Tables are grouped by their
+   * effective (table or inherited database) roles, so a check evaluates every distinct role list
+   * once rather than once per table
+   */
+  static class CompiledACL {
+
+    /**
+     * a distinct role list and the first table using it (for the error message)
+     */
+    static class Group {
+      final List<String> roles;
+      final Table table;
+
+      Group(List<String> roles, Table table) {
+        this.roles = roles;
+        this.table = table;
+      }
+    }
+
+    final Group[] readGroups;
+    final Group[] writeGroups;
+    final Table[] tenantTables;
+
+    CompiledACL(AbstractDatabase db) {
+      Map<List<String>, Group> read = new LinkedHashMap<>();
+      Map<List<String>, Group> write = new LinkedHashMap<>();
+      List<Table> tenant = new ArrayList<>();
+      for (Table t : db.tables.values()) {
+        read.putIfAbsent(t.readRoles != null ? t.readRoles : db.readRoles,
+            new Group(t.readRoles != null ? t.readRoles : db.readRoles, t));
+        write.putIfAbsent(t.writeRoles != null ? t.writeRoles : db.writeRoles,
+            new Group(t.writeRoles != null ? t.writeRoles : db.writeRoles, t));
+        if (t.tenantColumn != null)
+          tenant.add(t);
+      }
+      readGroups = read.values().toArray(new Group[0]);
+      writeGroups = write.values().toArray(new Group[0]);
+      tenantTables = tenant.toArray(new Table[0]);
+    }
+
+    /**
+     * same as calling check(sc, db, t, operation) for all tables t
+     */
+    void check(SecurityContext sc, AbstractDatabase db, Operation operation) {
+      if (operation.equals(Operation.READ)) {
+        for (Table t : tenantTables)
+          tenantValue(sc, t);
+        check(sc, db, operation, readGroups);
+      } else {
+        if (operation.equals(Operation.UPDATE) || operation.equals(Operation.DELETE))
+          if (tenantTables.length > 0)
+            throwNotAuthorizedException("User does not have the role required to "
+                + operation.toString().toLowerCase() + " table " + (tenantTables[0].name)
+                + " in database " + db.name);
+        check(sc, db, operation, writeGroups);
+      }
+    }
+
+    void check(SecurityContext sc, AbstractDatabase db, Operation operation, Group[] groups) {
+      for (Group group : groups)
+        if (!isUserInRole(sc, group.roles))
+          throwNotAuthorizedException("User does not have the role required to "
+              + operation.toString().toLowerCase() + " table " + (group.table.name)
+              + " in database " + db.name);
+    }
+  }
+
+  /**
+   * true if the user has one of the roles
+   */
+  static boolean isUserInRole(SecurityContext sc, List<String> roles) {
+    if (roles != null)
+      for (String role : roles) {
+        if (sc.isUserInRole(role))
+          return true;
+      }
+    return false;
+  }
+
   public static void throwNotAuthorizedException(String msg) {
     throw new NotAuthorizedException(
         Response.status(Response.Status.UNAUTHORIZED).entity(msg).build());
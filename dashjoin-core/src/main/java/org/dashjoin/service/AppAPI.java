@@ -3,7 +3,6 @@ package org.dashjoin.service;
 import static org.dashjoin.util.MapUtil.of;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
@@ -20,9 +19,10 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.SecurityContext;
 import jakarta.ws.rs.core.UriInfo;
-import org.apache.commons.collections4.IteratorUtils;
 import org.dashjoin.function.FunctionService;
 import org.dashjoin.util.OpenAPI;
+import org.dashjoin.util.Routes;
+import org.dashjoin.util.Routes.Match;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import com.fasterxml.jackson.databind.JsonNode;
 
@@ -74,57 +74,52 @@ public class AppAPI {
 
   Object handle(String method, SecurityContext sc, UriInfo info, HttpHeaders headers, String s,
       Object body) throws Exception {
-    JsonNode spec = OpenAPI.open(services);
-    if (spec == null)
-      throw new Exception("No API defined");
-    JsonNode paths = spec.get("paths");
-    if (paths == null)
+    Routes routes = OpenAPI.routes(services);
+    if (routes == null)
       throw new Exception("No API defined");
 
-    for (Entry<String, JsonNode> path : IteratorUtils.toList(paths.fields())) {
-      Map<String, Object> pathpar = OpenAPI.matchPath(path.getKey(), "/" + s);
-      if (pathpar != null) {
-        JsonNode m = path.getValue().get(method);
-        if (m == null)
-          throw new Exception("Method " + method + " not supported for path " + path.getKey());
+    Match match = routes.match("/" + s);
+    if (match == null)
+      throw new Exception("No implementation found for path " + s);
 
-        JsonNode operationId = m.get("operationId");
-        if (operationId == null)
-          throw new Exception("No operationId set for path " + path.getKey());
+    JsonNode m = match.item.get(method);
+    if (m == null)
+      throw new Exception("Method " + method + " not supported for path " + match.path);
 
-        Map<String, Object> parameters = null;
-        if (m.get("parameters") != null) {
-          parameters = of();
-          for (JsonNode p : m.get("parameters")) {
-            String name = p.get("name").asText();
-            switch (p.get("in").asText()) {
-              case "query":
-                List<String> x = info.getQueryParameters().get(name);
-                if (x != null)
-                  parameters.put(name, x);
-                continue;
-              case "path":
-                if (pathpar.get(name) != null)
-                  parameters.put(name, pathpar.get(name));
-                continue;
-              case "header":
-                if (headers.getRequestHeader(name) != null)
-                  parameters.put(name, headers.getRequestHeader(name));
-                continue;
-              case "cookie":
-                if (headers.getCookies().get(name) != null)
-                  if (headers.getCookies().get(name).getValue() != null)
-                    parameters.put(name, headers.getCookies().get(name).getValue());
-                continue;
-            }
-          }
-        }
+    JsonNode operationId = m.get("operationId");
+    if (operationId == null)
+      throw new Exception("No operationId set for path " + match.path);
 
-        return functionService.call(sc, operationId.asText(),
-            of("parameters", parameters, "body", body));
+    Map<String, Object> parameters = null;
+    if (m.get("parameters") != null) {
+      parameters = of();
+      for (JsonNode p : m.get("parameters")) {
+        String name = p.get("name").asText();
+        switch (p.get("in").asText()) {
+          case "query":
+            List<String> x = info.getQueryParameters().get(name);
+            if (x != null)
+              parameters.put(name, x);
+            continue;
+          case "path":
+            if (match.parameters.get(name) != null)
+              parameters.put(name, match.parameters.get(name));
+            continue;
+          case "header":
+            if (headers.getRequestHeader(name) != null)
+              parameters.put(name, headers.getRequestHeader(name));
+            continue;
+          case "cookie":
+            if (headers.getCookies().get(name) != null)
+              if (headers.getCookies().get(name).getValue() != null)
+                parameters.put(name, headers.getCookies().get(name).getValue());
+            continue;
+        }
       }
     }
-    throw new Exception("No implementation found for path " + s);
+
+    return functionService.call(sc, operationId.asText(),
+        of("parameters", parameters, "body", body));
   }
 
   /**
@@ -75,8 +75,19 @@ public interface Config {
    */
   void putCache(String id, AbstractDatabase object);
 
+  /**
+   * typed view of the dj-config table (does not read the config from disk)
+   */
+  public ConfigSnapshot getConfigSnapshot();
+
   public Integer getAutocompleteTimeoutMs();
 
+  /**
+   * tables with up to this many rows are kept in an in-memory autocomplete index (null disables
+   * the index)
+   */
+  public Integer getAutocompleteIndexRows();
+
   public Integer getSearchTimeoutMs();
 
   public Integer getAllTimeoutMs();
@@ -0,0 +1,137 @@
+package org.dashjoin.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.dashjoin.model.Table;
+
+/**
+ * immutable, typed view of the dj-config table. Loaded once per tenant and replaced when dj-config
+ * is written via the config database (see PojoDatabase.getConfigSnapshot and
+ * PojoDatabase._settings), so request paths never read the config from disk
+ */
+public class ConfigSnapshot {
+
+  /**
+   * query timeout for autocomplete suggestions (null disables the timeout)
+   */
+  public final Integer autocompleteTimeoutMs;
+
+  /**
+   * tables with up to this many rows are indexed for autocomplete (null disables the index)
+   */
+  public final Integer autocompleteIndexRows;
+
+  /**
+   * query timeout for search (null disables the timeout)
+   */
+  public final Integer searchTimeoutMs;
+
+  /**
+   * query timeout for browsing data (null disables the timeout)
+   */
+  public final Integer allTimeoutMs;
+
+  /**
+   * names of databases that are not searched
+   */
+  public final Set<String> excludeDatabaseFromSearch;
+
+  /**
+   * names of tables that are not searched
+   */
+  public final Set<String> excludeTableFromSearch;
+
+  /**
+   * search query name by database name
+   */
+  public final Map<String, String> databaseSearchQuery;
+
+  /**
+   * fields written to separate files by config table name
+   */
+  public final Map<String, List<String>> externalizeConfigStrings;
+
+  /**
+   * build the snapshot from the dj-config records (by ID)
+   */
+  ConfigSnapshot(Map<String, Map<String, Object>> config) {
+    autocompleteTimeoutMs = integer(config, "autocomplete-timeout-ms");
+    autocompleteIndexRows = integer(config, "autocomplete-index-rows");
+    searchTimeoutMs = integer(config, "search-timeout-ms");
+    allTimeoutMs = integer(config, "all-timeout-ms");
+    excludeDatabaseFromSearch = set(config, "exclude-database-from-search");
+    excludeTableFromSearch = set(config, "exclude-table-from-search");
+
+    Map<String, String> queries = new HashMap<>();
+    Object map = value(config, "database-search-query", "map");
+    if (map instanceof Map)
+      for (Map.Entry<?, ?> e : ((Map<?, ?>) map).entrySet())
+        if (e.getValue() instanceof String)
+          queries.put("" + e.getKey(), (String) e.getValue());
+    databaseSearchQuery = Collections.unmodifiableMap(queries);
+
+    Map<String, List<String>> externalize = new HashMap<>();
+    Object list = value(config, "externalize-config-strings", "list");
+    if (list instanceof List)
+      for (Object i : (List<?>) list)
+        if (i instanceof String) {
+          String[] parts = ((String) i).split(":");
+          if (parts.length == 2)
+            externalize.computeIfAbsent(parts[0].trim(), k -> new ArrayList<>())
+                .add(parts[1].trim());
+        }
+    for (Map.Entry<String, List<String>> e : externalize.entrySet())
+      e.setValue(Collections.unmodifiableList(e.getValue()));
+    externalizeConfigStrings = Collections.unmodifiableMap(externalize);
+  }
+
+  /**
+   * reads all dj-config records from the config database
+   */
+  static ConfigSnapshot load(UnionDatabase config) throws Exception {
+    Map<String, Map<String, Object>> res = new HashMap<>();
+    for (Map<String, Object> i : config.all(Table.ofName("dj-config"), null, null, null, false,
+        null))
+      res.put("" + i.get("ID"), i);
+    return new ConfigSnapshot(res);
+  }
+
+  /**
+   * fields of the config table that are written to separate files
+   */
+  public List<String> externalizeFields(String table) {
+    List<String> res = externalizeConfigStrings.get(table);
+    return res == null ? Collections.emptyList() : res;
+  }
+
+  static Object value(Map<String, Map<String, Object>> config, String id, String field) {
+    Map<String, Object> res = config.get(id);
+    return res == null ? null : res.get(field);
+  }
+
+  /**
+   * positive integer setting, 0 or less disables the setting
+   */
+  static Integer integer(Map<String, Map<String, Object>> config, String id) {
+    Object value = value(config, id, "integer");
+    if (!(value instanceof Number))
+      return null;
+    int res = ((Number) value).intValue();
+    return res <= 0 ? null : res;
+  }
+
+  static Set<String> set(Map<String, Map<String, Object>> config, String id) {
+    Set<String> res = new HashSet<>();
+    Object value = value(config, id, "list");
+    if (value instanceof List)
+      for (Object i : (List<?>) value)
+        if (i != null)
+          res.add(i.toString());
+    return Collections.unmodifiableSet(res);
+  }
+}
@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -346,6 +347,167 @@ public class Data {
         ACLContainerRequestFilter.tenantFilter(sc, m, arguments));
   }
 
+  /**
+   * like all, but returns the records following the primary key value after (keyset pagination).
+   * Unlike offset, the cost of fetching a page does not depend on its position
+   */
+  public List<Map<String, Object>> allAfter(SecurityContext sc, String database, String table,
+      Object after, Integer limit, boolean descending, Map<String, Object> arguments)
+      throws Exception {
+    AbstractDatabase db = services.getConfig().getDatabase(dj(database));
+    Table m = db.tables.get(table);
+
+    if (m == null)
+      throw new IllegalArgumentException("Unknown table: " + table);
+
+    ACLContainerRequestFilter.check(sc, db, m);
+    db.cast(m, arguments);
+
+    // only makes sense for tables with a single PK
+    List<Property> pks = new ArrayList<>();
+    if (m.properties != null)
+      for (Property p : m.properties.values())
+        if (p.pkpos != null)
+          pks.add(p);
+    if (pks.size() != 1)
+      throw new IllegalArgumentException("Keyset pagination requires a single primary key");
+
+    List<Map<String, Object>> res = db.allAfter(m, db.cast(pks.get(0), after), limit, descending,
+        ACLContainerRequestFilter.tenantFilter(sc, m, arguments));
+    if (res == null)
+      throw new IllegalArgumentException("Keyset pagination is not supported on table: " + table);
+    return res;
+  }
+
+  /**
+   * like all, but restricts the records using a filter predicate tree and only returns the columns
+   * in select (null means all columns). The filter is pushed down to the database if it supports
+   * it, otherwise it is evaluated in memory
+   */
+  public List<Map<String, Object>> filter(SecurityContext sc, String database, String table,
+      Integer offset, Integer limit, String sort, boolean descending, Filter filter,
+      List<String> select) throws Exception {
+    AbstractDatabase db = services.getConfig().getDatabase(dj(database));
+    Table m = filterTable(sc, db, table, filter, select, sort);
+    return filter(sc, db, m, offset, limit, sort, descending, filter, select);
+  }
+
+  /**
+   * filter on a table that was resolved and checked using filterTable
+   */
+  List<Map<String, Object>> filter(SecurityContext sc, AbstractDatabase db, Table m,
+      Integer offset, Integer limit, String sort, boolean descending, Filter filter,
+      List<String> select) throws Exception {
+    Map<String, Object> arguments = ACLContainerRequestFilter.tenantFilter(sc, m, null);
+
+    List<Map<String, Object>> res =
+        db.filter(m, offset, limit, sort, descending, arguments, filter, select);
+    if (res != null)
+      return res;
+
+    res = new ArrayList<>();
+    int skip = offset == null ? 0 : offset;
+    for (Map<String, Object> row : db.all(m, null, null, sort, descending,
+        equalities(arguments, filter))) {
+      if (filter != null && !filter.test(row))
+        continue;
+      if (skip > 0) {
+        skip--;
+        continue;
+      }
+      if (limit != null && res.size() >= limit)
+        break;
+      if (select == null)
+        res.add(row);
+      else {
+        Map<String, Object> projected = new LinkedHashMap<>();
+        for (String col : select)
+          projected.put(col, row.get(col));
+        res.add(projected);
+      }
+    }
+    return res;
+  }
+
+  /**
+   * counts the records matching the filter predicate tree. The count is pushed down to the
+   * database if it supports it, otherwise it is computed in memory
+   */
+  public long count(SecurityContext sc, String database, String table, Filter filter)
+      throws Exception {
+    AbstractDatabase db = services.getConfig().getDatabase(dj(database));
+    Table m = filterTable(sc, db, table, filter, null, null);
+    Map<String, Object> arguments = ACLContainerRequestFilter.tenantFilter(sc, m, null);
+
+    Number res = db.count(m, arguments, filter);
+    if (res != null)
+      return res.longValue();
+
+    long count = 0;
+    for (Map<String, Object> row : db.all(m, null, null, null, false,
+        equalities(arguments, filter)))
+      if (filter == null || filter.test(row))
+        count++;
+    return count;
+  }
+
+  /**
+   * checks access to the table, makes sure the filter, select and sort only reference known columns
+   * and casts the filter literals to the database types
+   */
+  Table filterTable(SecurityContext sc, AbstractDatabase db, String table, Filter filter,
+      List<String> select, String sort) {
+    Table m = db.tables.get(table);
+
+    if (m == null)
+      throw new IllegalArgumentException("Unknown table: " + table);
+
+    ACLContainerRequestFilter.check(sc, db, m);
+
+    if (m.properties != null) {
+      List<String> cols = new ArrayList<>();
+      if (filter != null)
+        cols.addAll(filter.fields());
+      if (select != null)
+        cols.addAll(select);
+      if (sort != null)
+        cols.add(sort);
+      for (String col : cols)
+        if (!m.properties.containsKey(col))
+          throw new IllegalArgumentException("Unknown column: " + col);
+      if (filter != null)
+        cast(db, m, filter);
+    }
+    return m;
+  }
+
+  /**
+   * adds the top level column equalities of the filter to the arguments, so databases without
+   * filter support can at least restrict the records using all(arguments)
+   */
+  Map<String, Object> equalities(Map<String, Object> arguments, Filter filter) {
+    Map<String, Object> res = arguments == null ? new HashMap<>() : new HashMap<>(arguments);
+    if (filter != null)
+      for (Filter f : "and".equals(filter.op) ? filter.args : Arrays.asList(filter))
+        if ("eq".equals(f.op) && f.value != null && !res.containsKey(f.field))
+          res.put(f.field, f.value);
+    return res;
+  }
+
+  void cast(AbstractDatabase db, Table m, Filter filter) {
+    if (filter.isLogical())
+      for (Filter f : filter.args)
+        cast(db, m, f);
+    else if (Filter.COMPARISONS.contains(filter.op))
+      filter.value = db.cast(m.properties.get(filter.field), filter.value);
+    else if ("in".equals(filter.op)) {
+      List<Object> values = new ArrayList<>();
+      for (Object o : (List<?>) filter.value)
+        values.add(db.cast(m.properties.get(filter.field), o));
+      filter.value = values;
+    }
+  }
+
   // "Get all" as GET method. Enables browser cache.
   @GET
   @Path("/crud/{database}/{table}")
@@ -391,7 +553,8 @@ public class Data {
         return Arrays.asList();
     }
 
-    return db.keys(m, prefix, limit, ACLContainerRequestFilter.tenantFilter(sc, m, null));
+    return KeyIndex.keys(db, m, prefix, limit, ACLContainerRequestFilter.tenantFilter(sc, m, null),
+        services.getConfig().getAutocompleteIndexRows());
   }
 
   /**
@@ -463,8 +626,10 @@ public class Data {
 
     db.cast(m, object);
 
-    if (dbTriggers(sc, "create", database, table, null, object, m.beforeCreate))
+    if (dbTriggers(sc, "create", database, table, null, object, m.beforeCreate)) {
       db.create(m, object);
+      KeyIndex.invalidate(db, m);
+    }
     dbTriggers(sc, "create", database, table, null, object, m.afterCreate);
     return Resource.of(db, m, object);
   }
@@ -537,6 +702,138 @@ public class Data {
     }
   }
 
+  /**
+   * batch version of traverse: starting at the records with the given keys, follows the path of fk
+   * columns (names of outgoing fk columns, the last hop can also be an incoming fk like in
+   * traverse). Runs one "in" query per hop rather than one read per key and hop. Returns the
+   * related record (a list of records for an incoming fk) by key, keys that do not lead to a record
+   * are omitted
+   */
+  @POST
+  @Path("/traverse/{database}/{table}")
+  @Operation(
+      summary = "starting at the objects with the given primary keys, follows the path of fks and returns the related objects by key")
+  @APIResponse(description = "JSON object mapping the keys to the related records")
+  public Map<Object, Object> traverse(@Context SecurityContext sc,
+      @Parameter(description = "database name to run the operation on",
+          example = "northwind") @PathParam("database") String database,
+      @Parameter(description = "table name to run the operation on",
+          example = "EMPLOYEES") @PathParam("table") String table,
+      @Parameter(description = "Primary keys of the records to start at") List<Object> objectIds,
+      @QueryParam("fk") List<String> path) throws Exception {
+    Map<String, AbstractDatabase> dbs = new HashMap<>();
+    AbstractDatabase db = database(dbs, database);
+    Table m = db.tables.get(table);
+    if (m == null)
+      throw new IllegalArgumentException("Unknown table: " + table);
+    Property pk = singlePk(m);
+
+    // current record by key
+    Map<Object, Object> res = new LinkedHashMap<>();
+    Map<String, Map<String, Object>> rows = index(in(sc, db, m, pk.name, objectIds), pk.name);
+    for (Object id : objectIds)
+      if (rows.containsKey("" + db.cast(pk, id)))
+        res.put(id, rows.get("" + db.cast(pk, id)));
+
+    for (int i = 0; i < path.size(); i++) {
+      String fk = path.get(i);
+      Property p = m.properties.get(fk);
+      if (p != null && p.ref != null) {
+        // outgoing fk
+        String[] parts = p.ref.split("/");
+        db = database(dbs, parts[1]);
+        m = db.tables.get(parts[2]);
+        String col = parts[3];
+        rows = index(in(sc, db, m, col, values(res, fk)), col);
+        for (Iterator<Entry<Object, Object>> e = res.entrySet().iterator(); e.hasNext();) {
+          Entry<Object, Object> entry = e.next();
+          Map<String, Object> row = rows.get("" + ((Map<?, ?>) entry.getValue()).get(fk));
+          if (row == null)
+            e.remove();
+          else
+            entry.setValue(row);
+        }
+      } else if (i == path.size() - 1 && fk.contains("/")) {
+        // incoming fk: get all of the related table where fk = pk
+        String[] parts = fk.split("/");
+        pk = singlePk(m);
+        AbstractDatabase db2 = database(dbs, parts[1]);
+        Table m2 = db2.tables.get(parts[2]);
+        String col = fk(m2, pk.ID).name;
+        Map<String, List<Map<String, Object>>> related = new HashMap<>();
+        for (Map<String, Object> row : in(sc, db2, m2, col, values(res, pk.name)))
+          related.computeIfAbsent("" + row.get(col), k -> new ArrayList<>()).add(row);
+        for (Entry<Object, Object> entry : res.entrySet())
+          entry.setValue(related.getOrDefault("" + ((Map<?, ?>) entry.getValue()).get(pk.name),
+              new ArrayList<>()));
+      } else
+        throw new IllegalArgumentException("Unknown fk: " + fk);
+    }
+    return res;
+  }
+
+  AbstractDatabase database(Map<String, AbstractDatabase> dbs, String database) throws Exception {
+    AbstractDatabase db = dbs.get(database);
+    if (db == null) {
+      db = services.getConfig().getDatabase(dj(database));
+      dbs.put(database, db);
+    }
+    return db;
+  }
+
+  Property singlePk(Table m) {
+    Property res = null;
+    for (Property p : m.properties.values())
+      if (p.pkpos != null) {
+        if (res != null)
+          throw new IllegalArgumentException(
+              "Batch traverse is not supported for composite keys: " + m.name);
+        res = p;
+      }
+    if (res == null)
+      throw new IllegalArgumentException("Table has no primary key: " + m.name);
+    return res;
+  }
+
+  /**
+   * distinct non-null values of the column in the records
+   */
+  List<Object> values(Map<Object, Object> records, String column) {
+    Map<String, Object> res = new LinkedHashMap<>();
+    for (Object record : records.values()) {
+      Object value = ((Map<?, ?>) record).get(column);
+      if (value != null)
+        res.put("" + value, value);
+    }
+    return new ArrayList<>(res.values());
+  }
+
+  /**
+   * records by (stringified) column value
+   */
+  Map<String, Map<String, Object>> index(List<Map<String, Object>> rows, String column) {
+    Map<String, Map<String, Object>> res = new HashMap<>();
+    for (Map<String, Object> row : rows)
+      res.put("" + row.get(column), row);
+    return res;
+  }
+
+  /**
+   * reads the records of m where column is one of the values (chunked into one query per 500
+   * values)
+   */
+  List<Map<String, Object>> in(SecurityContext sc, AbstractDatabase db, Table m, String column,
+      List<?> values) throws Exception {
+    List<Map<String, Object>> res = new ArrayList<>();
+    for (int i = 0; i < values.size(); i += 500) {
+      List<Object> chunk = new ArrayList<>(values.subList(i, Math.min(values.size(), i + 500)));
+      Filter filter = Filter.of("in", column, chunk);
+      Table t = filterTable(sc, db, m.name, filter, null, null);
+      res.addAll(filter(sc, db, t, null, null, null, false, filter, null));
+    }
+    return res;
+  }
+
   public static Property pk(Table t) {
     for (Property p : t.properties.values())
       if (p.pkpos != null)
@@ -976,6 +1273,7 @@ public class Data {
       return;
     if (!db.update(m, search, object))
       throw new NotFoundException();
+    KeyIndex.invalidate(db, m);
     dbTriggers(sc, "update", database, table, search, object, m.afterUpdate);
   }
 
@@ -1065,6 +1363,7 @@ public class Data {
       return;
     if (!db.delete(m, search))
       throw new NotFoundException();
+    KeyIndex.invalidate(db, m);
     dbTriggers(sc, "delete", database, table, search, null, m.afterDelete);
   }
 
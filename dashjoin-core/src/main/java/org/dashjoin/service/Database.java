@@ -67,6 +67,43 @@ public interface Database {
   public List<Map<String, Object>> all(Table s, Integer offset, Integer limit, String sort,
       boolean descending, Map<String, Object> arguments) throws Exception;
 
+  /**
+   * like all, but returns the records whose (single) primary key follows after in ascending or
+   * descending order (keyset pagination). Unlike an offset, this allows the database to seek to the
+   * page via the primary key index. Returns null if this is not supported
+   * 
+   * @param s table to operate on
+   * @param after optional key of the last record of the previous page (null means first page)
+   * @param limit optional limit (null means no limit)
+   * @param descending page in descending key order
+   * @param arguments optional search arguments that the records must match
+   * @return list of matching records sorted by the primary key
+   */
+  default public List<Map<String, Object>> allAfter(Table s, Object after, Integer limit,
+      boolean descending, Map<String, Object> arguments) throws Exception {
+    return null;
+  }
+
+  /**
+   * like all, but restricts the records using the filter predicate tree and only returns the
+   * columns in select (null means all columns). Returns null if this is not supported, in which
+   * case the caller evaluates the filter in memory
+   */
+  default public List<Map<String, Object>> filter(Table s, Integer offset, Integer limit,
+      String sort, boolean descending, Map<String, Object> arguments, Filter filter,
+      List<String> select) throws Exception {
+    return null;
+  }
+
+  /**
+   * counts the records matching the arguments and the filter predicate tree. Returns null if this
+   * is not supported
+   */
+  default public Number count(Table s, Map<String, Object> arguments, Filter filter)
+      throws Exception {
+    return null;
+  }
+
   /**
    * create object in schema
    */
@@ -117,6 +154,23 @@ public interface Database {
    */
   public Map<String, Object> connectAndCollectMetadata() throws Exception;
 
+  /**
+   * connects to the DB without collecting the metadata. This allows the framework to start the DB
+   * with the metadata snapshot of a previous run. Returns false if this is not supported
+   */
+  default public boolean connect() throws Exception {
+    return false;
+  }
+
+  /**
+   * returns a cheap fingerprint of the connected DB's schema (e.g. a catalog checksum). The
+   * metadata snapshot is used as long as the fingerprint does not change. Returns null if this is
+   * not supported
+   */
+  default public String fingerprint() throws Exception {
+    return null;
+  }
+
   /**
    * called by the framework when the database is deleted or edited. Allows implementations to shut
    * down connections using the previous connection data
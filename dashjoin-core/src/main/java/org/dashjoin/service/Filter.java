@@ -0,0 +1,165 @@
+package org.dashjoin.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * predicate tree used to push down filter expressions (e.g. OData $filter) to the database. Leafs
+ * compare a field to a value (eq, ne, gt, ge, lt, le, in, contains, startswith), inner nodes
+ * combine their args (and, or, not)
+ */
+public class Filter {
+
+  /**
+   * comparison operators
+   */
+  public static final List<String> COMPARISONS = Arrays.asList("eq", "ne", "gt", "ge", "lt", "le");
+
+  /**
+   * string functions
+   */
+  public static final List<String> FUNCTIONS = Arrays.asList("contains", "startswith");
+
+  /**
+   * operator
+   */
+  public String op;
+
+  /**
+   * field the leaf operates on
+   */
+  public String field;
+
+  /**
+   * literal the field is compared to (a list for the in operator)
+   */
+  public Object value;
+
+  /**
+   * operands of and, or, not
+   */
+  public List<Filter> args;
+
+  /**
+   * leaf node
+   */
+  public static Filter of(String op, String field, Object value) {
+    Filter res = new Filter();
+    res.op = op;
+    res.field = field;
+    res.value = value;
+    return res;
+  }
+
+  /**
+   * inner node
+   */
+  public static Filter of(String op, Filter... args) {
+    Filter res = new Filter();
+    res.op = op;
+    res.args = new ArrayList<>(Arrays.asList(args));
+    return res;
+  }
+
+  /**
+   * true for and, or, not
+   */
+  public boolean isLogical() {
+    return args != null;
+  }
+
+  /**
+   * returns all fields referenced in the tree
+   */
+  public List<String> fields() {
+    List<String> res = new ArrayList<>();
+    fields(res);
+    return res;
+  }
+
+  void fields(List<String> res) {
+    if (isLogical())
+      for (Filter f : args)
+        f.fields(res);
+    else
+      res.add(field);
+  }
+
+  /**
+   * in-memory evaluation for databases that cannot push down the filter
+   */
+  public boolean test(Map<String, Object> row) {
+    switch (op) {
+      case "and":
+        for (Filter f : args)
+          if (!f.test(row))
+            return false;
+        return true;
+      case "or":
+        for (Filter f : args)
+          if (f.test(row))
+            return true;
+        return false;
+      case "not":
+        return !args.get(0).test(row);
+    }
+
+    Object v = row.get(field);
+    switch (op) {
+      case "eq":
+        return equal(v, value);
+      case "ne":
+        return !equal(v, value);
+      case "in":
+        for (Object o : (List<?>) value)
+          if (equal(v, o))
+            return true;
+        return false;
+      case "contains":
+        return v != null && value != null && v.toString().contains(value.toString());
+      case "startswith":
+        return v != null && value != null && v.toString().startsWith(value.toString());
+    }
+
+    // null never matches an ordering comparison (like in SQL)
+    if (v == null || value == null)
+      return false;
+    int c = compare(v, value);
+    switch (op) {
+      case "gt":
+        return c > 0;
+      case "ge":
+        return c >= 0;
+      case "lt":
+        return c < 0;
+      case "le":
+        return c <= 0;
+    }
+    throw new IllegalArgumentException("Unknown filter operator: " + op);
+  }
+
+  static boolean equal(Object a, Object b) {
+    if (a instanceof Number && b instanceof Number)
+      return compare(a, b) == 0;
+    return Objects.equals(a, b);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  static int compare(Object a, Object b) {
+    if (a instanceof Number && b instanceof Number)
+      return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+    if (a instanceof Comparable && a.getClass().isInstance(b))
+      return ((Comparable) a).compareTo(b);
+    return a.toString().compareTo(b.toString());
+  }
+
+  @Override
+  public String toString() {
+    if (isLogical())
+      return op + args;
+    return field + " " + op + " " + value;
+  }
+}
@@ -6,6 +6,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import org.apache.commons.lang3.NotImplementedException;
 import org.dashjoin.model.Property;
@@ -30,6 +31,12 @@ import lombok.extern.java.Log;
 @Log
 public abstract class JSONDatabase implements Database {
 
+  /**
+   * number of writes to JSON DBs. Memoized reads (see UnionDatabase.read) are invalid once this
+   * changes
+   */
+  static final AtomicLong writes = new AtomicLong();
+
   /**
    * helper when converting JSON to map(string, object)
    */
@@ -152,6 +159,14 @@ public abstract class JSONDatabase implements Database {
     return new ArrayList<>(queryMap(info, arguments).values());
   }
 
+  /**
+   * version of the object (e.g. file timestamps). UnionDatabase memoizes reads as long as the
+   * versions do not change. null (the default) means the object must not be memoized
+   */
+  public Object version(Table s, Map<String, Object> search) throws Exception {
+    return null;
+  }
+
   /**
    * update file on filesystem, read only for classloader
    */
@@ -4,6 +4,9 @@ import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -11,6 +14,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.UUID;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.comparator.NameFileComparator;
 import org.dashjoin.model.QueryMeta;
@@ -18,8 +22,9 @@ import org.dashjoin.model.Table;
 import org.dashjoin.util.DJRuntime;
 import org.dashjoin.util.Escape;
 import org.dashjoin.util.Home;
-import org.dashjoin.util.MapUtil;
 import org.dashjoin.util.RuntimeDefinitions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.inject.Default;
 import jakarta.inject.Inject;
@@ -38,6 +43,22 @@ public class JSONFileDatabase extends JSONDatabase {
   @Inject
   Home home;
 
+  /**
+   * externalized string files of an object, valid while its json file keeps the timestamp and size
+   * it had when it was read
+   */
+  static class Externalized {
+    long modified;
+    long length;
+    List<File> files;
+  }
+
+  /**
+   * externalized string files by json file. Recorded by read, so version does not have to list the
+   * folder
+   */
+  Cache<File, Externalized> externalized = CacheBuilder.newBuilder().maximumSize(10000).build();
+
   /**
    * get json file handle from table and id
    */
@@ -108,7 +129,6 @@ public class JSONFileDatabase extends JSONDatabase {
     return res;
   }
 
-  @SuppressWarnings("unchecked")
   @Override
   public void create(Table s, Map<String, Object> object) throws Exception {
 
@@ -118,37 +138,50 @@ public class JSONFileDatabase extends JSONDatabase {
         throw new IOException("Error creating model folder");
 
     // field names to externalize
-    List<String> externalizeFields = new ArrayList<>();
-    Map<String, Object> ecs = services == null ? MapUtil.of("list", null)
-        : services.getConfig().getConfigDatabase().read(Table.ofName("dj-config"),
-            MapUtil.of("ID", "externalize-config-strings"));
-    if (ecs.get("list") instanceof List)
-      for (Object i : (List<Object>) ecs.get("list"))
-        if (i instanceof String) {
-          String[] parts = ((String) i).split(":");
-          if (parts.length == 2) {
-            String table = parts[0].trim();
-            String field = parts[1].trim();
-            if (table.equals(s.name))
-              externalizeFields.add(field);
-          }
-        }
+    List<String> externalizeFields = services == null ? Collections.emptyList()
+        : services.getConfig().getConfigSnapshot().externalizeFields(s.name);
 
     writeExternalizedStrings(s, object.get("ID"), file, object, externalizeFields);
 
-    objectMapper.writeValue(file, object);
+    write(file, object);
+    writes.incrementAndGet();
+  }
+
+  /**
+   * writes to a temp file which is then renamed, so readers never see a partially written file
+   */
+  void write(File file, Map<String, Object> object) throws IOException {
+    File tmp = new File(file.getParentFile(), "." + file.getName() + "." + UUID.randomUUID());
+    try {
+      objectMapper.writeValue(tmp, object);
+      try {
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      tmp.delete();
+    }
   }
 
   @Override
   public Map<String, Object> read(Table s, Map<String, Object> search) throws Exception {
     File file = file(s, search);
+    Externalized e = new Externalized();
+    e.modified = file.lastModified();
+    e.length = file.length();
+    e.files = Collections.emptyList();
     if (file.exists()) {
       Map<String, Object> res = objectMapper.readValue(file, tr);
       if (res.get("ID") == null)
         throw new IllegalArgumentException("Object must contain ID field: " + file);
-      readExternalizedStrings("" + res.get("ID"), secondaryFiles(s, search.get("ID")), res);
+      e.files = secondaryFiles(s, search.get("ID"));
+      readExternalizedStrings("" + res.get("ID"), e.files, res);
+      externalized.put(file, e);
       return res;
     }
+    externalized.put(file, e);
     return null;
   }
 
@@ -156,7 +189,28 @@ public class JSONFileDatabase extends JSONDatabase {
   public boolean delete(Table s, Map<String, Object> search) throws Exception {
     for (File d : secondaryFiles(s, search.get("ID")))
       d.delete();
-    return file(s, search).delete();
+    boolean res = file(s, search).delete();
+    writes.incrementAndGet();
+    return res;
+  }
+
+  /**
+   * timestamp and size of the object's file and its externalized strings. Also detects edits that
+   * bypass the DB (e.g. git pull or a text editor). null if the json file changed since it was last
+   * read, since its externalized strings are not known yet
+   */
+  @Override
+  public Object version(Table s, Map<String, Object> search) throws Exception {
+    File file = file(s, search);
+    long modified = file.lastModified();
+    long length = file.length();
+    Externalized e = externalized.getIfPresent(file);
+    if (e == null || e.modified != modified || e.length != length)
+      return null;
+    List<Object> res = new ArrayList<>(Arrays.asList(modified, length));
+    for (File f : e.files)
+      res.addAll(Arrays.asList(f.getName(), f.lastModified(), f.length()));
+    return res;
   }
 
   /**
@@ -4,10 +4,12 @@ import java.net.URLEncoder;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.GET;
@@ -61,6 +63,31 @@ public class JsonApi {
      */
     String type;
 
+    /**
+     * table metadata (resolved once per request, see init)
+     */
+    Table table;
+
+    /**
+     * name of the first primary key column
+     */
+    String pk;
+
+    /**
+     * columns omitted by the fields[type] parameter
+     */
+    Set<String> excluded;
+
+    /**
+     * fields[type]=a,b query parameters passed on to the links
+     */
+    String fieldPars;
+
+    /**
+     * relationship link generators for the foreign key columns
+     */
+    Map<String, Call> refs;
+
     /**
      * init type and database
      */
@@ -71,11 +98,27 @@ public class JsonApi {
     }
 
     /**
-     * lookup the Table object containing the metadata
+     * lookup the Table object containing the metadata and precompute the attribute and
+     * relationship mappings used by convert
      */
-    Table table() throws Exception {
+    void init() throws Exception {
       AbstractDatabase db = services.getConfig().getDatabase(data.dj(database));
-      return db.tables.get(type);
+      table = db.tables.get(type);
+      if (table == null)
+        throw new IllegalArgumentException("Unknown table: " + type);
+
+      List<String> fields = uriInfo.getQueryParameters().get("fields[" + type + "]");
+      excluded = new HashSet<>();
+      refs = new LinkedHashMap<>();
+      for (Property p : table.properties.values()) {
+        if (p.pkpos != null && p.pkpos == 0)
+          pk = p.name;
+        if (fields != null && fields.size() > 0
+            && !Arrays.asList(fields.get(0).split(",")).contains(p.name))
+          excluded.add(p.name);
+        if (p.ref != null)
+          refs.put(p.name, new Call(uriInfo, p.ref.split("/")[1], p.ref.split("/")[2]));
+      }
     }
 
     /**
@@ -92,19 +135,32 @@ public class JsonApi {
      */
     Map<String, String> self(Integer offset, Integer limit, String filter, String sort,
         Integer size) {
+      return self(offset, null, limit, filter, sort, size, null);
+    }
+
+    /**
+     * generate a link object (https://jsonapi.org/format/#document-links). If after is set, the
+     * next link continues after the key of the last record (keyset pagination)
+     */
+    Map<String, String> self(Integer offset, String after, Integer limit, String filter,
+        String sort, Integer size, String last) {
       String o = offset == null ? "" : "page%5Boffset%5D=" + offset + "&";
+      String a = after == null ? "" : "page%5Bafter%5D=" + e(after) + "&";
       String l = limit == null ? "" : "page%5Blimit%5D=" + limit + "&";
       String s = sort == null ? "" : "sort=" + e(sort) + "&";
       String f = filter == null ? "" : "filter=" + e(filter) + "&";
-      String pars = o + l + f + s + fields();
+      String pars = o + a + l + f + s + fields();
       if (pars.endsWith("&"))
         pars = pars.substring(0, pars.length() - 1);
       Map<String, String> self = MapUtil.of("self", uriInfo.getBaseUri() + "rest/jsonapi/"
           + database + "/" + type + (pars.isEmpty() ? "" : "?") + pars);
 
       if (size != null && size >= limit)
-        self.put("next",
-            self(offset == null ? limit : offset + limit, limit, filter, sort, null).get("self"));
+        if (after == null)
+          self.put("next", self(offset == null ? limit : offset + limit, null, limit, filter, sort,
+              null, null).get("self"));
+        else
+          self.put("next", self(null, last, limit, filter, sort, null, null).get("self"));
 
       return self;
     }
@@ -113,12 +169,14 @@ public class JsonApi {
      * generate the fields[type]=a,b query parameters
      */
     String fields() {
+      if (fieldPars != null)
+        return fieldPars;
       List<String> fs = new ArrayList<>();
       for (Entry<String, List<String>> x : uriInfo.getQueryParameters().entrySet())
         if (x.getKey().startsWith("fields["))
           if (x.getValue() != null)
             fs.add(e(x.getKey()) + "=" + x.getValue().get(0));
-      return String.join("&", fs);
+      return fieldPars = String.join("&", fs);
     }
 
     /**
@@ -132,28 +190,19 @@ public class JsonApi {
      * create a resource object (https://jsonapi.org/format/#document-resource-objects)
      */
     Map<String, Object> convert(Map<String, Object> o) throws Exception {
-      String id = null;
-      Table t = table();
-      Map<String, Object> ref = new LinkedHashMap<>();
+      String id = pk == null ? null : "" + o.remove(pk);
+      o.keySet().removeAll(excluded);
 
-      for (Property p : t.properties.values()) {
-        if (p.pkpos != null && p.pkpos == 0)
-          id = "" + o.remove(p.name);
-        List<String> fields = uriInfo.getQueryParameters().get("fields[" + type + "]");
-        if (fields != null && fields.size() > 0
-            && !Arrays.asList(fields.get(0).split(",")).contains(p.name))
-          o.remove(p.name);
-        if (p.ref != null && o.get(p.name) != null) {
-          Call x = new Call(uriInfo, p.ref.split("/")[1], p.ref.split("/")[2]);
-          ref.put(p.name,
-              MapUtil.of("links", MapUtil.of("related", x.self("" + o.get(p.name)).get("self"))));
-        }
-      }
+      Map<String, Object> ref = new LinkedHashMap<>();
+      for (Entry<String, Call> x : refs.entrySet())
+        if (o.get(x.getKey()) != null)
+          ref.put(x.getKey(), MapUtil.of("links",
+              MapUtil.of("related", x.getValue().self("" + o.get(x.getKey())).get("self"))));
 
       if (ref.isEmpty())
-        return MapUtil.of("id", id, "type", t.name, "attributes", o);
+        return MapUtil.of("id", id, "type", table.name, "attributes", o);
       else
-        return MapUtil.of("id", id, "type", t.name, "attributes", o, "relationships", ref);
+        return MapUtil.of("id", id, "type", table.name, "attributes", o, "relationships", ref);
     }
   }
 
@@ -185,6 +234,7 @@ public class JsonApi {
 
     Call call = new Call(uriInfo, database, type);
     Map<String, Object> res = data.read(sc, database, type, id);
+    call.init();
     return MapUtil.of("links", call.self(id), "data", call.convert(res));
   }
 
@@ -196,8 +246,8 @@ public class JsonApi {
   public Map<String, Object> getTable(@Context UriInfo uriInfo, @Context SecurityContext sc,
       @PathParam("database") String database, @PathParam("type") String type,
       @QueryParam("sort") String sort, @QueryParam("filter") String filter,
-      @QueryParam("page[offset]") Integer offset, @QueryParam("page[limit]") Integer limit)
-      throws Exception {
+      @QueryParam("page[offset]") Integer offset, @QueryParam("page[after]") String after,
+      @QueryParam("page[limit]") Integer limit) throws Exception {
 
     // filter
     Map<String, Object> arguments = null;
@@ -225,11 +275,32 @@ public class JsonApi {
     limit = limit == null ? 1000 : limit;
 
     Call call = new Call(uriInfo, database, type);
+    call.init();
     List<Map<String, Object>> res = new ArrayList<>();
-    List<Map<String, Object>> all =
-        data.all(sc, database, type, offset, limit, s, descending, arguments);
+    List<Map<String, Object>> all;
+    if (after == null)
+      all = data.all(sc, database, type, offset, limit, s, descending, arguments);
+    else {
+      // keyset pagination seeks to the page via the primary key (page[after]= is the first page)
+      if (offset != null)
+        throw new Exception("page[after] cannot be combined with page[offset]");
+      if (s != null && !s.equals(call.pk))
+        throw new Exception("page[after] requires sorting by the primary key " + call.pk);
+      all = data.allAfter(sc, database, type, after.isEmpty() ? null : after, limit, descending,
+          arguments);
+    }
+    String last = all.isEmpty() ? null : "" + all.get(all.size() - 1).get(call.pk);
     for (Map<String, Object> i : all)
       res.add(call.convert(i));
-    return MapUtil.of("links", call.self(offset, limit, filter, sort, all.size()), "data", res);
+    return MapUtil.of("links", call.self(offset, after, limit, filter, sort, all.size(), last),
+        "data", res);
+  }
+
+  /**
+   * get records of a given type using offset pagination
+   */
+  public Map<String, Object> getTable(UriInfo uriInfo, SecurityContext sc, String database,
+      String type, String sort, String filter, Integer offset, Integer limit) throws Exception {
+    return getTable(uriInfo, sc, database, type, sort, filter, offset, null, limit);
   }
 }
@@ -0,0 +1,130 @@
+package org.dashjoin.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.dashjoin.model.AbstractDatabase;
+import org.dashjoin.model.Property;
+import org.dashjoin.model.Table;
+import org.dashjoin.service.Data.Choice;
+import org.dashjoin.util.Template;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * autocomplete support for Data.keys. Recent prefixes are cached for a few seconds, so repeated or
+ * debounced keystrokes do not hit the database. Small lookup tables are kept in a sorted in-memory
+ * key / label index. Both caches are invalidated when a table is written via Data
+ */
+public class KeyIndex {
+
+  /**
+   * results of recent prefixes by db / table / limit / arguments / prefix
+   */
+  static final Cache<String, List<Choice>> prefixes =
+      CacheBuilder.newBuilder().maximumSize(10000).expireAfterWrite(10, TimeUnit.SECONDS).build();
+
+  /**
+   * in-memory indexes by db / table (empty if the table is too large to be indexed). Expire in
+   * order to pick up writes that bypass Data
+   */
+  static final Cache<String, Optional<KeyIndex>> indexes =
+      CacheBuilder.newBuilder().maximumSize(1000).expireAfterWrite(5, TimeUnit.MINUTES).build();
+
+  /**
+   * choices by lower case label
+   */
+  TreeMap<String, List<Choice>> labels = new TreeMap<>();
+
+  /**
+   * db / table prefix of the cache keys. Database IDs are the same in every tenant, so the key
+   * starts with the tenant ID
+   */
+  static String key(AbstractDatabase db, Table m) {
+    Config config = db.config();
+    String tenant = config instanceof PojoDatabase ? ((PojoDatabase) config)._tenant : null;
+    return tenant + "/" + db.ID + "/" + m.name + "/";
+  }
+
+  /**
+   * like db.keys but uses the index or the prefix cache. Tables with up to maxRows rows are
+   * indexed (null or 0 disables the index)
+   */
+  static List<Choice> keys(AbstractDatabase db, Table m, String prefix, Integer limit,
+      Map<String, Object> arguments, Integer maxRows) throws Exception {
+    String table = key(db, m);
+
+    // the config DB is in memory already, tenant filters are not part of the index
+    if (maxRows != null && maxRows > 0 && !(db instanceof PojoDatabase)
+        && (arguments == null || arguments.isEmpty())) {
+      KeyIndex index;
+      try {
+        index = indexes.get(table, () -> Optional.ofNullable(build(db, m, maxRows))).orElse(null);
+      } catch (ExecutionException e) {
+        throw (Exception) e.getCause();
+      }
+      if (index != null)
+        return index.lookup(prefix, limit);
+    }
+
+    String key = table + limit + "/" + arguments + "/" + prefix;
+    List<Choice> res = prefixes.getIfPresent(key);
+    if (res == null) {
+      res = db.keys(m, prefix, limit, arguments);
+      if (res != null)
+        prefixes.put(key, res);
+    }
+    return res;
+  }
+
+  /**
+   * builds the index or returns null if the table has more than maxRows rows
+   */
+  static KeyIndex build(AbstractDatabase db, Table m, int maxRows) throws Exception {
+    Property pk = Data.pk(m);
+    if (pk == null)
+      return null;
+    List<Map<String, Object>> rows = db.all(m, null, maxRows + 1, null, false, null);
+    if (rows.size() > maxRows)
+      return null;
+
+    KeyIndex res = new KeyIndex();
+    for (Map<String, Object> row : rows)
+      if (row.get(pk.name) != null) {
+        Choice choice = new Choice();
+        choice.value = row.get(pk.name);
+        choice.name = m.djLabel == null ? row.get(pk.name).toString()
+            : "" + Template.replace(m.djLabel, row);
+        res.labels.computeIfAbsent(choice.name.toLowerCase(), k -> new ArrayList<>()).add(choice);
+      }
+    return res;
+  }
+
+  /**
+   * case insensitive prefix match on the labels
+   */
+  List<Choice> lookup(String prefix, Integer limit) {
+    String p = prefix == null ? "" : prefix.toLowerCase();
+    List<Choice> res = new ArrayList<>();
+    for (List<Choice> choices : labels.subMap(p, true, p + Character.MAX_VALUE, true).values())
+      for (Choice choice : choices) {
+        if (limit != null && res.size() >= limit)
+          return res;
+        res.add(choice);
+      }
+    return res;
+  }
+
+  /**
+   * called when the table is written
+   */
+  static void invalidate(AbstractDatabase db, Table m) {
+    String table = key(db, m);
+    indexes.invalidate(table);
+    prefixes.asMap().keySet().removeIf(k -> k.startsWith(table));
+  }
+}
@@ -2,6 +2,7 @@ package org.dashjoin.service;
 
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -13,6 +14,8 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.dashjoin.util.Escape;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 /**
  * simple DB metadata class. might switch to schemaspy or schemacrawler later
@@ -252,6 +255,82 @@ public class Metadata {
 
   }
 
+  /**
+   * checksum of the tables, columns, and key constraints of the schema. Unlike the constructor,
+   * this requires only three catalog queries rather than several queries per table (if the
+   * database has an information schema)
+   */
+  public static String fingerprint(Connection con, String url, List<String> excludeTables)
+      throws SQLException {
+    DatabaseMetaData md = con.getMetaData();
+    String catalog = url.startsWith("jdbc:mariadb") ? con.getCatalog() : null;
+    String schema = new Metadata().getSchema(con, url);
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putUnencodedChars("" + excludeTables);
+    List<String> tables = new ArrayList<>();
+    try (ResultSet res = md.getTables(catalog, schema, null, null)) {
+      while (res.next()) {
+        tables.add(res.getString("TABLE_NAME"));
+        hasher.putUnencodedChars(
+            "\n" + res.getString("TABLE_NAME") + " " + res.getString("TABLE_TYPE"));
+      }
+    }
+    try (ResultSet res = md.getColumns(catalog, schema, null, null)) {
+      while (res.next())
+        hasher.putUnencodedChars("\n" + res.getString("TABLE_NAME") + "."
+            + res.getString("COLUMN_NAME") + " " + res.getString("TYPE_NAME") + " "
+            + res.getInt("NULLABLE") + " " + res.getString("IS_AUTOINCREMENT"));
+    }
+    hasher.putUnencodedChars(keys(con, md, catalog, schema, tables));
+    return hasher.hash().toString();
+  }
+
+  /**
+   * key constraint columns of the schema (and the unique constraint referenced by foreign keys)
+   */
+  static final String KEYS = "select k.CONSTRAINT_NAME, k.TABLE_NAME, k.COLUMN_NAME, "
+      + "k.ORDINAL_POSITION, r.UNIQUE_CONSTRAINT_NAME from INFORMATION_SCHEMA.KEY_COLUMN_USAGE k "
+      + "left join INFORMATION_SCHEMA.REFERENTIAL_CONSTRAINTS r on "
+      + "r.CONSTRAINT_SCHEMA = k.CONSTRAINT_SCHEMA and r.CONSTRAINT_NAME = k.CONSTRAINT_NAME "
+      + "where k.TABLE_SCHEMA = ? order by k.TABLE_NAME, k.CONSTRAINT_NAME, k.ORDINAL_POSITION";
+
+  /**
+   * names and columns of the PK / FK constraints. Uses a single information schema query if the
+   * database has one, otherwise the keys are read table by table
+   */
+  static String keys(Connection con, DatabaseMetaData md, String catalog, String schema,
+      List<String> tables) throws SQLException {
+    StringBuilder res = new StringBuilder();
+    String owner = schema != null ? schema : con.getCatalog();
+    if (owner != null)
+      try (PreparedStatement stmt = con.prepareStatement(KEYS)) {
+        stmt.setString(1, owner);
+        try (ResultSet rs = stmt.executeQuery()) {
+          while (rs.next())
+            res.append("\n" + rs.getString(1) + " " + rs.getString(2) + "." + rs.getString(3)
+                + " " + rs.getInt(4) + " " + rs.getString(5));
+        }
+        return res.toString();
+      } catch (SQLException noInformationSchema) {
+        res.setLength(0);
+      }
+
+    for (String table : tables) {
+      try (ResultSet rs = md.getPrimaryKeys(catalog, schema, table)) {
+        while (rs.next())
+          res.append("\n" + rs.getString("PK_NAME") + " " + table + "."
+              + rs.getString("COLUMN_NAME") + " " + rs.getShort("KEY_SEQ"));
+      }
+      try (ResultSet rs = md.getImportedKeys(catalog, schema, table)) {
+        while (rs.next())
+          res.append("\n" + rs.getString("FK_NAME") + " " + table + "."
+              + rs.getString("FKCOLUMN_NAME") + " " + rs.getShort("KEY_SEQ") + " "
+              + rs.getString("PKTABLE_NAME") + "." + rs.getString("PKCOLUMN_NAME"));
+      }
+    }
+    return res.toString();
+  }
+
   /**
    * get the schema the DB connection points to. Some JDBC drivers require workarounds
    */
@@ -0,0 +1,132 @@
+package org.dashjoin.service;
+
+import java.io.File;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.dashjoin.model.AbstractDatabase;
+import org.dashjoin.util.Home;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+
+/**
+ * database metadata persisted under the home directory. Allows restarts to skip collecting the
+ * metadata of databases whose schema fingerprint did not change
+ */
+public class MetadataSnapshot {
+
+  private final static Logger logger = Logger.getLogger(MetadataSnapshot.class.getName());
+
+  private static final ObjectMapper objectMapper =
+      new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  /**
+   * only considers the public config fields (getters like getQueryEditor have side effects)
+   */
+  private static final ObjectMapper configMapper = new ObjectMapper()
+      .setVisibility(PropertyAccessor.ALL, Visibility.NONE)
+      .setVisibility(PropertyAccessor.FIELD, Visibility.PUBLIC_ONLY);
+
+  /**
+   * increment if the metadata format changes
+   */
+  static final int VERSION = 1;
+
+  /**
+   * folder (relative to the home directory) where the snapshots are stored
+   */
+  static String FOLDER = "metadata-cache";
+
+  /**
+   * snapshot format version
+   */
+  public int version;
+
+  /**
+   * checksum of the database config (e.g. url, excludeTables)
+   */
+  public String config;
+
+  /**
+   * schema fingerprint at the time the metadata was collected
+   */
+  public String fingerprint;
+
+  /**
+   * the output of connectAndCollectMetadata
+   */
+  public Map<String, Object> tables;
+
+  static File file(String id) {
+    return Home.get()
+        .getFile(FOLDER + "/" + URLEncoder.encode(id, StandardCharsets.UTF_8) + ".json");
+  }
+
+  /**
+   * checksum of the database config without the tables
+   */
+  @SuppressWarnings("unchecked")
+  static String config(AbstractDatabase db) throws Exception {
+    Map<String, Object> config = configMapper.convertValue(db, Map.class);
+    config.remove("tables");
+    config.remove("status");
+    return Hashing.sha256()
+        .hashUnencodedChars(db.getClass().getName() + configMapper.writeValueAsString(config))
+        .toString();
+  }
+
+  /**
+   * returns the snapshot of the database or null if there is no valid snapshot
+   */
+  static MetadataSnapshot load(AbstractDatabase db) {
+    File file = file(db.ID);
+    if (!file.exists())
+      return null;
+    try {
+      MetadataSnapshot res = objectMapper.readValue(file, MetadataSnapshot.class);
+      if (res.version != VERSION || res.tables == null || res.fingerprint == null)
+        return null;
+      if (!config(db).equals(res.config))
+        return null;
+      return res;
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Ignoring metadata snapshot " + file, e);
+      return null;
+    }
+  }
+
+  /**
+   * deletes the snapshot of the database
+   */
+  static void delete(AbstractDatabase db) {
+    file(db.ID).delete();
+  }
+
+  /**
+   * writes the snapshot of the database
+   */
+  static void save(AbstractDatabase db, String fingerprint, Map<String, Object> tables) {
+    File file = file(db.ID);
+    try {
+      MetadataSnapshot res = new MetadataSnapshot();
+      res.version = VERSION;
+      res.config = config(db);
+      res.fingerprint = fingerprint;
+      res.tables = tables;
+      file.getParentFile().mkdirs();
+      File tmp = File.createTempFile("snapshot", ".tmp", file.getParentFile());
+      objectMapper.writeValue(tmp, res);
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Error writing metadata snapshot " + file, e);
+    }
+  }
+}
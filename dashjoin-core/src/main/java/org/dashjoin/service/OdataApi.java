@@ -56,13 +56,22 @@ public class OdataApi {
         getValue(uriInfo, sc, database, type, field, filter, select, orderby, top, skip));
   }
 
+  @GET
+  @Path("/{database}/{type}/$count")
+  @Produces({"text/plain"})
+  public long getCount(@Context UriInfo uriInfo, @Context SecurityContext sc,
+      @PathParam("database") String database, @PathParam("type") String type,
+      @QueryParam("$filter") String filter) throws Exception {
+    return data.count(sc, database, type, filter(filter));
+  }
+
   @GET
   @Path("/{database}/{type}")
   public Map<String, Object> getTable(@Context UriInfo uriInfo, @Context SecurityContext sc,
       @PathParam("database") String database, @PathParam("type") String type,
       @QueryParam("$filter") String filter, @QueryParam("$select") String select,
       @QueryParam("$orderby") String orderby, @QueryParam("$top") Integer top,
-      @QueryParam("$skip") Integer skip) throws Exception {
+      @QueryParam("$skip") Integer skip, @QueryParam("$count") boolean count) throws Exception {
 
     if (type.contains("(") && type.endsWith(")")) {
       String table = type.split("\\(")[0];
@@ -74,41 +83,184 @@ public class OdataApi {
       return MapUtil.of("value", res);
     } else {
       // filter
-      Map<String, Object> args = MapUtil.of();
-      if (filter != null)
-        for (String con : filter.split(" and ")) {
-          String[] parts = con.split(" eq ");
-          args.put(parts[0].trim(), parse(parts[1].trim()));
-        }
+      Filter f = filter(filter);
 
       // sort
-      String sort = orderby;
+      String sort = orderby == null ? null : orderby.trim();
       boolean descending = false;
       if (sort != null) {
+        if (sort.contains(","))
+          throw new Exception("Sorting by multiple fields is not supported");
         if (sort.endsWith(" desc")) {
           descending = true;
-          sort = sort.substring(0, sort.length() - " desc".length());
-        }
+          sort = sort.substring(0, sort.length() - " desc".length()).trim();
+        } else if (sort.endsWith(" asc"))
+          sort = sort.substring(0, sort.length() - " asc".length()).trim();
       }
 
-      List<Map<String, Object>> res =
-          data.all(sc, database, type, skip, top, sort, descending, args);
+      // select
+      List<String> sel = null;
       if (select != null) {
-        String[] sel = select.split(",");
-        List<Map<String, Object>> ress = new ArrayList<>();
-        for (Map<String, Object> row : res) {
-          Map<String, Object> newrow = MapUtil.of();
-          for (String s : sel)
-            newrow.put(s.trim(), row.get(s.trim()));
-          ress.add(newrow);
-        }
-        res = ress;
+        sel = new ArrayList<>();
+        for (String s : select.split(","))
+          sel.add(s.trim());
       }
 
+      List<Map<String, Object>> res =
+          data.filter(sc, database, type, skip, top, sort, descending, f, sel);
+
+      if (count)
+        return MapUtil.of("@odata.count", data.count(sc, database, type, f), "value", res);
       return MapUtil.of("value", res);
     }
   }
 
+  public Map<String, Object> getTable(UriInfo uriInfo, SecurityContext sc, String database,
+      String type, String filter, String select, String orderby, Integer top, Integer skip)
+      throws Exception {
+    return getTable(uriInfo, sc, database, type, filter, select, orderby, top, skip, false);
+  }
+
+  /**
+   * parse $filter into a predicate tree (null if there is no filter)
+   */
+  Filter filter(String filter) throws Exception {
+    if (filter == null || filter.isBlank())
+      return null;
+    FilterParser parser = new FilterParser(filter);
+    Filter res = parser.or();
+    if (parser.peek() != null)
+      throw new Exception("Error parsing filter: " + filter);
+    return res;
+  }
+
+  /**
+   * recursive descent parser for the $filter expression syntax:
+   * 
+   * or := and ('or' and)*, and := unary ('and' unary)*, unary := 'not' unary | primary, primary :=
+   * '(' or ')' | function '(' field ',' literal ')' | field 'in' '(' literal (',' literal)* ')' |
+   * field comparison literal
+   */
+  class FilterParser {
+
+    String filter;
+    List<String> tokens = new ArrayList<>();
+    int pos;
+
+    FilterParser(String filter) throws Exception {
+      this.filter = filter;
+      int i = 0;
+      while (i < filter.length()) {
+        char c = filter.charAt(i);
+        if (Character.isWhitespace(c))
+          i++;
+        else if (c == '(' || c == ')' || c == ',')
+          tokens.add("" + filter.charAt(i++));
+        else if (c == '\'') {
+          // string literal, quotes are escaped by doubling them
+          int start = i++;
+          while (true) {
+            if (i >= filter.length())
+              throw new Exception("Unterminated string in filter: " + filter);
+            if (filter.charAt(i) == '\'') {
+              if (i + 1 < filter.length() && filter.charAt(i + 1) == '\'')
+                i += 2;
+              else
+                break;
+            } else
+              i++;
+          }
+          tokens.add(filter.substring(start, ++i));
+        } else {
+          int start = i;
+          while (i < filter.length() && !Character.isWhitespace(filter.charAt(i))
+              && "(),'".indexOf(filter.charAt(i)) < 0)
+            i++;
+          tokens.add(filter.substring(start, i));
+        }
+      }
+    }
+
+    String peek() {
+      return pos < tokens.size() ? tokens.get(pos) : null;
+    }
+
+    String next() throws Exception {
+      if (pos >= tokens.size())
+        throw new Exception("Unexpected end of filter: " + filter);
+      return tokens.get(pos++);
+    }
+
+    void expect(String token) throws Exception {
+      if (!token.equals(next()))
+        throw new Exception("Expecting " + token + " in filter: " + filter);
+    }
+
+    Filter or() throws Exception {
+      Filter res = and();
+      if (!"or".equals(peek()))
+        return res;
+      res = Filter.of("or", res);
+      while ("or".equals(peek())) {
+        next();
+        res.args.add(and());
+      }
+      return res;
+    }
+
+    Filter and() throws Exception {
+      Filter res = unary();
+      if (!"and".equals(peek()))
+        return res;
+      res = Filter.of("and", res);
+      while ("and".equals(peek())) {
+        next();
+        res.args.add(unary());
+      }
+      return res;
+    }
+
+    Filter unary() throws Exception {
+      if ("not".equals(peek())) {
+        next();
+        return Filter.of("not", unary());
+      }
+      return primary();
+    }
+
+    Filter primary() throws Exception {
+      String token = next();
+      if ("(".equals(token)) {
+        Filter res = or();
+        expect(")");
+        return res;
+      }
+      if (Filter.FUNCTIONS.contains(token) && "(".equals(peek())) {
+        next();
+        String field = next();
+        expect(",");
+        Object value = parse(next());
+        expect(")");
+        return Filter.of(token, field, value);
+      }
+      String op = next();
+      if ("in".equals(op)) {
+        expect("(");
+        List<Object> values = new ArrayList<>();
+        values.add(parse(next()));
+        while (",".equals(peek())) {
+          next();
+          values.add(parse(next()));
+        }
+        expect(")");
+        return Filter.of(op, token, values);
+      }
+      if (Filter.COMPARISONS.contains(op))
+        return Filter.of(op, token, parse(next()));
+      throw new Exception("Unsupported filter operator: " + op);
+    }
+  }
+
   /**
    * parse filter literal
    */
@@ -117,15 +269,21 @@ public class OdataApi {
       return true;
     if (s.equals("false"))
       return false;
-    if (s.startsWith("'") && s.endsWith("'"))
-      return s.substring(1, s.length() - 1);
+    if (s.equals("null"))
+      return null;
+    if (s.length() > 1 && s.startsWith("'") && s.endsWith("'"))
+      return s.substring(1, s.length() - 1).replace("''", "'");
     try {
       return Integer.parseInt(s);
     } catch (NumberFormatException e) {
       try {
-        return Double.parseDouble(s);
+        return Long.parseLong(s);
       } catch (NumberFormatException e1) {
-        throw new Exception("Cannot parse: " + s);
+        try {
+          return Double.parseDouble(s);
+        } catch (NumberFormatException e2) {
+          throw new Exception("Cannot parse: " + s);
+        }
       }
     }
   }
@@ -75,6 +75,11 @@ public class PasswordDatabase extends JSONDatabase {
     return res;
   }
 
+  @Override
+  public Object version(Table s, Map<String, Object> search) throws Exception {
+    return db.version(s, search);
+  }
+
   public String password(String table, String id) throws Exception {
     Map<String, Object> res = db.read(Table.ofName(table), MapUtil.of("ID", id));
     Object password = res != null ? res.get("password") : null;
@@ -14,12 +14,21 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.dashjoin.function.AbstractConfigurableFunction;
@@ -33,7 +42,7 @@ import org.eclipse.microprofile.config.ConfigProvider;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import jakarta.inject.Inject;
 
 /**
@@ -58,19 +67,143 @@ public class PojoDatabase extends UnionDatabase implements Config {
   }
 
   /**
-   * internal pojo cache
-   * 
-   * TODO: must be cluster-aware in the future (same with file system - use object store instead of
-   * file system)
+   * internal pojo cache. Changes made on other nodes are announced via the InvalidationBus (see
+   * invalidate)
    */
   Map<String, AbstractDatabase> _cache;
 
+  /**
+   * tenant ID of the root config
+   */
+  String _tenant;
+
   Map<String, AbstractDatabase> cache() {
     if (_cache != null)
       return _cache;
     return ((PojoDatabase) services.getConfig())._cache;
   }
 
+  /**
+   * tables of a database by table ID, its compiled ACL checks and its reverse foreign key index.
+   * Built when the metadata is collected and rebuilt on the next lookup after a change
+   */
+  static class Schema {
+    long changes;
+    Map<String, Table> tables;
+    ACLContainerRequestFilter.CompiledACL acl;
+    Map<String, List<AbstractDatabase.Reference>> references;
+  }
+
+  /**
+   * index of the table metadata, kept alongside the pojo cache. A database is re-indexed on its
+   * next lookup after its metadata was collected or its config was changed via this DB
+   */
+  static class SchemaIndex {
+
+    Map<String, Schema> databases = new ConcurrentHashMap<>();
+
+    Map<String, AtomicLong> changes = new ConcurrentHashMap<>();
+
+    long changes(String id) {
+      AtomicLong res = changes.get(id);
+      return res == null ? 0 : res.get();
+    }
+
+    void invalidate(String id) {
+      changes.computeIfAbsent(id, k -> new AtomicLong()).incrementAndGet();
+    }
+  }
+
+  SchemaIndex _schema = new SchemaIndex();
+
+  SchemaIndex schema() {
+    if (_cache != null)
+      return _schema;
+    return ((PojoDatabase) services.getConfig())._schema;
+  }
+
+  /**
+   * dj-config snapshot, kept alongside the pojo cache. Loaded on first use and replaced when
+   * dj-config is written via this DB
+   */
+  volatile ConfigSnapshot _settings;
+
+  PojoDatabase root() {
+    // stand-in config DBs without services (e.g. in the SDK) are their own root
+    if (_cache != null || services == null)
+      return this;
+    return (PojoDatabase) services.getConfig();
+  }
+
+  @Override
+  public ConfigSnapshot getConfigSnapshot() {
+    PojoDatabase root = root();
+    ConfigSnapshot res = root._settings;
+    if (res != null)
+      return res;
+    synchronized (root) {
+      if (root._settings == null)
+        reloadConfigSnapshot(root);
+      return root._settings;
+    }
+  }
+
+  /**
+   * called after dj-config is written. Loads happen under the lock, so the last snapshot set
+   * reflects the last write
+   */
+  void reloadConfigSnapshot() {
+    PojoDatabase root = root();
+    synchronized (root) {
+      reloadConfigSnapshot(root);
+    }
+  }
+
+  void reloadConfigSnapshot(PojoDatabase root) {
+    if (root.services == null) {
+      // nothing to load from, use the defaults
+      root._settings = new ConfigSnapshot(new HashMap<>());
+      return;
+    }
+    try {
+      root._settings = ConfigSnapshot.load(root);
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Error loading dj-config", e);
+      root._settings = new ConfigSnapshot(new HashMap<>());
+    }
+  }
+
+  /**
+   * announce a change of the config object table / id to the other nodes
+   */
+  void publish(String table, Object id) {
+    if (services != null && services.invalidationBus != null)
+      services.invalidationBus.publish(root()._tenant, table, "" + id);
+  }
+
+  /**
+   * evicts the caches after another node changed the config object table / id
+   */
+  void invalidate(String table, String id) {
+    memo().invalidate(table + "/" + id);
+    try {
+      if (table.equals("dj-database")) {
+        removeCache(id);
+        if (read(Table.ofName("dj-database"), of("ID", id)) != null)
+          metadataCollection(getDatabase(id), true);
+      }
+      if (table.equals("Table") || table.equals("Property")) {
+        String[] parts = id.split("/");
+        memo().invalidate("dj-database/" + parts[0] + "/" + parts[1]);
+        schema().invalidate(parts[0] + "/" + parts[1]);
+      }
+      if (table.equals("dj-config"))
+        reloadConfigSnapshot();
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Error invalidating " + table + "/" + id, e);
+    }
+  }
+
   @Override
   public PojoDatabase getConfigDatabase() throws Exception {
     return (PojoDatabase) getDatabase(services.getDashjoinID() + "/config");
@@ -79,6 +212,8 @@ public class PojoDatabase extends UnionDatabase implements Config {
   @Override
   public void addDB(ProviderDatabase db) {
     dbs().add(db);
+    JSONDatabase.writes.incrementAndGet();
+    schema().invalidate(db.ID);
   }
 
   /**
@@ -157,16 +292,57 @@ public class PojoDatabase extends UnionDatabase implements Config {
    */
   @Override
   public Table getSchema(String ID) throws Exception {
-    for (Database m : getDatabases())
-      if (((AbstractDatabase) m).tables != null)
-        for (Table s : ((AbstractDatabase) m).tables.values()) {
-          // may be called with a table ID or a column ID
-          if (ID.equals(s.ID))
-            return s;
-          if (ID.startsWith(s.ID + "/"))
-            return s;
-        }
-    return null;
+    // may be called with a table ID or a column ID
+    String[] parts = ID.split("/");
+    if (parts.length < 3)
+      return null;
+    return schema(parts[0] + "/" + parts[1]).get(parts[0] + "/" + parts[1] + "/" + parts[2]);
+  }
+
+  /**
+   * tables of the database by table ID (see SchemaIndex)
+   */
+  Map<String, Table> schema(String id) throws Exception {
+    return index(id).tables;
+  }
+
+  /**
+   * compiled all tables ACL checks of the database (see SchemaIndex). Null if there is no database
+   * with this ID
+   */
+  ACLContainerRequestFilter.CompiledACL acl(String id) throws Exception {
+    return index(id).acl;
+  }
+
+  /**
+   * reverse foreign key index of the database (see SchemaIndex). Null if there is no database with
+   * this ID
+   */
+  public Map<String, List<AbstractDatabase.Reference>> referenceIndex(String id)
+      throws Exception {
+    return index(id).references;
+  }
+
+  Schema index(String id) throws Exception {
+    SchemaIndex index = schema();
+    long changes = index.changes(id);
+    Schema res = index.databases.get(id);
+    if (res != null && res.changes == changes)
+      return res;
+
+    res = new Schema();
+    res.changes = changes;
+    res.tables = new HashMap<>();
+    AbstractDatabase db = get("dj-database", id, AbstractDatabase.class);
+    if (db != null && db.tables != null) {
+      for (Table s : db.tables.values())
+        if (s.ID != null)
+          res.tables.put(s.ID, s);
+      res.acl = new ACLContainerRequestFilter.CompiledACL(db);
+      res.references = AbstractDatabase.references(db.tables);
+    }
+    index.databases.put(id, res);
+    return res;
   }
 
   /**
@@ -248,9 +424,9 @@ public class PojoDatabase extends UnionDatabase implements Config {
   @Override
   public Map<String, Object> read(Table s, Map<String, Object> search) throws Exception {
     if (s.name.equals("Table")) {
-      QueryMeta info = new QueryMeta();
-      info.query = "dj-database";
-      for (Map<String, Object> i : query(info, null)) {
+      // only the database the table ID points to can contain the table
+      Map<String, Object> i = readDatabaseOf(search);
+      if (i != null) {
         @SuppressWarnings("unchecked")
         Map<String, Map<String, Object>> tables =
             (Map<String, Map<String, Object>>) i.get("tables");
@@ -263,9 +439,8 @@ public class PojoDatabase extends UnionDatabase implements Config {
       }
     }
     if (s.name.equals("Property")) {
-      QueryMeta info = new QueryMeta();
-      info.query = "dj-database";
-      for (Map<String, Object> i : query(info, null)) {
+      Map<String, Object> i = readDatabaseOf(search);
+      if (i != null) {
         @SuppressWarnings("unchecked")
         Map<String, Map<String, Object>> tables =
             (Map<String, Map<String, Object>>) i.get("tables");
@@ -287,6 +462,16 @@ public class PojoDatabase extends UnionDatabase implements Config {
     return res;
   }
 
+  /**
+   * reads the dj-database object containing the table or property ID in search
+   */
+  Map<String, Object> readDatabaseOf(Map<String, Object> search) throws Exception {
+    String[] parts = ("" + search.get("ID")).split("/");
+    if (parts.length < 3)
+      return null;
+    return super.read(Table.ofName("dj-database"), of("ID", parts[0] + "/" + parts[1]));
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public List<Map<String, Object>> query(QueryMeta qi, Map<String, Object> arguments)
@@ -295,6 +480,9 @@ public class PojoDatabase extends UnionDatabase implements Config {
     if (qi.query.equals("dj-query-performance"))
       return new PerformanceDatabase().query(qi, arguments);
 
+    if (qi.query.equals("dj-pool-performance"))
+      return new PoolPerformanceDatabase().query(qi, arguments);
+
     // custom queries are possible by implementing this signature and using the ConfigQuery
     // annotation
     for (Method m : getClass().getMethods()) {
@@ -417,19 +605,14 @@ public class PojoDatabase extends UnionDatabase implements Config {
       Map<String, Object> db =
           user().read(Table.ofName("dj-database"), of("ID", parts[0] + "/" + parts[1]));
 
-      // create if it does not yet exist in user DB
-      if (db == null) {
+      // create if it does not yet exist in user DB (written below)
+      boolean exists = db != null;
+      if (db == null)
         db = MapUtil.of("ID", parts[0] + "/" + parts[1]);
-        user().create(Table.ofName("dj-database"), db);
-      }
 
       // create tables if not there
-      if (!db.containsKey("tables")) {
+      if (!db.containsKey("tables"))
         db.put("tables", MapUtil.of());
-        user().update(Table.ofName("dj-database"), MapUtil.of("ID", db.get("ID")),
-            MapUtil.of("tables", MapUtil.of()));
-        // user().create(Table.ofName("dj-database"), db);
-      }
 
       // create table key
       Map<String, Object> tables = (Map<String, Object>) db.get("tables");
@@ -450,11 +633,17 @@ public class PojoDatabase extends UnionDatabase implements Config {
       if (tables.isEmpty())
         db.remove("tables");
 
-      if (db.size() == 1)
-        user().delete(Table.ofName("dj-database"), of("ID", parts[0] + "/" + parts[1]));
-      else
+      // single write
+      if (db.size() == 1) {
+        if (exists)
+          user().delete(Table.ofName("dj-database"), of("ID", parts[0] + "/" + parts[1]));
+      } else if (exists)
         user().update(Table.ofName("dj-database"), of("ID", parts[0] + "/" + parts[1]),
             MapUtil.of("tables", tables.isEmpty() ? null : tables));
+      else
+        user().create(Table.ofName("dj-database"), db);
+      schema().invalidate(parts[0] + "/" + parts[1]);
+      publish(schema.name, search.get("ID"));
       return true;
     }
     if (schema.name.equals("Property")) {
@@ -469,11 +658,10 @@ public class PojoDatabase extends UnionDatabase implements Config {
       Map<String, Object> db =
           user().read(Table.ofName("dj-database"), of("ID", parts[0] + "/" + parts[1]));
 
-      // create if it does not yet exist in user DB
-      if (db == null) {
+      // create if it does not yet exist in user DB (written below)
+      boolean exists = db != null;
+      if (db == null)
         db = MapUtil.of("ID", parts[0] + "/" + parts[1]);
-        user().create(Table.ofName("dj-database"), db);
-      }
 
       // create tables if not there
       if (!db.containsKey("tables"))
@@ -515,11 +703,17 @@ public class PojoDatabase extends UnionDatabase implements Config {
       if (tables.isEmpty())
         db.remove("tables");
 
-      if (db.size() == 1)
-        user().delete(Table.ofName("dj-database"), of("ID", parts[0] + "/" + parts[1]));
-      else
+      // single write
+      if (db.size() == 1) {
+        if (exists)
+          user().delete(Table.ofName("dj-database"), of("ID", parts[0] + "/" + parts[1]));
+      } else if (exists)
         user().update(Table.ofName("dj-database"), of("ID", parts[0] + "/" + parts[1]),
             MapUtil.of("tables", tables.isEmpty() ? null : tables));
+      else
+        user().create(Table.ofName("dj-database"), db);
+      schema().invalidate(parts[0] + "/" + parts[1]);
+      publish(schema.name, search.get("ID"));
       return true;
     }
 
@@ -535,6 +729,9 @@ public class PojoDatabase extends UnionDatabase implements Config {
         removeCache(id);
         metadataCollection(getDatabase(id));
       }
+      if (schema.name.equals("dj-config"))
+        reloadConfigSnapshot();
+      publish(schema.name, id);
       return true;
     }
     return false;
@@ -564,6 +761,9 @@ public class PojoDatabase extends UnionDatabase implements Config {
     super.create(m, object);
     if (m.name.equals("dj-database"))
       metadataCollection(getDatabase((String) object.get("ID")));
+    if (m.name.equals("dj-config"))
+      reloadConfigSnapshot();
+    publish(m.name, object.get("ID"));
   }
 
   /**
@@ -584,6 +784,8 @@ public class PojoDatabase extends UnionDatabase implements Config {
         tables.remove(parts[2]);
         user().update(Table.ofName("dj-database"), of("ID", parts[0] + "/" + parts[1]),
             MapUtil.of("tables", tables.isEmpty() ? null : tables));
+        schema().invalidate(parts[0] + "/" + parts[1]);
+        publish(schema.name, search.get("ID"));
       }
       return true;
     }
@@ -619,6 +821,8 @@ public class PojoDatabase extends UnionDatabase implements Config {
 
           user().update(Table.ofName("dj-database"), of("ID", parts[0] + "/" + parts[1]),
               MapUtil.of("tables", tables.isEmpty() ? null : tables));
+          schema().invalidate(parts[0] + "/" + parts[1]);
+          publish(schema.name, search.get("ID"));
         }
         return true;
       } else
@@ -630,7 +834,14 @@ public class PojoDatabase extends UnionDatabase implements Config {
       if (read(schema, search) != null)
         removeCache(id);
 
-    return super.delete(schema, search);
+    boolean res = super.delete(schema, search);
+    if (schema.name.equals("dj-database"))
+      schema().invalidate(id);
+    if (schema.name.equals("dj-config"))
+      reloadConfigSnapshot();
+    if (res)
+      publish(schema.name, id);
+    return res;
   }
 
   /**
@@ -649,9 +860,12 @@ public class PojoDatabase extends UnionDatabase implements Config {
       if (p instanceof ProviderDatabase)
         if (((ProviderDatabase) p).ID.equals(id))
           toDel = p;
-    if (toDel != null)
+    if (toDel != null) {
       dbs().remove(toDel);
+      JSONDatabase.writes.incrementAndGet();
+    }
     cache().remove(id);
+    schema().invalidate(id);
   }
 
   /**
@@ -1039,21 +1253,85 @@ public class PojoDatabase extends UnionDatabase implements Config {
     metadataCollection(getDatabase(id));
   }
 
+  /**
+   * default number of databases whose metadata is collected concurrently
+   */
+  static int METADATA_THREADS = 8;
+
+  /**
+   * default time metadataCollection waits for each database
+   */
+  static long METADATA_TIMEOUT_MS = 60000;
+
+  /**
+   * revalidates the metadata snapshots in the background
+   */
+  static final ExecutorService snapshotExecutor = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder().setNameFormat("dj-metadata-snapshot").setDaemon(true).build());
+
+  /**
+   * collects the metadata of all databases concurrently. The timeout applies to each database, so
+   * one slow database does not cut short the wait for the next one. Databases that are not done
+   * after the timeout continue in the background, their status changes from "connecting..." to
+   * "OK" when they are done. Databases that support it are started from the metadata snapshot of
+   * the previous run
+   */
   @Override
   public void metadataCollection() {
+    List<AbstractDatabase> dbs;
     try {
-      for (Database db : getDatabases()) {
-        metadataCollection(db);
-      }
+      dbs = getDatabases();
     } catch (Exception e) {
       // thrown by getDatabase, something is very wrong
       throw new RuntimeException(e);
     }
+
+    int threads = ConfigProvider.getConfig()
+        .getOptionalValue("dashjoin.metadata.threads", Integer.class).orElse(METADATA_THREADS);
+    long timeout = ConfigProvider.getConfig()
+        .getOptionalValue("dashjoin.metadata.timeout-ms", Long.class).orElse(METADATA_TIMEOUT_MS);
+    boolean snapshot = ConfigProvider.getConfig()
+        .getOptionalValue("dashjoin.metadata.snapshot", Boolean.class).orElse(true);
+
+    if (threads <= 1 || dbs.size() <= 1) {
+      for (Database db : dbs)
+        metadataCollection(db, snapshot);
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, dbs.size()),
+        new ThreadFactoryBuilder().setNameFormat("dj-metadata-%d").setDaemon(true).build());
+    Map<String, Future<?>> running = new LinkedHashMap<>();
+    for (AbstractDatabase db : dbs)
+      if (db != null)
+        running.put(db.ID, executor.submit(() -> metadataCollection(db, snapshot)));
+    // threads terminate once the last database is done
+    executor.shutdown();
+
+    for (Entry<String, Future<?>> e : running.entrySet())
+      try {
+        e.getValue().get(timeout, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException ex) {
+        logger.warning("Metadata collection continues in the background: " + e.getKey());
+      } catch (ExecutionException ex) {
+        // metadataCollection(db) logs and ignores errors
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      }
   }
 
   void metadataCollection(Database db) {
+    metadataCollection(db, false);
+  }
+
+  /**
+   * collect the metadata. If snapshot is true, the DB is started from its metadata snapshot if
+   * there is one
+   */
+  void metadataCollection(Database db, boolean snapshot) {
     try {
-      metadataCollectionEx(db);
+      metadataCollectionEx(db, snapshot);
     } catch (Exception e) {
       // log but ignore
       logger.warning("Ignoring metadata collection error: " + e);
@@ -1062,8 +1340,11 @@ public class PojoDatabase extends UnionDatabase implements Config {
     }
   }
 
-  @SuppressWarnings("unchecked")
   void metadataCollectionEx(Database db) throws Exception {
+    metadataCollectionEx(db, false);
+  }
+
+  void metadataCollectionEx(Database db, boolean snapshot) throws Exception {
     // Ignore null DBs - only happens when i.e. DB class was removed/renamed
     if (db == null)
       return;
@@ -1075,40 +1356,102 @@ public class PojoDatabase extends UnionDatabase implements Config {
       return;
 
     putCache(a.ID, a);
-    Map<String, Object> database = Maps.newHashMap(of("status", "connecting...", "tables", of()));
+    // status and tables are updated by the metadata collection threads
+    Map<String, Object> database =
+        new ConcurrentHashMap<>(of("status", "connecting...", "tables", of()));
     ProviderDatabase provider = new ProviderDatabase(a.ID, of("dj-database", of(a.ID, database)));
     this.addDB(provider);
 
     try {
-      Map<String, Object> meta = a.connectAndCollectMetadata();
-
-      for (String key : new HashSet<>(meta.keySet())) {
-        Map<String, Object> table = (Map<String, Object>) meta.get(key);
-        if (((String) table.get("ID")).split("/").length != 3) {
-          meta.remove(key);
-          logger.warning("ignoring unescaped table: " + key);
-        } else {
-          Map<String, Object> properties = (Map<String, Object>) table.get("properties");
-          if (properties != null)
-            for (String p : new HashSet<>(properties.keySet())) {
-              Map<String, Object> property = (Map<String, Object>) properties.get(p);
-              if (((String) property.get("ID")).split("/").length != 4) {
-                properties.remove(p);
-                logger.warning("ignoring unescaped property: " + p);
-              }
-            }
-        }
+      MetadataSnapshot saved = snapshot ? MetadataSnapshot.load(a) : null;
+      if (saved != null && a.connect()) {
+        provide(a.ID, database, "tables", saved.tables);
+        provide(a.ID, database, "status", "OK");
+        snapshotExecutor.submit(() -> revalidate(a, saved.fingerprint, database));
+        return;
       }
 
+      Map<String, Object> meta = a.connectAndCollectMetadata();
+      validate(meta);
+
       if (meta != null)
-        database.put("tables", meta);
-      database.put("status", "OK");
+        provide(a.ID, database, "tables", meta);
+      provide(a.ID, database, "status", "OK");
+
+      if (snapshot) {
+        String fingerprint = a.fingerprint();
+        if (fingerprint != null)
+          MetadataSnapshot.save(a, fingerprint, meta);
+      } else
+        // explicit refresh, make sure the next start does not pick up an outdated snapshot
+        MetadataSnapshot.delete(a);
     } catch (Exception e) {
-      database.put("status", "Error: " + ExMapper.getMessage(e));
+      provide(a.ID, database, "status", "Error: " + ExMapper.getMessage(e));
       throw e;
     }
   }
 
+  /**
+   * sets a field of the dj-database object provided by the metadata collection
+   */
+  void provide(String id, Map<String, Object> database, String key, Object value) {
+    database.put(key, value);
+    JSONDatabase.writes.incrementAndGet();
+    schema().invalidate(id);
+    if ("tables".equals(key))
+      try {
+        // index the new metadata now rather than on the first request
+        index(id);
+      } catch (Exception e) {
+        logger.log(Level.FINE, "Error indexing " + id, e);
+      }
+  }
+
+  /**
+   * collects the metadata of a database that was started from a snapshot if its fingerprint
+   * changed
+   */
+  void revalidate(AbstractDatabase a, String fingerprint, Map<String, Object> database) {
+    try {
+      String current = a.fingerprint();
+      if (fingerprint.equals(current))
+        return;
+      logger.info("Schema changed, collecting metadata: " + a.ID);
+      Map<String, Object> meta = a.connectAndCollectMetadata();
+      validate(meta);
+      provide(a.ID, database, "tables", meta);
+      if (current != null)
+        MetadataSnapshot.save(a, current, meta);
+    } catch (Exception e) {
+      provide(a.ID, database, "status", "Error: " + ExMapper.getMessage(e));
+      logger.log(Level.WARNING, "Error revalidating metadata snapshot: " + a.ID, e);
+    }
+  }
+
+  /**
+   * remove tables and properties with unescaped IDs
+   */
+  @SuppressWarnings("unchecked")
+  static void validate(Map<String, Object> meta) {
+    for (String key : new HashSet<>(meta.keySet())) {
+      Map<String, Object> table = (Map<String, Object>) meta.get(key);
+      if (((String) table.get("ID")).split("/").length != 3) {
+        meta.remove(key);
+        logger.warning("ignoring unescaped table: " + key);
+      } else {
+        Map<String, Object> properties = (Map<String, Object>) table.get("properties");
+        if (properties != null)
+          for (String p : new HashSet<>(properties.keySet())) {
+            Map<String, Object> property = (Map<String, Object>) properties.get(p);
+            if (((String) property.get("ID")).split("/").length != 4) {
+              properties.remove(p);
+              logger.warning("ignoring unescaped property: " + p);
+            }
+          }
+      }
+    }
+  }
+
   @Override
   public AbstractDatabase getCached(String id) {
     return cache().get(id);
@@ -1132,55 +1475,33 @@ public class PojoDatabase extends UnionDatabase implements Config {
 
   @Override
   public Integer getAutocompleteTimeoutMs() {
-    return getIntConfig("autocomplete-timeout-ms");
+    return getConfigSnapshot().autocompleteTimeoutMs;
   }
 
   @Override
-  public Integer getSearchTimeoutMs() {
-    return getIntConfig("search-timeout-ms");
+  public Integer getAutocompleteIndexRows() {
+    return getConfigSnapshot().autocompleteIndexRows;
   }
 
   @Override
-  public Integer getAllTimeoutMs() {
-    return getIntConfig("all-timeout-ms");
+  public Integer getSearchTimeoutMs() {
+    return getConfigSnapshot().searchTimeoutMs;
   }
 
-  Integer getIntConfig(String s) {
-    Map<String, Object> res;
-    try {
-      res = read(Table.ofName("dj-config"), MapUtil.of("ID", s));
-    } catch (Exception e) {
-      return null;
-    }
-    Integer value = res == null ? null : (Integer) res.get("integer");
-    if (value != null) {
-      if (value <= 0)
-        return null;
-    }
-    return null;
+  @Override
+  public Integer getAllTimeoutMs() {
+    return getConfigSnapshot().allTimeoutMs;
   }
 
   @Override
   public boolean excludeFromSearch(AbstractDatabase db) throws Exception {
-    Map<String, Object> res =
-        read(Table.ofName("dj-config"), MapUtil.of("ID", "exclude-database-from-search"));
-    @SuppressWarnings("unchecked")
-    List<String> value = res == null ? null : (List<String>) res.get("list");
-    if (value == null)
-      return false;
-    return value.contains(db.name);
+    return getConfigSnapshot().excludeDatabaseFromSearch.contains(db.name);
   }
 
   @Override
   public Collection<Table> searchTables(AbstractDatabase db) throws Exception {
-    Map<String, Object> res =
-        read(Table.ofName("dj-config"), MapUtil.of("ID", "exclude-table-from-search"));
-
-    if (res == null)
-      return db.tables.values();
-    @SuppressWarnings("unchecked")
-    List<String> excludeTable = (List<String>) res.get("list");
-    if (excludeTable == null)
+    Set<String> excludeTable = getConfigSnapshot().excludeTableFromSearch;
+    if (excludeTable.isEmpty())
       return db.tables.values();
 
     List<Table> list = new ArrayList<>();
@@ -1192,13 +1513,7 @@ public class PojoDatabase extends UnionDatabase implements Config {
 
   @Override
   public String databaseSearchQuery(AbstractDatabase db) throws Exception {
-    Map<String, Object> res =
-        read(Table.ofName("dj-config"), MapUtil.of("ID", "database-search-query"));
-    @SuppressWarnings("unchecked")
-    Map<String, String> value = res == null ? null : (Map<String, String>) res.get("map");
-    if (value == null)
-      return null;
-    return value.get(db.name);
+    return getConfigSnapshot().databaseSearchQuery.get(db.name);
   }
 
   @Override
@@ -0,0 +1,158 @@
+package org.dashjoin.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.dashjoin.model.QueryMeta;
+import org.dashjoin.model.Table;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * In memory connection pool statistics of the SQL databases. Like PerformanceDatabase, the info is
+ * local to a single cluster node. This DB serves queries to config/dj-pool-performance
+ */
+public class PoolPerformanceDatabase extends JSONDatabase {
+
+  /**
+   * upper bounds of the wait time histogram buckets in millisecs
+   */
+  static final long[] BUCKETS = {1, 10, 100, 1000};
+
+  /**
+   * pool statistics entry (one row in the dj-pool-performance table)
+   */
+  public static class PoolPerformance {
+
+    public PoolPerformance(String id, BasicDataSource pool) {
+      this.ID = id;
+      this.pool = pool;
+    }
+
+    @JsonIgnore
+    BasicDataSource pool;
+
+    /**
+     * database ID / also the PK
+     */
+    public String ID;
+
+    AtomicLong borrows = new AtomicLong();
+
+    AtomicLong timeouts = new AtomicLong();
+
+    AtomicLong totalWaitMs = new AtomicLong();
+
+    AtomicLong maxWaitMs = new AtomicLong();
+
+    AtomicLongArray histogram = new AtomicLongArray(BUCKETS.length + 1);
+
+    /**
+     * connections currently borrowed
+     */
+    public int getActive() {
+      return pool.getNumActive();
+    }
+
+    /**
+     * connections currently idle in the pool
+     */
+    public int getIdle() {
+      return pool.getNumIdle();
+    }
+
+    /**
+     * configured pool size
+     */
+    public int getMaxTotal() {
+      return pool.getMaxTotal();
+    }
+
+    /**
+     * number of connections borrowed
+     */
+    public long getBorrows() {
+      return borrows.get();
+    }
+
+    /**
+     * number of borrow attempts that timed out waiting for a connection
+     */
+    public long getTimeouts() {
+      return timeouts.get();
+    }
+
+    /**
+     * longest time a borrow waited for a connection
+     */
+    public long getMaxWaitMs() {
+      return maxWaitMs.get();
+    }
+
+    /**
+     * computed average wait time
+     */
+    public long getAverageWaitMs() {
+      long count = borrows.get() + timeouts.get();
+      return count == 0 ? 0 : totalWaitMs.get() / count;
+    }
+
+    /**
+     * number of borrows by wait time bucket
+     */
+    public Map<String, Long> getWaitHistogram() {
+      Map<String, Long> res = new LinkedHashMap<>();
+      for (int i = 0; i < BUCKETS.length; i++)
+        res.put("<" + BUCKETS[i] + "ms", histogram.get(i));
+      res.put(">=" + BUCKETS[BUCKETS.length - 1] + "ms", histogram.get(BUCKETS.length));
+      return res;
+    }
+
+    public void add(long waitMs, boolean timeout) {
+      if (timeout)
+        timeouts.incrementAndGet();
+      else
+        borrows.incrementAndGet();
+      totalWaitMs.addAndGet(waitMs);
+      maxWaitMs.accumulateAndGet(waitMs, Math::max);
+      int bucket = 0;
+      while (bucket < BUCKETS.length && waitMs >= BUCKETS[bucket])
+        bucket++;
+      histogram.incrementAndGet(bucket);
+    }
+  }
+
+  /**
+   * statistics by database ID
+   */
+  static Map<String, PoolPerformance> pools = new ConcurrentHashMap<>();
+
+  @Override
+  public Map<String, Object> read(Table s, Map<String, Object> search) throws Exception {
+    return PerformanceDatabase.objectMapper.convertValue(pools.get(search.get("ID")),
+        JSONDatabase.tr);
+  }
+
+  @Override
+  public Map<String, Map<String, Object>> queryMap(QueryMeta info, Map<String, Object> arguments)
+      throws Exception {
+    return PerformanceDatabase.objectMapper.convertValue(pools, JSONDatabase.trr);
+  }
+
+  /**
+   * returns the statistics of the pool, statistics of a previous pool of the database are reset
+   */
+  public static PoolPerformance get(String id, BasicDataSource pool) {
+    return pools.compute(id,
+        (k, v) -> v != null && v.pool == pool ? v : new PoolPerformance(id, pool));
+  }
+
+  /**
+   * called when the pool is closed
+   */
+  public static void remove(String id, BasicDataSource pool) {
+    pools.computeIfPresent(id, (k, v) -> v.pool == pool ? null : v);
+  }
+}
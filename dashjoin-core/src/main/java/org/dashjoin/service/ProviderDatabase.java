@@ -60,6 +60,14 @@ public class ProviderDatabase extends JSONDatabase {
     return table.get(search.get("ID"));
   }
 
+  /**
+   * changes of the provided data are counted in JSONDatabase.writes (see PojoDatabase.provide)
+   */
+  @Override
+  public Object version(Table s, Map<String, Object> search) throws Exception {
+    return "";
+  }
+
   @SuppressWarnings("unchecked")
   Map<String, Map<String, Object>> dataget(String key) {
     return (Map<String, Map<String, Object>>) clone(data.get(key));
@@ -53,10 +53,11 @@ public interface QueryEditor {
             c.prop = t.properties.get(parts[3]);
         }
 
+      // SQL pushes the limit into the query, other editors might return more rows
       if (res.limit == null)
-        res.limit = 1000;
-      while (res.data.size() > res.limit)
-        res.data.remove(res.data.size() - 1);
+        res.limit = QueryEditorInternal.DEFAULT_LIMIT;
+      if (res.data.size() > res.limit)
+        res.data.subList(res.limit, res.data.size()).clear();
       return res;
     }
 
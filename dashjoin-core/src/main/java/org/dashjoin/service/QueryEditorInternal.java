@@ -24,6 +24,11 @@ import org.dashjoin.service.QueryEditor.SortRequest;
  */
 public interface QueryEditorInternal {
 
+  /**
+   * number of result rows returned if the request does not specify a limit
+   */
+  public static final int DEFAULT_LIMIT = 1000;
+
   public QueryResponse rename(RenameRequest ac) throws Exception;
 
   public QueryResponse distinct(DistinctRequest ac) throws Exception;
@@ -7,8 +7,10 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import jakarta.ws.rs.WebApplicationException;
-import org.dashjoin.function.RestJson;
+import org.dashjoin.function.Doc2data;
 import org.dashjoin.model.AbstractDatabase;
 import org.dashjoin.model.JsonSchema;
 import org.dashjoin.model.Property;
@@ -27,6 +29,12 @@ import org.dashjoin.service.QueryEditor.SortRequest;
 import org.dashjoin.service.ddl.SchemaChange;
 import org.dashjoin.util.MapUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import okhttp3.Credentials;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
 
 /**
  * Client for remote databases
@@ -37,6 +45,8 @@ public class RemoteDatabase extends AbstractDatabase {
 
   private static final ObjectMapper objectMapper = new ObjectMapper();
 
+  private static final MediaType JSON = MediaType.get("application/json");
+
   /**
    * service URL
    */
@@ -56,28 +66,126 @@ public class RemoteDatabase extends AbstractDatabase {
   public String password;
 
   /**
-   * uses RestJson to communicate with the server. In case a "Schema not set" error is detected,
-   * setSchema is called and the call is repeated
+   * request header with the version of the schema the client expects. The server rejects the call
+   * with status 572 if it holds a different version
+   */
+  public static final String SCHEMA_VERSION = "X-Schema-Version";
+
+  /**
+   * schema and its version
+   */
+  static class SchemaVersion {
+
+    SchemaVersion(long changes, Map<String, Table> tables) throws Exception {
+      this.changes = changes;
+      this.tables = tables;
+      this.version = version(tables);
+    }
+
+    /**
+     * change count of the schema index the version was computed for
+     */
+    final long changes;
+
+    final Map<String, Table> tables;
+
+    final String version;
+  }
+
+  /**
+   * url and ID of the remote databases mapped to the schema version they received via setSchema
+   */
+  static final Map<String, SchemaVersion> schemaSent = new ConcurrentHashMap<>();
+
+  /**
+   * POSTs to the server. The schema is sent first if the server does not have the current version
+   * yet. Each call carries the version, so a server holding another version (e.g. sent by another
+   * node or lost in a restart) rejects the call with status 572, in which case setSchema is called
+   * and the call is repeated
    */
   Object call(String method, Object arguments) throws Exception {
-    RestJson client = new RestJson();
-    client.url = url + "/" + method;
-    client.username = username;
-    client.password = password;
-    client.method = "POST";
-    client.contentType = "application/json";
-    client.headers = MapUtil.of("Accept", "application/json");
+    String key = url + " " + ID;
+    long changes = changes();
+    SchemaVersion sent = schemaSent.get(key);
+    if (sent == null || sent.changes != changes || changes < 0) {
+      // the schema might have changed, the version is only computed in this case
+      SchemaVersion current = new SchemaVersion(changes, tables());
+      if (sent == null || !sent.version.equals(current.version))
+        setSchema(key, current);
+      else
+        schemaSent.put(key, current);
+      sent = current;
+    }
     try {
-      return client.run(arguments);
+      return post(method, arguments, sent.version);
     } catch (WebApplicationException e) {
       if (e.getResponse().getStatus() == 572) {
-        call("setSchema/" + e(ID), services.getConfig().getDatabase(ID).tables);
-        return client.run(arguments);
+        setSchema(key, sent);
+        return post(method, arguments, sent.version);
       } else
         throw e;
     }
   }
 
+  void setSchema(String key, SchemaVersion schema) throws Exception {
+    post("setSchema/" + e(ID) + "?version=" + schema.version, schema.tables);
+    schemaSent.put(key, schema);
+  }
+
+  /**
+   * number of changes to the schema of this database (-1 if the config does not track them)
+   */
+  protected long changes() {
+    Config config = config();
+    return config instanceof PojoDatabase ? ((PojoDatabase) config).schema().changes(ID) : -1;
+  }
+
+  protected Map<String, Table> tables() throws Exception {
+    return config().getDatabase(ID).tables;
+  }
+
+  /**
+   * checksum of the schema
+   */
+  static String version(Map<String, Table> tables) throws Exception {
+    return Hashing.sha256().hashBytes(objectMapper.writeValueAsBytes(tables)).toString();
+  }
+
+  Object post(String method, Object arguments) throws Exception {
+    return post(method, arguments, null);
+  }
+
+  /**
+   * POSTs the arguments as JSON via the shared HTTP client (which keeps the connections to the
+   * server open)
+   */
+  Object post(String method, Object arguments, String version) throws Exception {
+    Request.Builder request = new Request.Builder().url(url + "/" + method)
+        .header("Accept", "application/json")
+        .post(RequestBody.create(JSON, objectMapper.writeValueAsBytes(arguments)));
+    if (version != null)
+      request = request.header(SCHEMA_VERSION, version);
+    if (username != null)
+      request = request.header("Authorization", Credentials.basic(username, "" + password()));
+    try (Response response = Doc2data.getHttpClient().newCall(request.build()).execute()) {
+      String body = response.body().string();
+      if (response.code() >= 400) {
+        try {
+          body = (String) objectMapper.readValue(body, Map.class).get("details");
+        } catch (Exception e) {
+          // ignore and keep the body
+        }
+        throw new WebApplicationException(
+            jakarta.ws.rs.core.Response.status(response.code()).entity(body).build());
+      }
+      if (body.isEmpty())
+        return "";
+      if (body.trim().startsWith("{") || body.trim().startsWith("["))
+        return objectMapper.readValue(body, Object.class);
+      return body;
+    }
+  }
+
   @Override
   public List<Map<String, Object>> query(QueryMeta info, Map<String, Object> arguments)
       throws Exception {
@@ -122,6 +230,54 @@ public class RemoteDatabase extends AbstractDatabase {
     object.putAll((Map<String, Object>) call("create/" + e(m.name), object));
   }
 
+  /**
+   * servers that do not provide the batch endpoint (older SDK versions)
+   */
+  static final Set<String> noBatch = ConcurrentHashMap.newKeySet();
+
+  /**
+   * sends the bulk operation in a single request. Returns null if the server does not support
+   * batches, in which case the caller falls back to one request per record
+   */
+  List<Map<String, Object>> batch(Table m, String method, List<Map<String, Object>> objects)
+      throws Exception {
+    if (noBatch.contains(url))
+      return null;
+    try {
+      return (List<Map<String, Object>>) call("batch/" + e(m.name),
+          MapUtil.of("method", method, "objects", objects));
+    } catch (WebApplicationException e) {
+      if (e.getResponse().getStatus() != 404)
+        throw e;
+      noBatch.add(url);
+      return null;
+    }
+  }
+
+  @Override
+  public void create(Table m, List<Map<String, Object>> objects) throws Exception {
+    List<Map<String, Object>> res = batch(m, "create", objects);
+    if (res == null) {
+      super.create(m, objects);
+      return;
+    }
+    // pick up generated keys
+    for (int i = 0; i < objects.size(); i++)
+      objects.get(i).putAll(res.get(i));
+  }
+
+  @Override
+  public void merge(Table m, List<Map<String, Object>> objects) throws Exception {
+    if (batch(m, "merge", objects) == null)
+      super.merge(m, objects);
+  }
+
+  @Override
+  public void delete(Table s, List<Map<String, Object>> searches) throws Exception {
+    if (batch(s, "delete", searches) == null)
+      super.delete(s, searches);
+  }
+
   @Override
   public Map<String, Object> read(Table s, Map<String, Object> search) throws Exception {
     return (Map<String, Object>) call("read/" + e(s.name), search);
@@ -146,12 +302,15 @@ public class RemoteDatabase extends AbstractDatabase {
 
   @Override
   public Map<String, Object> connectAndCollectMetadata() throws Exception {
-    return (Map<String, Object>) call("connectAndCollectMetadata/" + e(ID), null);
+    // resets the schema on the server
+    schemaSent.remove(url + " " + ID);
+    return (Map<String, Object>) post("connectAndCollectMetadata/" + e(ID), null);
   }
 
   @Override
   public void close() throws Exception {
     call("close", null);
+    schemaSent.remove(url + " " + ID);
   }
 
   @Override
@@ -29,7 +29,9 @@ import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
 import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
@@ -39,6 +41,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.UUID;
 import java.util.regex.Matcher;
@@ -47,11 +50,13 @@ import jakarta.ws.rs.NotAuthorizedException;
 import jakarta.ws.rs.core.SecurityContext;
 import org.apache.commons.dbcp2.BasicDataSource;
 import org.dashjoin.model.AbstractDatabase;
+import org.dashjoin.model.AbstractDatabase.Reference;
 import org.dashjoin.model.JsonSchema;
 import org.dashjoin.model.Property;
 import org.dashjoin.model.QueryMeta;
 import org.dashjoin.model.Table;
 import org.dashjoin.service.Data.Choice;
+import org.dashjoin.service.Data.Origin;
 import org.dashjoin.service.Data.Resource;
 import org.dashjoin.service.Data.SearchResult;
 import org.dashjoin.service.QueryEditor.Col;
@@ -68,6 +73,8 @@ import org.postgresql.jdbc.PgArray;
 import org.postgresql.util.PGobject;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.extern.java.Log;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.Function;
@@ -130,11 +137,81 @@ public class SQLDatabase extends AbstractDatabase {
    */
   public List<String> excludeTables;
 
+  /**
+   * max number of pooled connections (defaults to 8)
+   */
+  @JsonSchema(title = "Connection pool size")
+  public Integer maxTotal;
+
+  /**
+   * max number of idle connections kept in the pool (defaults to 8)
+   */
+  @JsonSchema(title = "Max idle connections")
+  public Integer maxIdle;
+
+  /**
+   * min number of idle connections kept in the pool (defaults to 0)
+   */
+  @JsonSchema(title = "Min idle connections")
+  public Integer minIdle;
+
+  /**
+   * time to wait for a free connection before failing (defaults to waiting indefinitely)
+   */
+  @JsonSchema(title = "Max wait for a connection (ms)")
+  public Long maxWaitMs;
+
+  /**
+   * if true, prepared statements are cached per connection
+   */
+  @JsonSchema(title = "Pool prepared statements")
+  public Boolean poolPreparedStatements;
+
+  /**
+   * max number of cached prepared statements per connection (defaults to unlimited)
+   */
+  @JsonSchema(title = "Prepared statement cache size")
+  public Integer maxOpenPreparedStatements;
+
+  /**
+   * query used to validate connections
+   */
+  @JsonSchema(title = "Validation query")
+  public String validationQuery;
+
+  /**
+   * if true, connections are validated before they are borrowed
+   */
+  @JsonSchema(title = "Validate connections on borrow")
+  public Boolean testOnBorrow;
+
   /**
    * DB connection pool
    */
   BasicDataSource _cp;
 
+  /**
+   * statistics of the connection pool
+   */
+  PoolPerformanceDatabase.PoolPerformance _stats;
+
+  /**
+   * the cached instance owning the pool. getDatabase returns a fresh pojo on every call, the
+   * instance is resolved on the first getConnection rather than on every call
+   */
+  SQLDatabase _pooled;
+
+  /**
+   * max number of parsed query editor statements kept per database
+   */
+  static int EDITOR_CACHE_SIZE = 100;
+
+  /**
+   * statements parsed by the query editor keyed by the query text (see SQLEditor.parse)
+   */
+  final Cache<String, Statement> editorCache =
+      CacheBuilder.newBuilder().maximumSize(EDITOR_CACHE_SIZE).build();
+
   /**
    * dynamic proxy used to intercept and trace JDBC calls
    */
@@ -196,12 +273,35 @@ public class SQLDatabase extends AbstractDatabase {
   }
 
   public Connection getConnection(QueryMeta meta) throws SQLException {
+    SQLDatabase x = pooled();
+    long start = System.currentTimeMillis();
+    Connection con;
+    try {
+      con = x._cp.getConnection();
+    } catch (SQLException e) {
+      // the pool throws NoSuchElementException if maxWaitMs is exceeded
+      x._stats.add(System.currentTimeMillis() - start,
+          e.getCause() instanceof NoSuchElementException);
+      throw e;
+    }
+    x._stats.add(System.currentTimeMillis() - start, false);
+    return (Connection) Proxy.newProxyInstance(this.getClass().getClassLoader(),
+        new Class[] {Connection.class}, new Aspect(con, meta));
+  }
+
+  /**
+   * returns the cached instance owning the pool
+   */
+  SQLDatabase pooled() throws SQLException {
+    SQLDatabase x = _cp != null ? this : _pooled;
+    if (x != null && !x._cp.isClosed())
+      return x;
     try {
-      SQLDatabase x = services.getConfig().getCachedForce(ID, getClass());
+      x = services.getConfig().getCachedForce(ID, getClass());
       if (x._cp == null)
         throw new Exception("Database not yet initialized: " + ID);
-      return (Connection) Proxy.newProxyInstance(this.getClass().getClassLoader(),
-          new Class[] {Connection.class}, new Aspect(x._cp.getConnection(), meta));
+      _pooled = x;
+      return x;
     } catch (SQLException e) {
       throw e;
     } catch (Exception e) {
@@ -216,6 +316,27 @@ public class SQLDatabase extends AbstractDatabase {
    */
   @Override
   public Map<String, Object> connectAndCollectMetadata() throws Exception {
+    // connection pool is already set up when the DB was started from a metadata snapshot
+    if (_cp == null)
+      connect();
+    try (Connection con = _cp.getConnection()) {
+      Metadata meta = new Metadata(con, url, excludeTables);
+      return meta.getTables(ID);
+    }
+  }
+
+  @Override
+  public String fingerprint() throws Exception {
+    try (Connection con = _cp.getConnection()) {
+      return Metadata.fingerprint(con, url, excludeTables);
+    }
+  }
+
+  /**
+   * sets up the connection pool and runs the init scripts
+   */
+  @Override
+  public boolean connect() throws Exception {
 
     if (url.startsWith("jdbc:mysql"))
       throw new Exception("Please use jdbc:mariadb when connecting to MariaDB or MySQL");
@@ -233,6 +354,22 @@ public class SQLDatabase extends AbstractDatabase {
     if (url.startsWith("jdbc:calcite")) {
       ds.setRollbackOnReturn(false);
     }
+    if (maxTotal != null)
+      ds.setMaxTotal(maxTotal);
+    if (maxIdle != null)
+      ds.setMaxIdle(maxIdle);
+    if (minIdle != null)
+      ds.setMinIdle(minIdle);
+    if (maxWaitMs != null)
+      ds.setMaxWaitMillis(maxWaitMs);
+    if (poolPreparedStatements != null)
+      ds.setPoolPreparedStatements(poolPreparedStatements);
+    if (maxOpenPreparedStatements != null)
+      ds.setMaxOpenPreparedStatements(maxOpenPreparedStatements);
+    if (validationQuery != null)
+      ds.setValidationQuery(validationQuery);
+    if (testOnBorrow != null)
+      ds.setTestOnBorrow(testOnBorrow);
 
     ds.setPassword(password() == null && name.equals("junit") ? password : password());
     if (url.startsWith("jdbc:mariadb"))
@@ -244,10 +381,9 @@ public class SQLDatabase extends AbstractDatabase {
           InputStream ddl = Loader.open(s);
           RunScript.execute(con, new InputStreamReader(ddl, StandardCharsets.UTF_8));
         }
-      Metadata meta = new Metadata(con, url, excludeTables);
-      Map<String, Object> res = meta.getTables(ID);
+      _stats = PoolPerformanceDatabase.get(ID, ds);
       _cp = ds;
-      return res;
+      return true;
     }
   }
 
@@ -346,79 +482,188 @@ public class SQLDatabase extends AbstractDatabase {
    * @return The value of column c, serialized/mangled if required
    * @throws SQLException
    */
-  @SuppressWarnings("unused")
   Object serialize(ResultSetMetaData rsmd, ResultSet res, int c) throws SQLException {
+    return reader(rsmd.getColumnType(c)).read(res, c);
+  }
 
-    final long MAX_BLOB_SIZE = 256 * 1024L;
-    final long MAX_CLOB_SIZE = 64 * 1024L;
+  static final long MAX_BLOB_SIZE = 256 * 1024L;
+  static final long MAX_CLOB_SIZE = 64 * 1024L;
 
-    if (false) { // DEBUG
-      String col = rsmd.getColumnName(c);
-      System.err
-          .println(col + ": " + rsmd.getColumnClassName(c) + " (" + rsmd.getColumnType(c) + ")");
+  /**
+   * reads and serializes a single column of the current row
+   */
+  interface ColumnReader {
+    Object read(ResultSet res, int c) throws SQLException;
+  }
+
+  /**
+   * row reader compiled from the result set metadata once per result set. The row keys and the
+   * column readers are resolved up front, so materializing a row does not call the metadata or
+   * dispatch on the JDBC type per cell
+   */
+  class RowReader {
+
+    /**
+     * row key per column
+     */
+    final String[] keys;
+
+    /**
+     * reader per column
+     */
+    final ColumnReader[] readers;
+
+    /**
+     * initial capacity of the row maps (no rehashing while a row is filled)
+     */
+    final int capacity;
+
+    /**
+     * @param tn if null, rows are keyed by column name, otherwise by label, column or table.column
+     *        as computed by tn
+     */
+    RowReader(ResultSetMetaData m, TableName tn) throws SQLException {
+      int count = m.getColumnCount();
+      keys = new String[count];
+      readers = new ColumnReader[count];
+      capacity = count * 4 / 3 + 1;
+      for (int c = 1; c <= count; c++) {
+        keys[c - 1] = tn == null ? m.getColumnName(c) : key(tn, m, c);
+        readers[c - 1] = reader(m.getColumnType(c));
+      }
     }
 
-    int ty = rsmd.getColumnType(c);
-    Object obj = null;
-
-    if (ty == Types.BINARY) {
-      // BINARY is up to 65535 bytes, so safe to get
-      obj = res.getObject(c);
-    } else if (ty == Types.VARBINARY || ty == Types.LONGVARBINARY || ty == Types.BLOB) {
-      Blob blob = res.getBlob(c);
-      if (blob == null)
-        return null;
-      long len = blob.length();
-      obj = blob.getBytes(1, (int) Math.min(len, MAX_BLOB_SIZE));
-    } else if (ty == Types.CLOB || ty == Types.NCLOB) {
-      Clob clob = res.getClob(c);
-      if (clob == null)
-        return null;
-      long len = clob.length();
-      obj = clob.getSubString(1, (int) Math.min(len, MAX_CLOB_SIZE));
-    } else if (ty == Types.SQLXML) {
-      SQLXML clob = res.getSQLXML(c);
-      if (clob == null)
-        return null;
-      obj = clob.getString();
-    } else {
-      if (url.startsWith("jdbc:sqlite:"))
-        if (ty == Types.DATE)
-          obj = res.getDate(c);
-        else if (ty == Types.TIME)
-          obj = res.getTime(c);
-        else if (ty == Types.TIMESTAMP)
-          obj = res.getTimestamp(c);
-        else
-          obj = res.getObject(c);
-      else
-        obj = res.getObject(c);
-      if (obj instanceof PGobject) {
-        PGobject pg = (PGobject) obj;
-        if ("json".equals(pg.getType()) || "jsonb".equals(pg.getType()))
-          try {
-            obj = om.readValue(pg.getValue(), Object.class);
-          } catch (JsonProcessingException e) {
-            throw new SQLException(e);
-          }
-      } else if (obj instanceof PgArray) {
-        PgArray arr = (PgArray) obj;
-        obj = arr.getArray();
-      } else if (obj instanceof BigDecimal) {
-        // convert to double
-        obj = ((BigDecimal) obj).doubleValue();
-
-        if ((double) obj == Math.round((double) obj)) {
-          // natural number, convert to long
-          obj = Math.round((double) obj);
-
-          // small natural number, conver to int
-          if (Integer.MIN_VALUE < (long) obj && (long) obj < Integer.MAX_VALUE)
-            obj = Math.toIntExact((long) obj);
-        }
+    /**
+     * read the current row
+     */
+    Map<String, Object> read(ResultSet res) throws SQLException {
+      Map<String, Object> row = new LinkedHashMap<>(capacity);
+      for (int c = 0; c < keys.length; c++)
+        row.put(keys[c], readers[c].read(res, c + 1));
+      return row;
+    }
+  }
+
+  /**
+   * row key of query results: the label if the column is renamed, table.column if the table is
+   * known, the column name otherwise
+   */
+  static String key(TableName tn, ResultSetMetaData m, int c) throws SQLException {
+    String display = tn.getColumnLabel(m, c);
+    String column = tn.getColumnName(m, c);
+    String table = tn.getTableName(m, c);
+    if (!column.equals(display))
+      return display;
+    else if (table == null || table.isEmpty())
+      return column;
+    else
+      return table + "." + column;
+  }
+
+  /**
+   * picks the column reader for the JDBC type
+   */
+  ColumnReader reader(int ty) {
+    switch (ty) {
+      case Types.BINARY:
+        // BINARY is up to 65535 bytes, so safe to get
+        return ResultSet::getObject;
+      case Types.VARBINARY:
+      case Types.LONGVARBINARY:
+      case Types.BLOB:
+        return SQLDatabase::readBlob;
+      case Types.CLOB:
+      case Types.NCLOB:
+        return SQLDatabase::readClob;
+      case Types.SQLXML:
+        return SQLDatabase::readXml;
+    }
+    if (url != null && url.startsWith("jdbc:sqlite:"))
+      switch (ty) {
+        case Types.DATE:
+          return ResultSet::getDate;
+        case Types.TIME:
+          return ResultSet::getTime;
+        case Types.TIMESTAMP:
+          return ResultSet::getTimestamp;
       }
+    switch (ty) {
+      // types whose values never need to be mangled
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.LONGVARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.LONGNVARCHAR:
+      case Types.BOOLEAN:
+      case Types.BIT:
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.INTEGER:
+      case Types.BIGINT:
+      case Types.DOUBLE:
+      case Types.DATE:
+      case Types.TIME:
+      case Types.TIMESTAMP:
+      case Types.TIME_WITH_TIMEZONE:
+      case Types.TIMESTAMP_WITH_TIMEZONE:
+        return ResultSet::getObject;
+      default:
+        return (res, c) -> mangle(res.getObject(c));
     }
+  }
 
+  static Object readBlob(ResultSet res, int c) throws SQLException {
+    Blob blob = res.getBlob(c);
+    if (blob == null)
+      return null;
+    long len = blob.length();
+    return blob.getBytes(1, (int) Math.min(len, MAX_BLOB_SIZE));
+  }
+
+  static Object readClob(ResultSet res, int c) throws SQLException {
+    Clob clob = res.getClob(c);
+    if (clob == null)
+      return null;
+    long len = clob.length();
+    return clob.getSubString(1, (int) Math.min(len, MAX_CLOB_SIZE));
+  }
+
+  static Object readXml(ResultSet res, int c) throws SQLException {
+    SQLXML clob = res.getSQLXML(c);
+    if (clob == null)
+      return null;
+    return clob.getString();
+  }
+
+  /**
+   * parse postgres json, unwrap postgres arrays and narrow decimals to double / long / int
+   */
+  static Object mangle(Object obj) throws SQLException {
+    if (obj instanceof PGobject) {
+      PGobject pg = (PGobject) obj;
+      if ("json".equals(pg.getType()) || "jsonb".equals(pg.getType()))
+        try {
+          obj = om.readValue(pg.getValue(), Object.class);
+        } catch (JsonProcessingException e) {
+          throw new SQLException(e);
+        }
+    } else if (obj instanceof PgArray) {
+      PgArray arr = (PgArray) obj;
+      obj = arr.getArray();
+    } else if (obj instanceof BigDecimal) {
+      // convert to double
+      obj = ((BigDecimal) obj).doubleValue();
+
+      if ((double) obj == Math.round((double) obj)) {
+        // natural number, convert to long
+        obj = Math.round((double) obj);
+
+        // small natural number, conver to int
+        if (Integer.MIN_VALUE < (long) obj && (long) obj < Integer.MAX_VALUE)
+          obj = Math.toIntExact((long) obj);
+      }
+    }
     return obj;
   }
 
@@ -529,6 +774,60 @@ public class SQLDatabase extends AbstractDatabase {
     return readInternal(s, offset, limit, sort, descending, arguments);
   }
 
+  @Override
+  public List<Map<String, Object>> allAfter(Table s, Object after, Integer limit,
+      boolean descending, Map<String, Object> arguments) throws Exception {
+    String pk = null;
+    for (Property p : s.properties.values())
+      if (p.pkpos != null) {
+        if (pk != null)
+          return null;
+        pk = p.name;
+      }
+    if (pk == null)
+      return null;
+    return readInternal(s, null, limit, pk, descending, arguments, after);
+  }
+
+  @Override
+  public List<Map<String, Object>> filter(Table s, Integer offset, Integer limit, String sort,
+      boolean descending, Map<String, Object> arguments, Filter filter, List<String> select)
+      throws Exception {
+    String columns = "*";
+    if (select != null) {
+      List<String> cols = new ArrayList<>();
+      for (String col : select)
+        cols.add(q(col));
+      columns = String.join(", ", cols);
+    }
+    List<Object> args = new ArrayList<>();
+    return readInternal(
+        select(s, columns, offset, limit, sort, descending, arguments, null, filter, args), args,
+        limit);
+  }
+
+  @Override
+  public Number count(Table s, Map<String, Object> arguments, Filter filter) throws Exception {
+    List<Object> args = new ArrayList<>();
+    List<String> where = where(s, null, false, arguments, null, filter, args);
+    String select = "select count(*) from " + schema() + q(s.name)
+        + (where.isEmpty() ? "" : " where " + String.join(" and ", where));
+
+    if (log.isLoggable(Level.DEBUG))
+      log.fine("count=" + select);
+    try (Connection con = getConnection()) {
+      try (PreparedStatement stmt = con.prepareStatement(select)) {
+        int i = 1;
+        for (Object o : args)
+          stmt.setObject(i++, o);
+        try (ResultSet res = stmt.executeQuery()) {
+          res.next();
+          return res.getLong(1);
+        }
+      }
+    }
+  }
+
   @Override
   public List<Map<String, Object>> query(QueryMeta info, Map<String, Object> arguments)
       throws SQLException {
@@ -569,22 +868,9 @@ public class SQLDatabase extends AbstractDatabase {
           try (ResultSet _res = pstmt.executeQuery()) {
             ResultSet res = _res;
             for (;;) {
-              ResultSetMetaData m = res.getMetaData();
-              while (res.next()) {
-                Map<String, Object> row = new LinkedHashMap<>();
-                for (int c = 1; c <= m.getColumnCount(); c++) {
-                  String display = tn.getColumnLabel(m, c);
-                  String column = tn.getColumnName(m, c);
-                  String table = tn.getTableName(m, c);
-                  if (!column.equals(display))
-                    row.put(display, serialize(m, res, c));
-                  else if (table == null || table.isEmpty())
-                    row.put(column, serialize(m, res, c));
-                  else
-                    row.put(table + "." + column, serialize(m, res, c));
-                }
-                data.add(row);
-              }
+              RowReader reader = new RowReader(res.getMetaData(), tn);
+              while (res.next())
+                data.add(reader.read(res));
               if (pstmt.getMoreResults()) {
                 // we have multiple result sets
                 if (multidata == null)
@@ -628,16 +914,10 @@ public class SQLDatabase extends AbstractDatabase {
           ResultSetMetaData m = res.getMetaData();
           Map<String, Property> row = new LinkedHashMap<>();
           for (int c = 1; c <= m.getColumnCount(); c++) {
-            String display = tn.getColumnLabel(m, c);
             String column = tn.getColumnName(m, c);
             String table = tn.getTableName(m, c);
             String type = m.getColumnTypeName(c);
-            if (!column.equals(display))
-              row.put(display, property(table, column, type));
-            else if (table == null || table.isEmpty())
-              row.put(column, property(table, column, type));
-            else
-              row.put(table + "." + column, property(table, column, type));
+            row.put(key(tn, m, c), property(table, column, type));
           }
           return row;
         }
@@ -749,55 +1029,28 @@ public class SQLDatabase extends AbstractDatabase {
 
   List<Map<String, Object>> readInternal(Table s, Integer offset, Integer limit, String sort,
       boolean descending, Map<String, Object> search) throws SQLException {
+    return readInternal(s, offset, limit, sort, descending, search, null);
+  }
+
+  /**
+   * if after is set, only returns the rows where the sort column is greater (or less if descending)
+   * than after
+   */
+  List<Map<String, Object>> readInternal(Table s, Integer offset, Integer limit, String sort,
+      boolean descending, Map<String, Object> search, Object after) throws SQLException {
+    List<Object> args = new ArrayList<>();
+    return readInternal(select(s, offset, limit, sort, descending, search, after, args), args,
+        limit);
+  }
+
+  /**
+   * runs the select statement with the parameters args
+   */
+  List<Map<String, Object>> readInternal(String select, List<Object> args, Integer limit)
+      throws SQLException {
     Integer timeout = services.getConfig().getAllTimeoutMs();
     List<Map<String, Object>> ret = new ArrayList<>();
     try (Connection con = getConnection()) {
-      String select = "select * from " + schema() + q(s.name);
-      List<Object> args = new ArrayList<>();
-      if (search != null && !search.isEmpty()) {
-        select = select + " where ";
-        for (String k : search.keySet()) {
-          if (url.startsWith("jdbc:postgresql:") && search.get(k) instanceof List
-              && s.properties.get(k).dbType.equals("jsonb")
-              && (((List<?>) search.get(k)).size() == 1)) {
-            select = select + "\"" + k + "\"::jsonb ??" + " ? and ";
-            args.add(((List<?>) search.get(k)).get(0));
-          } else {
-            select = select + q(k) + "=? and ";
-            args.add(search.get(k));
-          }
-        }
-        select = select.substring(0, select.length() - "and ".length());
-      }
-      if (sort != null)
-        select = select + " order by " + q(sort) + (descending ? " desc" : "");
-      if (url.startsWith("jdbc:jtds:") || url.startsWith("jdbc:sqlserver")) {
-        // SQL server uses "select * from table order by x offset 5 rows fetch next 5 rows only
-        if (offset != null) {
-          if (sort == null) {
-            // OFFSET always needs an ORDER BY
-            // In case no sorting is active, add the primary key order
-            String orderBy = null;
-            for (Property p : s.properties.values()) {
-              orderBy = p.name;
-              if (p.pkpos != null)
-                break;
-            }
-            select = select + " order by " + orderBy;
-          }
-          select = select + " offset " + offset + " rows fetch next "
-              + (limit == null ? Integer.MAX_VALUE : limit) + " rows only";
-        }
-      } else {
-        if (url.startsWith("jdbc:db2:") || url.startsWith("jdbc:sqlite")
-            || url.startsWith("jdbc:mariadb"))
-          // DB2 offset only works with limit
-          select = select + " limit " + (limit == null ? Integer.MAX_VALUE : limit);
-        if (offset != null)
-          select =
-              select + " offset " + offset + (url.startsWith("jdbc:oracle:thin:") ? " rows" : "");
-      }
-
       if (log.isLoggable(Level.DEBUG))
         log.fine("select=" + select);
       try (PreparedStatement stmt = con.prepareStatement(select)) {
@@ -811,15 +1064,355 @@ public class SQLDatabase extends AbstractDatabase {
         for (Object o : args)
           stmt.setObject(i++, o);
         try (ResultSet res = stmt.executeQuery()) {
-          ResultSetMetaData m = res.getMetaData();
+          RowReader reader = new RowReader(res.getMetaData(), null);
           while (res.next()) {
             if (limit != null && rows++ >= limit)
               break;
-            Map<String, Object> row = new LinkedHashMap<>();
-            for (int c = 1; c <= m.getColumnCount(); c++) {
-              row.put(m.getColumnName(c), serialize(m, res, c));
+            ret.add(reader.read(res));
+          }
+        }
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * finds the records referencing pk with a single "union all" query over the referencing tables.
+   * Each branch selects the source index and the pk columns (cast to varchar) of the matching rows
+   * and applies offset / limit per table like the default implementation. Falls back to the
+   * default for array fk columns, pk types that do not survive the cast and dialects without
+   * "limit / offset" in subqueries. The union has no query timeout. Like the default, which checks
+   * the timeout between tables, it never fails on a timeout: once the time is up, the default
+   * returns the partial result
+   */
+  @Override
+  public List<Origin> incoming(SecurityContext sc, String database, String table, String objectId,
+      Integer offset, Integer limit, long start, Integer timeout, String pk) throws Exception {
+    String text;
+    if (url.startsWith("jdbc:h2:") || url.startsWith("jdbc:postgresql:"))
+      text = "varchar";
+    else if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:"))
+      text = "char";
+    else if (url.startsWith("jdbc:sqlite:"))
+      text = "text";
+    else
+      return super.incoming(sc, database, table, objectId, offset, limit, start, timeout, pk);
+
+    if (timeout != null && System.currentTimeMillis() - start > timeout)
+      return super.incoming(sc, database, table, objectId, offset, limit, start, timeout, pk);
+
+    List<Reference> refs = new ArrayList<>();
+    List<List<Property>> pks = new ArrayList<>();
+    int keys = 0;
+    for (Reference r : references(pk)) {
+      try {
+        ACLContainerRequestFilter.check(sc, this, r.table);
+      } catch (NotAuthorizedException ignore) {
+        continue;
+      }
+      List<Property> key = new ArrayList<>();
+      for (int i = 0; i < r.table.properties.size(); i++)
+        for (Property p : r.table.properties.values())
+          if (p.pkpos != null && p.pkpos == i)
+            key.add(p);
+      for (Property p : key)
+        if (!"integer".equals(p.type) && !"string".equals(p.type))
+          return super.incoming(sc, database, table, objectId, offset, limit, start, timeout, pk);
+      if (r.fk.items != null)
+        return super.incoming(sc, database, table, objectId, offset, limit, start, timeout, pk);
+      refs.add(r);
+      pks.add(key);
+      keys = Math.max(keys, key.size());
+    }
+
+    // a single table does not need the union
+    if (refs.size() < 2)
+      return super.incoming(sc, database, table, objectId, offset, limit, start, timeout, pk);
+
+    List<Object> args = new ArrayList<>();
+    List<String> branches = new ArrayList<>();
+    for (int i = 0; i < refs.size(); i++) {
+      Table s = refs.get(i).table;
+      List<String> columns = new ArrayList<>();
+      columns.add(i + " as " + q("_dj_source"));
+      for (int k = 0; k < keys; k++)
+        columns.add((k < pks.get(i).size()
+            ? "cast(" + q(pks.get(i).get(k).name) + " as " + text + ")"
+            : "cast(null as " + text + ")") + " as " + q("_dj_k" + k));
+      Map<String, Object> search = new HashMap<>();
+      search.put(refs.get(i).fk.name, objectId);
+      cast(s, search);
+      List<String> where =
+          where(s, null, false, ACLContainerRequestFilter.tenantFilter(sc, s, search), null, null,
+              args);
+      String branch = "select " + String.join(", ", columns) + " from " + schema() + q(s.name)
+          + " where " + String.join(" and ", where);
+      if (limit != null || offset != null)
+        branch = branch + " limit " + (limit == null ? Integer.MAX_VALUE : limit);
+      if (offset != null)
+        branch = branch + " offset " + offset;
+      branches.add("select * from (" + branch + ") " + q("_dj_t" + i));
+    }
+    String select = String.join(" union all ", branches);
+
+    // group the matches by source table to keep the order of the default implementation
+    List<List<Origin>> matches = new ArrayList<>();
+    for (int i = 0; i < refs.size(); i++)
+      matches.add(new ArrayList<>());
+    try (Connection con = getConnection()) {
+      if (log.isLoggable(Level.DEBUG))
+        log.fine("select=" + select);
+      try (PreparedStatement stmt = con.prepareStatement(select)) {
+        int i = 1;
+        for (Object o : args)
+          stmt.setObject(i++, o);
+        try (ResultSet res = stmt.executeQuery()) {
+          while (res.next()) {
+            int source = res.getInt(1);
+            Table s = refs.get(source).table;
+            Map<String, Object> match = new HashMap<>();
+            for (Property p : pks.get(source))
+              match.put(p.name, cast(p, res.getString(2 + pks.get(source).indexOf(p))));
+            Origin o = new Origin();
+            o.id = Resource.of(this, s, match);
+            o.fk = refs.get(source).fk.ID;
+            o.pk = pk;
+            matches.get(source).add(o);
+          }
+        }
+      }
+    }
+    List<Origin> res = new ArrayList<>();
+    for (List<Origin> m : matches)
+      res.addAll(m);
+    return res;
+  }
+
+  /**
+   * builds the select statement for readInternal. The search arguments (including the tenant
+   * filter, see ACLContainerRequestFilter.tenantFilter) become where predicates, so the database
+   * can use an index and applies offset / limit to the matching rows. Parameters are added to args
+   */
+  String select(Table s, Integer offset, Integer limit, String sort, boolean descending,
+      Map<String, Object> search, List<Object> args) {
+    return select(s, offset, limit, sort, descending, search, null, args);
+  }
+
+  /**
+   * like select, but adds the keyset predicate sort &gt; after (sort &lt; after if descending)
+   */
+  String select(Table s, Integer offset, Integer limit, String sort, boolean descending,
+      Map<String, Object> search, Object after, List<Object> args) {
+    return select(s, "*", offset, limit, sort, descending, search, after, null, args);
+  }
+
+  /**
+   * like select, but only selects the given columns and adds the filter predicate tree
+   */
+  String select(Table s, String columns, Integer offset, Integer limit, String sort,
+      boolean descending, Map<String, Object> search, Object after, Filter filter,
+      List<Object> args) {
+    String select = "select " + columns + " from " + schema() + q(s.name);
+    List<String> where = where(s, sort, descending, search, after, filter, args);
+    if (!where.isEmpty())
+      select = select + " where " + String.join(" and ", where);
+    if (sort != null)
+      select = select + " order by " + q(sort) + (descending ? " desc" : "");
+    if (url.startsWith("jdbc:jtds:") || url.startsWith("jdbc:sqlserver")) {
+      // SQL server uses "select * from table order by x offset 5 rows fetch next 5 rows only
+      if (offset != null) {
+        if (sort == null) {
+          // OFFSET always needs an ORDER BY
+          // In case no sorting is active, add the primary key order
+          String orderBy = null;
+          for (Property p : s.properties.values()) {
+            orderBy = p.name;
+            if (p.pkpos != null)
+              break;
+          }
+          select = select + " order by " + orderBy;
+        }
+        select = select + " offset " + offset + " rows fetch next "
+            + (limit == null ? Integer.MAX_VALUE : limit) + " rows only";
+      }
+    } else {
+      if (url.startsWith("jdbc:db2:") || url.startsWith("jdbc:sqlite")
+          || url.startsWith("jdbc:mariadb"))
+        // DB2 offset only works with limit
+        select = select + " limit " + (limit == null ? Integer.MAX_VALUE : limit);
+      if (offset != null)
+        select =
+            select + " offset " + offset + (url.startsWith("jdbc:oracle:thin:") ? " rows" : "");
+    }
+    return select;
+  }
+
+  /**
+   * where predicates for the search arguments (and-connected column equalities), the keyset
+   * predicate and the filter predicate tree. Parameters are added to args
+   */
+  List<String> where(Table s, String sort, boolean descending, Map<String, Object> search,
+      Object after, Filter filter, List<Object> args) {
+    List<String> where = new ArrayList<>();
+    if (search != null)
+      for (String k : search.keySet()) {
+        if (url.startsWith("jdbc:postgresql:") && search.get(k) instanceof List
+            && s.properties.get(k).dbType.equals("jsonb")
+            && (((List<?>) search.get(k)).size() == 1)) {
+          where.add("\"" + k + "\"::jsonb ?? ?");
+          args.add(((List<?>) search.get(k)).get(0));
+        } else {
+          where.add(q(k) + "=?");
+          args.add(search.get(k));
+        }
+      }
+    if (after != null && sort != null) {
+      where.add(q(sort) + (descending ? "<?" : ">?"));
+      args.add(after);
+    }
+    if (filter != null)
+      where.add(predicate(filter, args));
+    return where;
+  }
+
+  /**
+   * translates the filter predicate tree into a where predicate. Parameters are added to args
+   */
+  String predicate(Filter filter, List<Object> args) {
+    return predicate(filter, args, false);
+  }
+
+  /**
+   * Filter.test is two-valued (a comparison with null is false), whereas in SQL, the comparison and
+   * its negation are unknown. Therefore, not is pushed down to the leafs (De Morgan) where the
+   * negated comparison explicitly keeps the null rows
+   */
+  String predicate(Filter filter, List<Object> args, boolean negate) {
+    switch (filter.op) {
+      case "and":
+      case "or":
+        List<String> parts = new ArrayList<>();
+        for (Filter f : filter.args)
+          parts.add(predicate(f, args, negate));
+        String op = negate ? ("and".equals(filter.op) ? "or" : "and") : filter.op;
+        return "(" + String.join(" " + op + " ", parts) + ")";
+      case "not":
+        return predicate(filter.args.get(0), args, !negate);
+    }
+
+    if (filter.value == null) {
+      if ("eq".equals(filter.op))
+        return q(filter.field) + (negate ? " is not null" : " is null");
+      if ("ne".equals(filter.op))
+        return q(filter.field) + (negate ? " is null" : " is not null");
+    }
+
+    if ("ne".equals(filter.op)) {
+      args.add(filter.value);
+      if (negate)
+        return q(filter.field) + " = ?";
+      // null ne x holds in Filter.test, so keep the null rows that col <> ? drops
+      return "(" + q(filter.field) + " <> ? or " + q(filter.field) + " is null)";
+    }
+
+    // the remaining comparisons are false for null rows
+    String leaf = leaf(filter, args);
+    if (negate)
+      return "(not " + leaf + " or " + q(filter.field) + " is null)";
+    return leaf;
+  }
+
+  /**
+   * translates the leaf filter into a where predicate. Parameters are added to args
+   */
+  String leaf(Filter filter, List<Object> args) {
+    switch (filter.op) {
+      case "in":
+        List<String> pars = new ArrayList<>();
+        for (Object o : (List<?>) filter.value) {
+          pars.add("?");
+          args.add(o);
+        }
+        if (pars.isEmpty())
+          return "1=0";
+        return q(filter.field) + " in (" + String.join(", ", pars) + ")";
+      case "contains":
+      case "startswith":
+        args.add(("contains".equals(filter.op) ? "%" : "") + like("" + filter.value) + "%");
+        return q(filter.field) + " like ? escape '!'";
+    }
+
+    // null never matches an ordering comparison (like in Filter.test)
+    if (filter.value == null && operators.containsKey(filter.op))
+      return "1=0";
+
+    String op = operators.get(filter.op);
+    if (op == null)
+      throw new IllegalArgumentException("Unknown filter operator: " + filter.op);
+    args.add(filter.value);
+    return q(filter.field) + op + "?";
+  }
+
+  /**
+   * escapes the LIKE wildcards in s (use with escape '!')
+   */
+  static String like(String s) {
+    return s.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+  }
+
+  static final Map<String, String> operators =
+      MapUtil.of("eq", "=", "ne", "<>", "gt", ">", "ge", ">=", "lt", "<", "le", "<=");
+
+  /**
+   * computes count, nulls, min, and max of all columns using a single aggregate query (and-connected
+   * column equalities in search restrict the rows)
+   */
+  public Map<String, Map<String, Object>> stats(Table s, Map<String, Object> search)
+      throws SQLException {
+    Integer timeout = services.getConfig().getAllTimeoutMs();
+    List<Property> cols = new ArrayList<>(s.properties.values());
+    String select = "select count(*)";
+    for (Property p : cols) {
+      select = select + ", count(" + q(p.name) + ")";
+      if (isOrderable(p))
+        select = select + ", min(" + q(p.name) + "), max(" + q(p.name) + ")";
+    }
+    select = select + " from " + schema() + q(s.name);
+    List<Object> args = new ArrayList<>();
+    if (search != null && !search.isEmpty()) {
+      select = select + " where ";
+      for (String k : search.keySet()) {
+        select = select + q(k) + "=? and ";
+        args.add(search.get(k));
+      }
+      select = select.substring(0, select.length() - "and ".length());
+    }
+
+    if (log.isLoggable(Level.DEBUG))
+      log.fine("stats=" + select);
+
+    Map<String, Map<String, Object>> ret = new LinkedHashMap<>();
+    try (Connection con = getConnection()) {
+      try (PreparedStatement stmt = con.prepareStatement(select)) {
+        if (timeout != null)
+          stmt.setQueryTimeout(timeout / 1000);
+        int i = 1;
+        for (Object o : args)
+          stmt.setObject(i++, o);
+        try (ResultSet res = stmt.executeQuery()) {
+          ResultSetMetaData m = res.getMetaData();
+          res.next();
+          long count = res.getLong(1);
+          int c = 2;
+          for (Property p : cols) {
+            Map<String, Object> col = new LinkedHashMap<>();
+            col.put("count", count);
+            col.put("nulls", count - res.getLong(c++));
+            if (isOrderable(p)) {
+              col.put("min", serialize(m, res, c++));
+              col.put("max", serialize(m, res, c++));
             }
-            ret.add(row);
+            ret.put(p.name, col);
           }
         }
       }
@@ -827,6 +1420,21 @@ public class SQLDatabase extends AbstractDatabase {
     return ret;
   }
 
+  /**
+   * can min / max be computed on the column
+   */
+  static boolean isOrderable(Property p) {
+    if ("number".equals(p.type) || "integer".equals(p.type) || "date".equals(p.type))
+      return true;
+    if (!"string".equals(p.type) || p.dbType == null)
+      return false;
+    String dbType = p.dbType.toUpperCase();
+    for (String lob : new String[] {"LOB", "BINARY", "BYTEA", "JSON", "XML", "TEXT"})
+      if (dbType.contains(lob))
+        return false;
+    return true;
+  }
+
   @Override
   public boolean update(Table schema, Map<String, Object> search, Map<String, Object> object)
       throws SQLException {
@@ -936,8 +1544,10 @@ public class SQLDatabase extends AbstractDatabase {
 
   @Override
   public void close() throws Exception {
-    if (_cp != null)
+    if (_cp != null) {
+      PoolPerformanceDatabase.remove(ID, _cp);
       _cp.close();
+    }
   }
 
   /**
@@ -1038,9 +1648,15 @@ public class SQLDatabase extends AbstractDatabase {
   }
 
   protected List<QueryColumn> getMetadata(String query) throws Exception {
-
     Select select = (Select) CCJSqlParserUtil.parse(query);
-    PlainSelect body = (PlainSelect) select.getSelectBody();
+    return getMetadata(query, (PlainSelect) select.getSelectBody());
+  }
+
+  /**
+   * get the column metadata of query, body is the parsed query and is not modified
+   */
+  protected List<QueryColumn> getMetadata(String query, PlainSelect body) throws Exception {
+
     Map<Col, String> map = new HashMap<>();
     SQLEditor.parseWhere(true, map, body.getWhere(), body);
 
@@ -1176,21 +1792,38 @@ public class SQLDatabase extends AbstractDatabase {
         try (Connection con = getConnection()) {
           String label = Template.sql(url, q(p.name), s.djLabel);
           String select = "select " + q(p.name) + ", " + label + " from " + schema() + q(s.name);
-          if (prefix != null)
-            // not all DBs support ILIKE, lower(col) causes the index to be useless
-            if (supportsIlike())
-              select = select + " where " + label + " ILIKE ?";
-            else
-              select = select + " where " + label + " LIKE ?";
+          List<String> where = new ArrayList<>();
+          List<Object> args = new ArrayList<>();
+          if (prefix != null) {
+            if (s.djLabel == null && "string".equals(p.type)) {
+              // the label is the key itself: match the key column rather than the label
+              // expression, so the plain LIKE used on DBs without ILIKE can use the key's index
+              where.add(q(p.name) + (supportsIlike() ? " ILIKE" : " LIKE") + " ? escape '!'");
+              args.add(like(prefix) + "%");
+            } else {
+              // not all DBs support ILIKE, lower(col) causes the index to be useless
+              if (supportsIlike())
+                where.add(label + " ILIKE ?");
+              else
+                where.add(label + " LIKE ?");
+              args.add(prefix + "%");
+            }
+          }
+
+          // tenant filter
+          if (arguments != null)
+            for (Entry<String, Object> e : arguments.entrySet()) {
+              where.add(q(e.getKey()) + "=?");
+              args.add(e.getValue());
+            }
 
-          if (arguments != null && !arguments.isEmpty())
-            select = select + " and " + q(arguments.keySet().iterator().next()) + "=?";
+          if (!where.isEmpty())
+            select = select + " where " + String.join(" and ", where);
 
           try (PreparedStatement stmt = con.prepareStatement(select)) {
-            if (arguments != null && !arguments.isEmpty())
-              stmt.setObject(2, arguments.values().iterator().next());
-            if (prefix != null)
-              stmt.setString(1, prefix + "%");
+            int i = 1;
+            for (Object o : args)
+              stmt.setObject(i++, o);
             if (limit != null)
               stmt.setMaxRows(limit);
             if (timeout != null)
@@ -1227,71 +1860,83 @@ public class SQLDatabase extends AbstractDatabase {
     return url;
   }
 
+  /**
+   * 2021-11-06 05:20
+   */
+  static final DateTimeFormatter DATE_MINUTES =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm[:ss]");
+
   @Override
-  public Object cast(Property p, Object object) {
-
-    if (object instanceof String) {
-      String s = (String) object;
-
-      if ("uuid".equals(p.dbType))
-        return UUID.fromString((String) object);
-
-      if ("time".equalsIgnoreCase(p.dbType))
-        return LocalTime.from(DateTimeFormatter.ISO_LOCAL_TIME.parse(s));
-
-      if ("timetz".equalsIgnoreCase(p.dbType))
-        return OffsetTime.from(DateTimeFormatter.ISO_TIME.parse(s));
-
-      if ("date".equalsIgnoreCase(p.dbType) || "datetime".equalsIgnoreCase(p.dbType)
-          || "timestamp".equalsIgnoreCase(p.dbType) || "timestamptz".equalsIgnoreCase(p.dbType)) {
-
-        for (DateTimeFormatter f : new DateTimeFormatter[] {
-            // 2011-12-03T10:15:30+01:00
-            DateTimeFormatter.ISO_DATE_TIME,
-            // 2011-12-03
-            DateTimeFormatter.ISO_LOCAL_DATE,
-            // 2021-11-06 05:20
-            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm[:ss]")
-
-        }) {
-          try {
-            TemporalAccessor accessor = f.parse((String) object);
-            try {
-              return date(p, Date.from(Instant.from(accessor)));
-            } catch (DateTimeException e) {
-              try {
-                LocalDateTime localDateTime = LocalDateTime.from(accessor);
-                ZonedDateTime zonedDateTime =
-                    ZonedDateTime.of(localDateTime, ZoneId.systemDefault());
-                return date(p, Date.from(Instant.from(zonedDateTime)));
-              } catch (DateTimeException e2) {
-                LocalDate localDate = LocalDate.from(accessor);
-                return date(p,
-                    Date.from(localDate.atStartOfDay().atZone(ZoneId.systemDefault()).toInstant()));
-              }
-            }
-          } catch (Exception e) {
-            // ignore and try the other formats
-          }
-        }
-      }
-    }
+  protected java.util.function.Function<Object, Object> compile(Property p) {
+    java.util.function.Function<Object, Object> json = super.compile(p);
+    java.util.function.Function<String, Object> parse = parser(p);
+    boolean postgres = url != null && url.startsWith("jdbc:postgresql:");
+    return o -> {
+      Object res = null;
+      if (parse != null && o instanceof String)
+        res = parse.apply((String) o);
+      if (res == null)
+        res = json.apply(o);
+      if (postgres && (res instanceof Map<?, ?> || res instanceof List<?>))
+        return pgJson(res);
+      return res;
+    };
+  }
+
+  /**
+   * parser for the dbType of the property (null if there is no special handling). The parser
+   * returns null if the string cannot be parsed
+   */
+  java.util.function.Function<String, Object> parser(Property p) {
+    String dbType = p == null ? null : p.dbType;
+    if (dbType == null)
+      return null;
+
+    if ("uuid".equals(dbType))
+      return UUID::fromString;
+
+    if ("time".equalsIgnoreCase(dbType))
+      return s -> LocalTime.from(DateTimeFormatter.ISO_LOCAL_TIME.parse(s));
 
-    object = super.cast(p, object);
+    if ("timetz".equalsIgnoreCase(dbType))
+      return s -> OffsetTime.from(DateTimeFormatter.ISO_TIME.parse(s));
 
-    if (object instanceof Map<?, ?> || object instanceof List<?>)
-      if (url.startsWith("jdbc:postgresql:")) {
-        PGobject jsonObject = new PGobject();
-        jsonObject.setType("json");
+    if ("date".equalsIgnoreCase(dbType) || "datetime".equalsIgnoreCase(dbType)
+        || "timestamp".equalsIgnoreCase(dbType) || "timestamptz".equalsIgnoreCase(dbType))
+      return s -> {
+        // the formats are distinguished by the date / time separator, so only one is tried:
+        // 2011-12-03T10:15:30+01:00, 2021-11-06 05:20, 2011-12-03
+        DateTimeFormatter f = s.indexOf('T') >= 0 || s.indexOf('t') >= 0
+            ? DateTimeFormatter.ISO_DATE_TIME
+            : s.indexOf(' ') >= 0 ? DATE_MINUTES : DateTimeFormatter.ISO_LOCAL_DATE;
+        TemporalAccessor accessor;
         try {
-          jsonObject.setValue(om.writeValueAsString(object));
-        } catch (Exception e) {
-          throw new RuntimeException(e);
+          accessor = f.parse(s);
+        } catch (DateTimeException e) {
+          // not a date, leave the string as is
+          return null;
         }
-        return jsonObject;
-      }
+        if (accessor.isSupported(ChronoField.INSTANT_SECONDS))
+          return date(p, Date.from(Instant.from(accessor)));
+        if (accessor.query(TemporalQueries.localTime()) != null)
+          return date(p, Date.from(Instant.from(
+              ZonedDateTime.of(LocalDateTime.from(accessor), ZoneId.systemDefault()))));
+        return date(p, Date.from(
+            LocalDate.from(accessor).atStartOfDay().atZone(ZoneId.systemDefault()).toInstant()));
+      };
+
+    return null;
+  }
 
-    return object;
+  static PGobject pgJson(Object object) {
+    PGobject jsonObject = new PGobject();
+    jsonObject.setType("json");
+    try {
+      jsonObject.setValue(om.writeValueAsString(object));
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+    return jsonObject;
   }
 
   Object date(Property p, Date date) {
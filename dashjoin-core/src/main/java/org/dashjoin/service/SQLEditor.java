@@ -89,7 +89,7 @@ public class SQLEditor implements QueryEditorInternal {
       return res;
     }
 
-    Select stmt = (Select) CCJSqlParserUtil.parse(ac.query);
+    Select stmt = (Select) parse(ac.query);
     PlainSelect body = (PlainSelect) stmt.getSelectBody();
 
     for (SelectItem s : body.getSelectItems()) {
@@ -111,7 +111,7 @@ public class SQLEditor implements QueryEditorInternal {
     if (ac == null || ac.distinct == null)
       throw new IllegalArgumentException();
 
-    Select stmt = (Select) CCJSqlParserUtil.parse(ac.query);
+    Select stmt = (Select) parse(ac.query);
     PlainSelect body = (PlainSelect) stmt.getSelectBody();
 
     if (ac.distinct) {
@@ -140,7 +140,7 @@ public class SQLEditor implements QueryEditorInternal {
     if ((ac.col.column == null) || (ac.col.table == null) || (ac.col.table.isEmpty()))
       throw new IllegalArgumentException("request col must be TABLE.COLUMN: " + ac.col);
 
-    Select stmt = (Select) CCJSqlParserUtil.parse(ac.query);
+    Select stmt = (Select) parse(ac.query);
     PlainSelect body = (PlainSelect) stmt.getSelectBody();
 
     OrderByElement order = new OrderByElement();
@@ -173,7 +173,7 @@ public class SQLEditor implements QueryEditorInternal {
     if (ac == null || ac.add == null)
       throw new IllegalArgumentException();
 
-    Select stmt = (Select) CCJSqlParserUtil.parse(ac.query);
+    Select stmt = (Select) parse(ac.query);
     PlainSelect body = (PlainSelect) stmt.getSelectBody();
 
     if (body.getGroupBy() != null)
@@ -238,7 +238,7 @@ public class SQLEditor implements QueryEditorInternal {
         || (ac.col.table.isEmpty()))
       throw new IllegalArgumentException("request col must be TABLE.COLUMN: " + ac.col);
 
-    Select stmt = (Select) CCJSqlParserUtil.parse(ac.query);
+    Select stmt = (Select) parse(ac.query);
     PlainSelect body = (PlainSelect) stmt.getSelectBody();
 
     List<SelectItem> sis = body.getSelectItems();
@@ -265,7 +265,7 @@ public class SQLEditor implements QueryEditorInternal {
           || (cc.col.table.isEmpty()))
         throw new IllegalArgumentException("request col must be TABLE.COLUMN: " + cc.col);
 
-    Select stmt = (Select) CCJSqlParserUtil.parse(ac.query);
+    Select stmt = (Select) parse(ac.query);
     PlainSelect body = (PlainSelect) stmt.getSelectBody();
 
     Expression where = null;
@@ -294,7 +294,7 @@ public class SQLEditor implements QueryEditorInternal {
           || (cc.col.table.isEmpty()))
         throw new IllegalArgumentException("request col must be TABLE.COLUMN: " + cc.col);
 
-    Select stmt = (Select) CCJSqlParserUtil.parse(ac.query);
+    Select stmt = (Select) parse(ac.query);
     PlainSelect body = (PlainSelect) stmt.getSelectBody();
 
     List<Expression> groupByExpressions = new ArrayList<>();
@@ -386,7 +386,7 @@ public class SQLEditor implements QueryEditorInternal {
         || (ac.col.table.isEmpty()))
       throw new IllegalArgumentException("request col must be TABLE.COLUMN: " + ac.col);
 
-    Select stmt = (Select) CCJSqlParserUtil.parse(ac.query);
+    Select stmt = (Select) parse(ac.query);
     PlainSelect body = (PlainSelect) stmt.getSelectBody();
 
     List<SelectItem> sis = body.getSelectItems();
@@ -410,7 +410,7 @@ public class SQLEditor implements QueryEditorInternal {
   @Override
   public QueryResponse noop(QueryDatabase query) throws Exception {
     try {
-      Statement s = CCJSqlParserUtil.parse(query.query);
+      Statement s = parse(query.query);
       if (!(s instanceof Select)) {
         throw new Exception("The query editor only supports select queries");
       }
@@ -667,6 +667,10 @@ public class SQLEditor implements QueryEditorInternal {
     // make sure we can parse the query again
     Statement pretty = CCJSqlParserUtil.parse(sql.toString());
 
+    // fetch only the rows that are displayed
+    if (limit == null)
+      limit = DEFAULT_LIMIT;
+
     // prepare return value
     QueryResponse res = new QueryResponse();
     res.database = database;
@@ -674,7 +678,7 @@ public class SQLEditor implements QueryEditorInternal {
     res.query = sql.toString();
 
     // call query method to get the QueryColumn metadata
-    res.metadata = db.getMetadata(res.query);
+    res.metadata = db.getMetadata(res.query, (PlainSelect) ((Select) pretty).getSelectBody());
 
     // call "new" query method to get the data (create a tmp catalog entry)
     QueryMeta value = new QueryMeta();
@@ -716,9 +720,21 @@ public class SQLEditor implements QueryEditorInternal {
         body.getLimit() == null ? null : Integer.parseInt(body.getLimit().getRowCount() + "");
     res.compatibilityError = compatibilityError(pretty);
 
+    // the client sends the query back with the next edit operation
+    db.editorCache.put(res.query, pretty);
+
     return res;
   }
 
+  /**
+   * parses the query. Statements of queries returned by prettyPrint are taken from the cache. They
+   * are removed from the cache since the caller modifies the statement
+   */
+  Statement parse(String query) throws JSQLParserException {
+    Statement res = db.editorCache.asMap().remove(query);
+    return res == null ? CCJSqlParserUtil.parse(query) : res;
+  }
+
   protected void samplesAndMetadata(QueryResponse res, Map<Table, Col> tables) throws SQLException {
     try (Connection con = db.getConnection()) {
       for (Entry<Table, Col> t : tables.entrySet())
@@ -895,10 +911,10 @@ public class SQLEditor implements QueryEditorInternal {
         return null;
     Column left = (Column) o;
     if (left.getTable() == null) {
-      if (from.getJoins() == null && from.getFromItem() instanceof net.sf.jsqlparser.schema.Table) {
-        left.setTable((net.sf.jsqlparser.schema.Table) from.getFromItem());
-        return left;
-      }
+      if (from.getJoins() == null && from.getFromItem() instanceof net.sf.jsqlparser.schema.Table)
+        // do not modify the statement, it might be cached
+        return new Column((net.sf.jsqlparser.schema.Table) from.getFromItem(),
+            left.getColumnName());
       if (!ignoreUnknown)
         throw new IllegalArgumentException(left + " has no table information");
       else
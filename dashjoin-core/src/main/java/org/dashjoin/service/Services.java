@@ -1,6 +1,5 @@
 package org.dashjoin.service;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -13,6 +12,7 @@ import org.apache.commons.lang3.reflect.FieldUtils;
 import org.dashjoin.expression.ExpressionPreviewService;
 import org.dashjoin.expression.ExpressionService;
 import org.dashjoin.function.FunctionService;
+import org.dashjoin.service.cluster.InvalidationBus;
 import org.dashjoin.service.tenant.DefaultTenantManager;
 import org.dashjoin.service.tenant.TenantManager;
 import com.google.common.collect.Sets;
@@ -53,7 +53,7 @@ public class Services {
   /**
    * Tenant cache. TODO: should live with TenantManager
    */
-  static Map<String, Config> tenantConfigs = new HashMap<>();
+  static Map<String, Config> tenantConfigs = new ConcurrentHashMap<>();
 
   // @Inject
   public TenantManager tenantManager;
@@ -67,7 +67,16 @@ public class Services {
    * being read/write and having preference over the other DBs. Other providers may be added later
    * on (e.g. when a DB is defined)
    */
-  synchronized public Config getConfig() {
+  public Config getConfig() {
+    // the config is registered before the metadata collection starts, the collection threads
+    // must not block on the initialization
+    Config c = tenantConfigs.get(tenantManager.getTenantId());
+    if (c != null)
+      return c;
+    return initConfig();
+  }
+
+  synchronized Config initConfig() {
 
     // if (!multiTenancy) {
     // if (config == null)
@@ -78,7 +87,9 @@ public class Services {
     String id = tenantManager.getTenantId();
     Config c = tenantConfigs.get(id);
     if (c == null) {
+      subscribe();
       c = pojoDatabase();
+      ((PojoDatabase) c)._tenant = id;
       tenantConfigs.put(id, c);
 
       // make sure all DBs are initialized
@@ -92,6 +103,28 @@ public class Services {
   @Inject
   JSONDatabase persistantDB;
 
+  /**
+   * announces config changes to the other nodes (null in legacy mode)
+   */
+  @Inject
+  InvalidationBus invalidationBus;
+
+  boolean subscribed;
+
+  /**
+   * forward changes made on other nodes to the config of the tenant
+   */
+  void subscribe() {
+    if (subscribed || invalidationBus == null)
+      return;
+    subscribed = true;
+    invalidationBus.subscribe((tenant, table, id) -> {
+      Config c = tenantConfigs.get(tenant);
+      if (c instanceof PojoDatabase)
+        ((PojoDatabase) c).invalidate(table, id);
+    });
+  }
+
   @Inject
   @JSONReadonlyDatabase
   JSONDatabase readonlyDB;
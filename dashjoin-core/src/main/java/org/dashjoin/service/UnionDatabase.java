@@ -31,6 +31,8 @@ import org.dashjoin.service.QueryEditor.RenameRequest;
 import org.dashjoin.service.QueryEditor.SetWhereRequest;
 import org.dashjoin.service.QueryEditor.SortRequest;
 import org.dashjoin.util.MapUtil;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 /**
  * database implementation which allows merging multiple json dbs. allows user edits to go in one
@@ -55,6 +57,21 @@ public class UnionDatabase extends AbstractDatabase {
    */
   List<JSONDatabase> _dbs;
 
+  /**
+   * merged object, valid as long as there are no writes and the member DBs and the versions of the
+   * object in them do not change
+   */
+  static class Memo {
+    long writes;
+    List<Object> versions;
+    Map<String, Object> value;
+  }
+
+  /**
+   * memoized reads by table / ID, kept alongside the member DBs
+   */
+  Cache<String, Memo> _memo = CacheBuilder.newBuilder().maximumSize(10000).build();
+
   PasswordDatabase user() {
     if (_user != null)
       return new PasswordDatabase(_user);
@@ -67,6 +84,12 @@ public class UnionDatabase extends AbstractDatabase {
     return ((PojoDatabase) services.getConfig())._dbs;
   }
 
+  Cache<String, Memo> memo() {
+    if (_user != null)
+      return _memo;
+    return ((PojoDatabase) services.getConfig())._memo;
+  }
+
   /**
    * get all DBs. make sure user DB is last
    */
@@ -165,6 +188,13 @@ public class UnionDatabase extends AbstractDatabase {
 
   @Override
   public Map<String, Object> read(Table s, Map<String, Object> search) throws Exception {
+    String key = s.name + "/" + search.get("ID");
+    long writes = JSONDatabase.writes.get();
+    List<Object> versions = versions(s, search);
+    Cache<String, Memo> memo = memo();
+    Memo m = memo.getIfPresent(key);
+    if (m != null && m.writes == writes && m.versions.equals(versions))
+      return copy(m.value);
 
     // merge all DBs (user DB is last)
     Map<String, Object> res = null;
@@ -174,11 +204,74 @@ public class UnionDatabase extends AbstractDatabase {
     // if files are deleted on the FS, there might be stale providers which cause
     // zombie objects without ID, remove these
     if (res != null && res.get("ID") == null)
-      return null;
+      res = null;
+
+    if (versions != null) {
+      m = new Memo();
+      m.writes = writes;
+      m.versions = versions;
+      m.value = freeze(res);
+      memo.put(key, m);
+    }
+    return res;
+  }
 
+  /**
+   * identifies the member DBs and the versions of the object in them (null if the object cannot be
+   * memoized)
+   */
+  List<Object> versions(Table s, Map<String, Object> search) throws Exception {
+    List<Object> res = new ArrayList<>(dbs());
+    res.add(_user != null ? _user : ((PojoDatabase) services.getConfig())._user);
+    for (JSONDatabase d : all()) {
+      Object version = d.version(s, search);
+      if (version == null)
+        return null;
+      res.add(version);
+    }
     return res;
   }
 
+  /**
+   * deep immutable copy of a json map, so memoized objects cannot be changed by callers
+   */
+  @SuppressWarnings("unchecked")
+  static <T> T freeze(T json) {
+    if (json instanceof Map) {
+      Map<String, Object> res = new LinkedHashMap<>();
+      for (Entry<String, Object> e : ((Map<String, Object>) json).entrySet())
+        res.put(e.getKey(), freeze(e.getValue()));
+      return (T) Collections.unmodifiableMap(res);
+    }
+    if (json instanceof List) {
+      List<Object> res = new ArrayList<>();
+      for (Object o : (List<Object>) json)
+        res.add(freeze(o));
+      return (T) Collections.unmodifiableList(res);
+    }
+    return json;
+  }
+
+  /**
+   * deep mutable copy of a json map
+   */
+  @SuppressWarnings("unchecked")
+  static <T> T copy(T json) {
+    if (json instanceof Map) {
+      Map<String, Object> res = new LinkedHashMap<>();
+      for (Entry<String, Object> e : ((Map<String, Object>) json).entrySet())
+        res.put(e.getKey(), copy(e.getValue()));
+      return (T) res;
+    }
+    if (json instanceof List) {
+      List<Object> res = new ArrayList<>();
+      for (Object o : (List<Object>) json)
+        res.add(copy(o));
+      return (T) res;
+    }
+    return json;
+  }
+
   /**
    * read from read only DBs only
    */
@@ -189,54 +282,72 @@ public class UnionDatabase extends AbstractDatabase {
     return res;
   }
 
+  /**
+   * computes the changes to the user DB as a single diff against the read only DBs and applies it
+   * with a single write
+   */
   @Override
   public boolean update(Table schema, Map<String, Object> search, Map<String, Object> object)
       throws Exception {
     Map<String, Object> readOnly = readDBs(schema, search);
     Map<String, Object> user = user().read(schema, search);
 
+    // field to write to the user DB (null removes the field)
+    Map<String, Object> diff = new LinkedHashMap<>();
     for (Entry<String, Object> e : object.entrySet()) {
       if (e.getKey().equals("ID"))
         continue;
       if (e.getValue() == null) {
         // remove key
-        user().update(schema, search, MapUtil.of(e.getKey(), e.getValue()));
+        diff.put(e.getKey(), null);
       } else {
         // add / change key
         if (user != null && user.containsKey(e.getKey())) {
           // already exists in user DB
           if (!Objects.equals(e.getValue(), readOnly == null ? null : readOnly.get(e.getKey()))) {
             // different from read only (update)
-            user().update(schema, search, MapUtil.of(e.getKey(), e.getValue()));
+            diff.put(e.getKey(), e.getValue());
           } else {
             // value is already present in read only, delete from user
-            user().update(schema, search, MapUtil.of(e.getKey(), null));
+            diff.put(e.getKey(), null);
           }
         } else {
           if (readOnly != null && readOnly.containsKey(e.getKey())) {
             // already exists in read only part
             if (!Objects.equals(e.getValue(), readOnly.get(e.getKey()))) {
               // different from read only (create & update)
-              if (user().read(schema, search) == null)
-                user().create(schema, search);
-              user().update(schema, search, MapUtil.of(e.getKey(), e.getValue()));
+              diff.put(e.getKey(), e.getValue());
             } else {
               // noop since value is already present in read only
             }
           } else {
             // not present at all (create & update)
-            if (user().read(schema, search) == null)
-              user().create(schema, search);
-            user().update(schema, search, MapUtil.of(e.getKey(), e.getValue()));
+            diff.put(e.getKey(), e.getValue());
           }
         }
       }
     }
 
-    // make sure to delete zombie user object
-    Map<String, Object> onlyId = user().read(schema, search);
-    if (onlyId != null && onlyId.size() == 1) {
-      user().delete(schema, search);
+    if (user == null) {
+      Map<String, Object> create = new LinkedHashMap<>(search);
+      for (Entry<String, Object> e : diff.entrySet())
+        if (e.getValue() != null)
+          create.put(e.getKey(), e.getValue());
+      if (create.size() > search.size())
+        user().create(schema, create);
+    } else {
+      Set<String> keys = new HashSet<>(user.keySet());
+      for (Entry<String, Object> e : diff.entrySet())
+        if (e.getValue() == null)
+          keys.remove(e.getKey());
+        else
+          keys.add(e.getKey());
+
+      // make sure to delete zombie user object
+      if (keys.size() == 1)
+        user().delete(schema, search);
+      else if (!diff.isEmpty())
+        user().update(schema, search, diff);
     }
 
     return readOnly != null || user != null;
@@ -0,0 +1,30 @@
+package org.dashjoin.service.cluster;
+
+/**
+ * announces config changes to the other nodes of a cluster, so every node can cache the config
+ * and evict exactly the entries that were changed elsewhere
+ */
+public interface InvalidationBus {
+
+  /**
+   * receives the changes announced by other nodes
+   */
+  interface Listener {
+
+    /**
+     * the config object with ID id in table (e.g. dj-database, dj-config, Table) of the tenant was
+     * changed
+     */
+    void invalidate(String tenant, String table, String id);
+  }
+
+  /**
+   * announce a change to the other nodes. The listeners of this node are not called
+   */
+  void publish(String tenant, String table, String id);
+
+  /**
+   * register a listener for changes made on other nodes
+   */
+  void subscribe(Listener listener);
+}
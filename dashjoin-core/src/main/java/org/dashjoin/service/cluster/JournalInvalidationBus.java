@@ -0,0 +1,167 @@
+package org.dashjoin.service.cluster;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Default;
+import jakarta.inject.Inject;
+import org.dashjoin.util.DJRuntime;
+import org.dashjoin.util.Home;
+import org.dashjoin.util.MapUtil;
+import org.dashjoin.util.RuntimeDefinitions;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.java.Log;
+
+/**
+ * change journal in a folder shared by the nodes (under the home directory by default). Every
+ * change is a small file named time-node-sequence.json. Nodes list the folder periodically and
+ * deliver the entries they have not seen yet. Entries are removed after a while
+ */
+@ApplicationScoped
+@DJRuntime(RuntimeDefinitions.ONPREMISE)
+@Default
+@Log
+public class JournalInvalidationBus implements InvalidationBus {
+
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+
+  /**
+   * folder (relative to the home directory) of the journal
+   */
+  static String FOLDER = "cluster-journal";
+
+  /**
+   * entries older than this are removed
+   */
+  static long RETENTION_MS = 10 * 60 * 1000;
+
+  File folder;
+
+  /**
+   * poll interval, 0 disables the journal
+   */
+  long pollMs;
+
+  /**
+   * identifies the entries written by this node
+   */
+  String node = UUID.randomUUID().toString();
+
+  AtomicLong sequence = new AtomicLong();
+
+  List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * entries that were delivered or written by this node (null until the first poll)
+   */
+  Set<String> seen;
+
+  ScheduledExecutorService poller;
+
+  @Inject
+  public JournalInvalidationBus(Home home,
+      @ConfigProperty(name = "dashjoin.cluster.poll-ms", defaultValue = "1000") long pollMs) {
+    this(home.getFile(FOLDER), pollMs);
+  }
+
+  JournalInvalidationBus(File folder, long pollMs) {
+    this.folder = folder;
+    this.pollMs = pollMs;
+  }
+
+  @Override
+  public void publish(String tenant, String table, String id) {
+    if (pollMs <= 0)
+      return;
+    String name = String.format("%013d-%s-%d.json", System.currentTimeMillis(), node,
+        sequence.incrementAndGet());
+    try {
+      folder.mkdirs();
+
+      // write to a hidden temp file, so pollers never see a partially written entry
+      File tmp = new File(folder, "." + name);
+      objectMapper.writeValue(tmp, MapUtil.of("tenant", tenant, "table", table, "id", id));
+      try {
+        Files.move(tmp.toPath(), new File(folder, name).toPath(),
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp.toPath(), new File(folder, name).toPath(),
+            StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      log.log(Level.WARNING, "Error writing cluster journal entry " + name, e);
+    }
+  }
+
+  @Override
+  public synchronized void subscribe(Listener listener) {
+    listeners.add(listener);
+    if (pollMs <= 0 || poller != null)
+      return;
+
+    // entries written before this node started are not relevant
+    poll();
+
+    poller = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("cluster-journal").build());
+    poller.scheduleWithFixedDelay(this::poll, pollMs, pollMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * deliver the new entries written by other nodes and remove old entries
+   */
+  synchronized void poll() {
+    File[] files = folder.listFiles();
+    if (files == null)
+      return;
+    Arrays.sort(files, Comparator.comparing(File::getName));
+
+    boolean first = seen == null;
+    if (first)
+      seen = new HashSet<>();
+    Set<String> names = new HashSet<>();
+    long expired = System.currentTimeMillis() - RETENTION_MS;
+    for (File file : files) {
+      String name = file.getName();
+      if (name.startsWith(".") || !name.endsWith(".json"))
+        continue;
+      if (file.lastModified() < expired) {
+        file.delete();
+        continue;
+      }
+      names.add(name);
+      if (!seen.add(name) || first || name.contains("-" + node + "-"))
+        continue;
+      try {
+        Map<String, String> entry =
+            objectMapper.readValue(file, new TypeReference<Map<String, String>>() {});
+        for (Listener listener : listeners)
+          listener.invalidate(entry.get("tenant"), entry.get("table"), entry.get("id"));
+      } catch (Exception e) {
+        log.log(Level.WARNING, "Error processing cluster journal entry " + name, e);
+      }
+    }
+
+    // forget removed entries
+    seen.retainAll(names);
+  }
+}
@@ -0,0 +1,44 @@
+package org.dashjoin.service.cluster;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * in-JVM bus. Buses created from another bus simulate the nodes of a cluster, changes are delivered
+ * synchronously. Used for tests
+ */
+public class LocalInvalidationBus implements InvalidationBus {
+
+  List<LocalInvalidationBus> nodes;
+
+  List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * first node
+   */
+  public LocalInvalidationBus() {
+    nodes = new CopyOnWriteArrayList<>();
+    nodes.add(this);
+  }
+
+  /**
+   * another node in the cluster of node
+   */
+  public LocalInvalidationBus(LocalInvalidationBus node) {
+    nodes = node.nodes;
+    nodes.add(this);
+  }
+
+  @Override
+  public void publish(String tenant, String table, String id) {
+    for (LocalInvalidationBus node : nodes)
+      if (node != this)
+        for (Listener listener : node.listeners)
+          listener.invalidate(tenant, table, id);
+  }
+
+  @Override
+  public void subscribe(Listener listener) {
+    listeners.add(listener);
+  }
+}
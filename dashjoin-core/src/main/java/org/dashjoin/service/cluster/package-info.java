@@ -0,0 +1,4 @@
+/**
+ * Cluster hooks: announcing config changes to the other nodes
+ */
+package org.dashjoin.service.cluster;
@@ -0,0 +1,70 @@
+package org.dashjoin.util;
+
+import java.nio.charset.StandardCharsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * HyperLogLog sketch that estimates the number of distinct values in constant memory (2^precision
+ * bytes). The standard error is about 1.04 / sqrt(2^precision), i.e. 0.8% for the default
+ * precision 14
+ */
+public class HyperLogLog {
+
+  private static final HashFunction hash = Hashing.murmur3_128();
+
+  final int precision;
+  final byte[] registers;
+
+  public HyperLogLog() {
+    this(14);
+  }
+
+  public HyperLogLog(int precision) {
+    if (precision < 4 || precision > 18)
+      throw new IllegalArgumentException("precision must be between 4 and 18");
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  /**
+   * adds the value (based on its string representation)
+   */
+  public void add(Object value) {
+    addHash(hash.hashString(value.toString(), StandardCharsets.UTF_8).asLong());
+  }
+
+  /**
+   * adds a 64 bit hash value
+   */
+  public void addHash(long h) {
+    int index = (int) (h >>> (64 - precision));
+    // make sure the rank is bounded if the remaining bits are all 0
+    long w = (h << precision) | (1L << (precision - 1));
+    byte rank = (byte) (Long.numberOfLeadingZeros(w) + 1);
+    if (rank > registers[index])
+      registers[index] = rank;
+  }
+
+  /**
+   * returns the estimated number of distinct values
+   */
+  public long cardinality() {
+    int m = registers.length;
+    double sum = 0;
+    int zeros = 0;
+    for (byte r : registers) {
+      sum += 1.0 / (1L << r);
+      if (r == 0)
+        zeros++;
+    }
+    double alpha = 0.7213 / (1 + 1.079 / m);
+    double estimate = alpha * m * m / sum;
+
+    // small range correction (linear counting)
+    if (estimate <= 2.5 * m && zeros > 0)
+      estimate = m * Math.log((double) m / zeros);
+
+    return Math.round(estimate);
+  }
+}
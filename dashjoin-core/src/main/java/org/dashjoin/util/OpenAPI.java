@@ -13,6 +13,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import jakarta.ws.rs.core.SecurityContext;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -231,6 +232,42 @@ public class OpenAPI {
     return om.readTree(in);
   }
 
+  /**
+   * compiled routes by spec url
+   */
+  static final Map<String, CompiledRoutes> routes = new ConcurrentHashMap<>();
+
+  static class CompiledRoutes {
+    long lastModified;
+    Routes routes;
+  }
+
+  /**
+   * returns the routes compiled from the spec specified in the config db - returns null if no spec
+   * or no paths are configured. The routes are recompiled if a file spec changes or the spec is
+   * saved
+   */
+  public static Routes routes(Services services) throws Exception {
+    URL url = url(services);
+    if (url == null)
+      return null;
+
+    long lastModified = "file".equals(url.getProtocol())
+        ? Home.get().getFile(url.getPath()).lastModified()
+        : 0;
+    CompiledRoutes res = routes.get(url.toString());
+    if (res == null || res.lastModified != lastModified) {
+      JsonNode spec = open(services);
+      if (spec == null || spec.get("paths") == null)
+        return null;
+      res = new CompiledRoutes();
+      res.lastModified = lastModified;
+      res.routes = new Routes(spec.get("paths"));
+      routes.put(url.toString(), res);
+    }
+    return res.routes;
+  }
+
   /**
    * write openapi spec
    * 
@@ -242,6 +279,7 @@ public class OpenAPI {
       return;
     if (!sc.isUserInRole("admin"))
       throw new Exception("must be admin to save API spec");
+    routes.remove(url.toString());
     if ("file".equals(url.getProtocol())) {
       File file = Home.get().getFile(url.getPath());
       FileUtils.writeStringToFile(file, generate, Charset.defaultCharset());
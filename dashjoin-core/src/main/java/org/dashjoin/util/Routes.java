@@ -0,0 +1,156 @@
+package org.dashjoin.util;
+
+import static org.dashjoin.util.MapUtil.of;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * path-segment trie compiled from the paths of an openapi spec. Matches a URL with a single walk
+ * over its segments rather than matching every path template (see OpenAPI.matchPath). Like the
+ * linear scan, the first matching path in spec order wins
+ */
+public class Routes {
+
+  /**
+   * result of a successful match
+   */
+  public static class Match {
+
+    /**
+     * the path template (key in the spec's paths)
+     */
+    public String path;
+
+    /**
+     * the path item (operations by method)
+     */
+    public JsonNode item;
+
+    /**
+     * path parameters
+     */
+    public Map<String, Object> parameters;
+
+    /**
+     * position of the path in the spec
+     */
+    int order = Integer.MAX_VALUE;
+  }
+
+  /**
+   * templated segment prefix{name}postfix
+   */
+  static class Param {
+    String prefix;
+    String name;
+    String postfix;
+    Node node = new Node();
+  }
+
+  static class Node {
+    Map<String, Node> literals = new HashMap<>();
+    List<Param> params = new ArrayList<>();
+    String path;
+    JsonNode item;
+    int order;
+
+    /**
+     * lowest order of the paths in this subtree
+     */
+    int min = Integer.MAX_VALUE;
+  }
+
+  Node root = new Node();
+
+  /**
+   * compile the paths of the spec
+   */
+  public Routes(JsonNode paths) {
+    int order = 0;
+    for (Iterator<Entry<String, JsonNode>> i = paths.fields(); i.hasNext(); order++) {
+      Entry<String, JsonNode> e = i.next();
+      Node node = root;
+      node.min = Math.min(node.min, order);
+      for (String segment : e.getKey().split("/")) {
+        node = child(node, segment);
+        node.min = Math.min(node.min, order);
+      }
+      if (node.path == null) {
+        node.path = e.getKey();
+        node.item = e.getValue();
+        node.order = order;
+      }
+    }
+  }
+
+  Node child(Node node, String segment) {
+    int start = segment.indexOf('{');
+    int end = segment.lastIndexOf('}');
+    if (start < 0 || end < start)
+      return node.literals.computeIfAbsent(segment, k -> new Node());
+
+    String prefix = segment.substring(0, start);
+    String name = segment.substring(start + 1, end);
+    String postfix = segment.substring(end + 1);
+    for (Param p : node.params)
+      if (p.prefix.equals(prefix) && p.name.equals(name) && p.postfix.equals(postfix))
+        return p.node;
+    Param p = new Param();
+    p.prefix = prefix;
+    p.name = name;
+    p.postfix = postfix;
+    node.params.add(p);
+    return p.node;
+  }
+
+  /**
+   * returns the path item and path parameters matching the url or null if there is no match
+   */
+  public Match match(String url) {
+    Match res = new Match();
+    match(root, url.split("/"), 0, of(), res);
+    return res.path == null ? null : res;
+  }
+
+  /**
+   * walks all branches matching the segments, skipping subtrees that cannot beat the best match
+   */
+  void match(Node node, String[] segments, int index, Map<String, Object> parameters,
+      Match best) {
+    if (node.min >= best.order)
+      return;
+
+    if (index == segments.length) {
+      if (node.path != null && node.order < best.order) {
+        best.path = node.path;
+        best.item = node.item;
+        best.order = node.order;
+        best.parameters = of();
+        best.parameters.putAll(parameters);
+      }
+      return;
+    }
+
+    String segment = segments[index];
+    Node literal = node.literals.get(segment);
+    if (literal != null)
+      match(literal, segments, index + 1, parameters, best);
+
+    for (Param p : node.params)
+      if (segment.length() >= p.prefix.length() + p.postfix.length()
+          && segment.startsWith(p.prefix) && segment.endsWith(p.postfix)) {
+        Object old = parameters.put(p.name,
+            segment.substring(p.prefix.length(), segment.length() - p.postfix.length()));
+        match(p.node, segments, index + 1, parameters, best);
+        if (old == null)
+          parameters.remove(p.name);
+        else
+          parameters.put(p.name, old);
+      }
+  }
+}
@@ -0,0 +1,125 @@
+package org.dashjoin.util;
+
+import java.util.Arrays;
+
+/**
+ * t-digest style quantile sketch. Values are buffered and periodically merged into a bounded
+ * number of centroids. Centroids near the median may hold many values, whereas centroids at the
+ * tails stay small which keeps the extreme quantiles accurate
+ */
+public class TDigest {
+
+  final double compression;
+
+  double[] mean = new double[0];
+  double[] weight = new double[0];
+  int centroids;
+
+  final double[] buffer;
+  int buffered;
+
+  long count;
+  double min = Double.NaN;
+  double max = Double.NaN;
+
+  public TDigest() {
+    this(100);
+  }
+
+  public TDigest(double compression) {
+    this.compression = compression;
+    this.buffer = new double[(int) (5 * compression)];
+  }
+
+  public void add(double x) {
+    if (Double.isNaN(x))
+      return;
+    if (buffered == buffer.length)
+      compress();
+    buffer[buffered++] = x;
+    if (count == 0 || x < min)
+      min = x;
+    if (count == 0 || x > max)
+      max = x;
+    count++;
+  }
+
+  public long size() {
+    return count;
+  }
+
+  /**
+   * merges the buffered values into the centroids
+   */
+  void compress() {
+    if (buffered == 0)
+      return;
+
+    int n = centroids + buffered;
+    double[][] all = new double[n][];
+    for (int i = 0; i < centroids; i++)
+      all[i] = new double[] {mean[i], weight[i]};
+    for (int i = 0; i < buffered; i++)
+      all[centroids + i] = new double[] {buffer[i], 1};
+    Arrays.sort(all, (a, b) -> Double.compare(a[0], b[0]));
+
+    double[] m = new double[n];
+    double[] w = new double[n];
+    int c = 0;
+    double before = 0;
+    double curMean = all[0][0];
+    double curWeight = all[0][1];
+    for (int i = 1; i < n; i++) {
+      double proposed = curWeight + all[i][1];
+      double q = (before + proposed / 2) / count;
+      double limit = Math.max(1, 4 * count * q * (1 - q) / compression);
+      if (proposed <= limit) {
+        curMean += (all[i][0] - curMean) * all[i][1] / proposed;
+        curWeight = proposed;
+      } else {
+        m[c] = curMean;
+        w[c++] = curWeight;
+        before += curWeight;
+        curMean = all[i][0];
+        curWeight = all[i][1];
+      }
+    }
+    m[c] = curMean;
+    w[c++] = curWeight;
+
+    mean = Arrays.copyOf(m, c);
+    weight = Arrays.copyOf(w, c);
+    centroids = c;
+    buffered = 0;
+  }
+
+  /**
+   * returns the estimated value at quantile q (0..1), NaN if no values were added
+   */
+  public double quantile(double q) {
+    if (q < 0 || q > 1)
+      throw new IllegalArgumentException("quantile must be between 0 and 1");
+    if (count == 0)
+      return Double.NaN;
+    compress();
+    if (centroids == 1)
+      return mean[0];
+
+    double index = q * count;
+    if (index <= weight[0] / 2)
+      return min + (mean[0] - min) * index / (weight[0] / 2);
+
+    // interpolate between the centers of the adjacent centroids
+    double center = weight[0] / 2;
+    for (int i = 1; i < centroids; i++) {
+      double next = center + (weight[i - 1] + weight[i]) / 2;
+      if (index <= next)
+        return mean[i - 1] + (mean[i] - mean[i - 1]) * (index - center) / (next - center);
+      center = next;
+    }
+
+    double last = weight[centroids - 1] / 2;
+    return mean[centroids - 1]
+        + (max - mean[centroids - 1]) * Math.min(1, (index - center) / last);
+  }
+}
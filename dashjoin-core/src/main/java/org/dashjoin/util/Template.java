@@ -68,6 +68,63 @@ public class Template {
     return template;
   }
 
+  /**
+   * template that is parsed once and can be applied repeatedly, replace(values, urlEncode) yields
+   * the same result as replace(template, values, urlEncode)
+   */
+  public static class Compiled {
+
+    final String template;
+
+    /**
+     * template split into literals (even positions) and variables (odd positions)
+     */
+    final String[] parts;
+
+    Compiled(String template) {
+      this.template = template;
+      List<String> res = new ArrayList<>();
+      Matcher m = pattern.matcher(template);
+      int last = 0;
+      while (m.find()) {
+        res.add(template.substring(last, m.start()));
+        res.add(m.group(1));
+        last = m.end();
+      }
+      res.add(template.substring(last));
+      parts = res.toArray(new String[res.size()]);
+    }
+
+    public Object replace(Map<String, Object> values, boolean urlEncode) {
+      // special case where template is a single var, retain type
+      if (parts.length == 3 && parts[0].isEmpty() && parts[2].isEmpty())
+        return values.get(parts[1]);
+
+      if (parts.length == 1)
+        return template;
+
+      StringBuilder b = new StringBuilder();
+      for (int i = 0; i < parts.length; i++)
+        if (i % 2 == 0)
+          b.append(parts[i]);
+        else {
+          Object value = values.get(parts[i]);
+          if (value == null)
+            b.append("${").append(parts[i]).append('}');
+          else
+            b.append(urlEncode ? Escape.form("" + value) : "" + value);
+        }
+      return b.toString();
+    }
+  }
+
+  /**
+   * parses the template for repeated use
+   */
+  public static Compiled compile(String template) {
+    return new Compiled(template);
+  }
+
   /**
    * translates the template to a SQL expression
    */
@@ -106,6 +106,24 @@ public class ExpressionServiceTest {
             .toString());
   }
 
+  @Test
+  public void traverseBatch() throws Exception {
+    SecurityContext sc = Mockito.mock(SecurityContext.class);
+    Mockito.when(sc.isUserInRole(ArgumentMatchers.anyString())).thenReturn(true);
+
+    // array of keys, unknown keys yield null
+    Assertions.assertEquals(
+        "[{\"ID\":1000,\"NAME\":\"dev-project\",\"BUDGET\":null},{\"ID\":1000,\"NAME\":\"dev-project\",\"BUDGET\":null},null]",
+        s.jsonata(sc, "$traverse(\"junit\", \"EMP\", [1, 2, 99], \"WORKSON\")", null, false)
+            .toString());
+
+    // path of fks ending with an incoming fk
+    Assertions.assertEquals("[\"mike\",\"joe\"]",
+        s.jsonata(sc,
+            "$traverse(\"junit\", \"EMP\", 1, [\"WORKSON\", \"dj/junit/EMP/WORKSON\"]).NAME",
+            null, false).toString());
+  }
+
   @Test
   public void map() throws Exception {
     SecurityContext sc = Mockito.mock(SecurityContext.class);
@@ -4,6 +4,7 @@ import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.StringReader;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.core.SecurityContext;
@@ -12,6 +13,7 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import org.apache.commons.io.input.ReaderInputStream;
 import org.dashjoin.expression.ExpressionService;
+import org.dashjoin.mapping.AbstractSource;
 import org.dashjoin.util.MapUtil;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -167,6 +169,61 @@ public class Doc2dataTest {
     Assertions.assertEquals("[[{a=1, b=2, c=3}], [{a=4, b=5, c=6}], [{a=7, b=8, c=9}]]", "" + res);
   }
 
+  @Test
+  public void testSniff() throws Exception {
+    Assertions.assertEquals(Doc2data.Format.JSON, Doc2data.sniff(" [1]".getBytes(), false));
+    Assertions.assertEquals(Doc2data.Format.XML, Doc2data.sniff("<a/>".getBytes(), false));
+    Assertions.assertEquals(Doc2data.Format.JSON, Doc2data.sniff("11".getBytes(), true));
+    Assertions.assertEquals(Doc2data.Format.CSV, Doc2data.sniff("1,2\n3,4".getBytes(), true));
+    Assertions.assertEquals(Doc2data.Format.CSV, Doc2data.sniff("id,name".getBytes(), true));
+  }
+
+  @Test
+  public void testxmlNamespace() throws Exception {
+    Doc2data f = new Doc2data();
+    Object res = f.parse(
+        "<?xml version=\"1.0\"?><p:c xmlns:p=\"urn:x\" b=\"2\" a=\"1\"><!-- c --><p:y>2</p:y></p:c>");
+    Assertions.assertEquals("{p:c={a=1, b=2, xmlns:p=urn:x, p:y=2}}", res.toString());
+  }
+
+  @Test
+  public void testStream() throws Exception {
+    Doc2data f = new Doc2data();
+    AbstractSource.context.set(new AbstractSource.Context());
+    AbstractSource.context.get().stream = true;
+    try {
+      Assertions.assertNull(f.parse("<c><y>1</y><y><z>2</z></y></c>"));
+      Assertions.assertNull(f.parseJson(
+          new ReaderInputStream(new StringReader("[1,2][3]"), Charset.defaultCharset()), true));
+      Assertions.assertNull(f.parse("id,name\n123,joe"));
+      Assertions.assertEquals("[1, {z=2}, 1, 2, 3, {name=joe, id=123}]",
+          "" + new ArrayList<>(AbstractSource.context.get().queue));
+    } finally {
+      AbstractSource.context.set(null);
+    }
+  }
+
+  @Test
+  public void testStreams() throws Exception {
+    Assertions.assertTrue(Doc2data.streams("$doc2data(url)"));
+    Assertions.assertTrue(Doc2data.streams(" $doc2data($string(x)) "));
+    Assertions.assertFalse(Doc2data.streams("$doc2data(url).items"));
+    Assertions.assertFalse(Doc2data.streams("$doc2data(a).b(c)"));
+    Assertions.assertFalse(Doc2data.streams("$doc2data($doc2data(a).url)"));
+    Assertions.assertFalse(Doc2data.streams(null));
+
+    // records are returned if the context does not stream
+    Doc2data f = new Doc2data();
+    AbstractSource.context.set(new AbstractSource.Context());
+    try {
+      Assertions.assertEquals("{c={y=[1, {z=2}]}}",
+          "" + f.parse("<c><y>1</y><y><z>2</z></y></c>"));
+      Assertions.assertTrue(AbstractSource.context.get().queue.isEmpty());
+    } finally {
+      AbstractSource.context.set(null);
+    }
+  }
+
   @Test
   public void testjsonata() throws Exception {
     SecurityContext sc = Mockito.mock(SecurityContext.class);
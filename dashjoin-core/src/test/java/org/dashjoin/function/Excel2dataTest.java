@@ -1,8 +1,13 @@
 package org.dashjoin.function;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import io.quarkus.test.junit.QuarkusTest;
@@ -10,22 +15,65 @@ import io.quarkus.test.junit.QuarkusTest;
 @QuarkusTest
 public class Excel2dataTest {
 
+  Excel2data f = new Excel2data() {
+    @Override
+    public Object run(String arg) throws Exception {
+      return null;
+    }
+
+    @Override
+    public String getID() {
+      return null;
+    }
+  };
+
   @Test
   public void testxlsx() throws Exception {
-    Excel2data f = new Excel2data() {
-      @Override
-      public Object run(String arg) throws Exception {
-        return null;
-      }
-
-      @Override
-      public String getID() {
-        return null;
-      }
-    };
     @SuppressWarnings("unchecked")
     Map<String, List<Map<String, Object>>> res = (Map<String, List<Map<String, Object>>>) f
         .parse(new URL("file:src/test/resources/data/import.xlsx").openStream());
     Assertions.assertEquals("mike", res.get("Tabelle1").get(1).get("name"));
   }
+
+  @Test
+  public void testStreamingMatchesWorkbook() throws Exception {
+    URL url = new URL("file:src/test/resources/data/import.xlsx");
+    Object stream = f.parse(url.openStream(), false);
+    Object model = f.parse(url.openStream(), true);
+    Assertions.assertEquals(model, stream);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testEvaluateFormulas() throws Exception {
+    // POI saves the formula without computing its cached value
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (XSSFWorkbook wb = new XSSFWorkbook()) {
+      Sheet sheet = wb.createSheet("s");
+      sheet.createRow(0).createCell(0).setCellValue("sum");
+      sheet.createRow(1).createCell(0).setCellFormula("1+2");
+      wb.write(out);
+    }
+
+    Map<String, List<Map<String, Object>>> cached = (Map<String, List<Map<String, Object>>>) f
+        .parse(new ByteArrayInputStream(out.toByteArray()));
+    Assertions.assertEquals(0.0, cached.get("s").get(0).get("sum"));
+    Map<String, List<Map<String, Object>>> live = (Map<String, List<Map<String, Object>>>) f
+        .parse(new ByteArrayInputStream(out.toByteArray()), true);
+    Assertions.assertEquals(3.0, live.get("s").get(0).get("sum"));
+  }
+
+  @Test
+  public void testRowHandler() throws Exception {
+    List<String> rows = new ArrayList<>();
+    f.parse(new URL("file:src/test/resources/data/import.xlsx").openStream(), false,
+        (sheet, row) -> rows.add(sheet + ":" + row.get("name")));
+    Assertions.assertEquals("Tabelle1:mike", rows.get(1));
+  }
+
+  @Test
+  public void testColumn() {
+    Assertions.assertEquals(0, Excel2data.SheetHandler.column("A1"));
+    Assertions.assertEquals(27, Excel2data.SheetHandler.column("AB12"));
+  }
 }
@@ -1,10 +1,21 @@
 package org.dashjoin.function;
 
 import static com.google.common.collect.ImmutableMap.of;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import jakarta.ws.rs.WebApplicationException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
 
 public class RestJsonTest {
 
@@ -19,6 +30,78 @@ public class RestJsonTest {
     });
   }
 
+  @Test
+  public void testCoalesce() throws Exception {
+    try (MockWebServer server = new MockWebServer()) {
+      server.enqueue(
+          new MockResponse().setBody("{\"x\":1}").setHeadersDelay(500, TimeUnit.MILLISECONDS));
+      server.enqueue(new MockResponse().setBody("{\"x\":2}"));
+      server.start();
+
+      int n = 8;
+      CountDownLatch start = new CountDownLatch(1);
+      ExecutorService pool = Executors.newFixedThreadPool(n);
+      List<Future<Object>> res = new ArrayList<>();
+      for (int i = 0; i < n; i++)
+        res.add(pool.submit(() -> {
+          start.await();
+          return rest("coalesce", server.url("/x").toString(), null).run(null);
+        }));
+      start.countDown();
+      for (Future<Object> f : res)
+        Assertions.assertEquals(of("x", 1), f.get());
+      pool.shutdown();
+      Assertions.assertEquals(1, server.getRequestCount());
+
+      // no cache, request is sent again
+      Assertions.assertEquals(of("x", 2),
+          rest("coalesce", server.url("/x").toString(), null).run(null));
+      Assertions.assertEquals(2, server.getRequestCount());
+    }
+  }
+
+  @Test
+  public void testCache() throws Exception {
+    try (MockWebServer server = new MockWebServer()) {
+      server.enqueue(new MockResponse().setBody("{\"x\":1}"));
+      server.enqueue(new MockResponse().setBody("{\"x\":2}"));
+      server.start();
+
+      String url = server.url("/x").toString() + "?q=${q}";
+      Assertions.assertEquals(of("x", 1), rest("cache", url, 60).run(of("q", "a b")));
+      Assertions.assertEquals(of("x", 1), rest("cache", url, 60).run(of("q", "a b")));
+      Assertions.assertEquals("/x?q=a+b", server.takeRequest().getPath());
+      Assertions.assertEquals(1, server.getRequestCount());
+
+      // different URL
+      Assertions.assertEquals(of("x", 2), rest("cache", url, 60).runAsync(of("q", "c")).get());
+      Assertions.assertEquals(2, server.getRequestCount());
+    }
+  }
+
+  @Test
+  public void testAsyncError() throws Exception {
+    try (MockWebServer server = new MockWebServer()) {
+      server.enqueue(new MockResponse().setResponseCode(404).setBody("{\"details\":\"gone\"}"));
+      server.start();
+
+      ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+          () -> rest("error", server.url("/x").toString(), null).runAsync(null).get());
+      Assertions.assertEquals(404,
+          ((WebApplicationException) e.getCause()).getResponse().getStatus());
+      Assertions.assertEquals("gone",
+          ((WebApplicationException) e.getCause()).getResponse().getEntity());
+    }
+  }
+
+  RestJson rest(String id, String url, Integer cacheSeconds) {
+    RestJson r = new RestJson();
+    r.ID = id;
+    r.url = url;
+    r.cacheSeconds = cacheSeconds;
+    return r;
+  }
+
   public static void main(String[] args) throws Exception {
 
     RestJson http;
@@ -0,0 +1,94 @@
+package org.dashjoin.function;
+
+import java.sql.Connection;
+import java.util.Map;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.SecurityContext;
+import org.dashjoin.expression.ExpressionService;
+import org.dashjoin.service.SQLDatabase;
+import org.dashjoin.service.Services;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+public class StatsTest {
+
+  @Inject
+  ExpressionService expr;
+
+  @Inject
+  Services services;
+
+  SecurityContext sc() {
+    SecurityContext sc = Mockito.mock(SecurityContext.class);
+    Mockito.when(sc.isUserInRole(ArgumentMatchers.anyString())).thenReturn(true);
+    return sc;
+  }
+
+  @Test
+  public void testStats() throws Exception {
+    Object res = expr.resolve(sc(), "$stats('junit', 'EMP')[ID='dj/junit/EMP/ID']", null);
+    Assertions.assertEquals(
+        "{ID=dj/junit/EMP/ID, count=2, nulls=0, countdistinct=2, min=1, max=2, q1=1.0, median=1.5, q3=2.0, dbType=INTEGER, type=number, detectedType=string}",
+        res.toString());
+  }
+
+  @Test
+  public void testPaging() throws Exception {
+    int page = Stats.PAGE_SIZE;
+    try {
+      Stats.PAGE_SIZE = 1;
+      Object res = expr.resolve(sc(), "$stats('junit', 'EMP')[ID='dj/junit/EMP/NAME'].count", null);
+      Assertions.assertEquals(2L, ((Number) res).longValue());
+    } finally {
+      Stats.PAGE_SIZE = page;
+    }
+  }
+
+  @Test
+  public void testLimit() throws Exception {
+    Object res =
+        expr.resolve(sc(), "$stats('junit', 'EMP', 1)[ID='dj/junit/EMP/NAME'].count", null);
+    Assertions.assertEquals(1L, ((Number) res).longValue());
+  }
+
+  @Test
+  public void testOffsetPaging() throws Exception {
+    // tables without a single primary key are paged by offset
+    SQLDatabase db = (SQLDatabase) services.getConfig().getDatabase("dj/junit");
+    int page = Stats.PAGE_SIZE;
+    try (Connection con = db.getConnection()) {
+      con.createStatement().execute("insert into NOKEY values(1, 'a'), (2, 'b'), (3, 'c')");
+      Stats.PAGE_SIZE = 2;
+      Object res = expr.resolve(sc(), "$stats('junit', 'NOKEY')[ID='dj/junit/NOKEY/ID']", null);
+      Assertions.assertEquals(3L, ((Map<?, ?>) res).get("count"));
+      Assertions.assertEquals(3L, ((Map<?, ?>) res).get("countdistinct"));
+      res = expr.resolve(sc(), "$stats('junit', 'NOKEY', 2)[ID='dj/junit/NOKEY/ID'].count", null);
+      Assertions.assertEquals(2L, ((Number) res).longValue());
+    } finally {
+      Stats.PAGE_SIZE = page;
+      try (Connection con = db.getConnection()) {
+        con.createStatement().execute("delete from NOKEY");
+      }
+    }
+  }
+
+  @Test
+  public void testPushdown() throws Exception {
+    Object res =
+        expr.resolve(sc(), "$stats('junit', 'EMP', null, true)[ID='dj/junit/EMP/NAME']", null);
+    Assertions.assertEquals(
+        "{ID=dj/junit/EMP/NAME, count=2, nulls=0, min=joe, max=mike, dbType=CHARACTER VARYING, type=string}",
+        res.toString());
+  }
+
+  @Test
+  public void testIsInt() {
+    Assertions.assertTrue(Stats.isInt("-2147483648"));
+    Assertions.assertFalse(Stats.isInt("2147483648"));
+    Assertions.assertTrue(Stats.isInt("+12"));
+  }
+}
@@ -1,11 +1,17 @@
 package org.dashjoin.mapping;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.core.SecurityContext;
 import org.dashjoin.expression.ExpressionService;
+import org.dashjoin.model.AbstractDatabase;
 import org.dashjoin.service.Services;
+import org.dashjoin.util.PerfTimer;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 import io.quarkus.test.junit.QuarkusTest;
 
@@ -59,4 +65,37 @@ public class InferenceTest {
     i.expression = "{\"a\":[{\"x\":1}], \"b\":[1,2,3]}";
     Assertions.assertEquals("{table=[{a=[{x=1}], b=[1, 2, 3]}]}", i.gather(sc).toString());
   }
+
+  @Test
+  public void testForeachFailure() throws Exception {
+    ETL i = new ETL() {
+      @Override
+      AbstractDatabase getTargetDatabase() {
+        return null;
+      }
+
+      @Override
+      AbstractDatabase load(AbstractDatabase db, Map<String, List<Map<String, Object>>> tables,
+          boolean first, Map<String, Set<Map<String, Object>>> delete, PerfTimer timer)
+          throws Exception {
+        throw new Exception("load failed");
+      }
+    };
+    Mockito.when(sc.isUserInRole(ArgumentMatchers.anyString())).thenReturn(true);
+    i.init(sc, services, expressionService, false);
+
+    // more records than fit into the queue
+    StringBuilder csv = new StringBuilder("id");
+    for (int r = 0; r < 5000; r++)
+      csv.append("\\n" + r);
+    i.foreach = "$doc2data(\"" + csv + "\")";
+    i.expression = "$";
+
+    Exception e = Assertions.assertThrows(Exception.class, () -> i.runInternal(null));
+    Assertions.assertEquals("load failed", e.getMessage());
+
+    // the producer blocked on the full queue is stopped
+    for (Thread t : Thread.getAllStackTraces().keySet())
+      Assertions.assertNotEquals("etl-null", t.getName());
+  }
 }
@@ -3,14 +3,22 @@ package org.dashjoin.service;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import jakarta.inject.Inject;
 import jakarta.ws.rs.NotAuthorizedException;
 import jakarta.ws.rs.core.SecurityContext;
 import jakarta.ws.rs.core.UriInfo;
 import org.dashjoin.function.AbstractConfigurableFunction;
 import org.dashjoin.function.Email;
+import org.dashjoin.model.AbstractDatabase;
 import org.dashjoin.model.QueryMeta;
 import org.dashjoin.model.Table;
+import org.dashjoin.service.ACLContainerRequestFilter.CompiledACL;
 import org.dashjoin.service.ACLContainerRequestFilter.Operation;
 import org.dashjoin.util.MapUtil;
 import org.jboss.resteasy.core.interception.jaxrs.ResponseContainerRequestContext;
@@ -29,6 +37,9 @@ import io.quarkus.test.junit.QuarkusTest;
 @QuarkusTest
 public class ACLContainerRequestFilterTest {
 
+  @Inject
+  Services services;
+
   @Test
   public void testFunction() {
     SecurityContext sc = Mockito.mock(SecurityContext.class);
@@ -127,6 +138,103 @@ public class ACLContainerRequestFilterTest {
     });
   }
 
+  @Test
+  public void testCompiledAcl() {
+    Random random = new Random(0);
+    List<String> roles = new ArrayList<>();
+    for (int i = 0; i < 50; i++)
+      roles.add("role" + i);
+
+    SQLDatabase db = new SQLDatabase();
+    db.name = "db";
+    db.readRoles = roles.subList(0, 40);
+    db.writeRoles = roles.subList(0, 10);
+    for (int i = 0; i < 2000; i++) {
+      Table t = Table.ofName("t" + i);
+      if (random.nextInt(10) == 0)
+        t.readRoles = Arrays.asList(roles.get(random.nextInt(50)), roles.get(random.nextInt(50)));
+      if (random.nextInt(10) == 0)
+        t.writeRoles = Arrays.asList(roles.get(random.nextInt(50)));
+      if (random.nextInt(500) == 0) {
+        t.tenantColumn = "tenant";
+        t.roleMappings = MapUtil.of(roles.get(random.nextInt(50)), "tenant");
+      }
+      db.tables.put(t.name, t);
+    }
+
+    for (int u = 0; u < 50; u++) {
+      Set<String> user = new HashSet<>();
+      for (String role : roles)
+        if (random.nextInt(5) > u % 5)
+          user.add(role);
+      SecurityContext sc = Mockito.mock(SecurityContext.class);
+      Mockito.when(sc.isUserInRole(ArgumentMatchers.anyString()))
+          .thenAnswer(i -> user.contains(i.getArgument(0)));
+      Principal principal = Mockito.mock(Principal.class);
+      Mockito.when(principal.getName()).thenReturn("user" + u);
+      Mockito.when(sc.getUserPrincipal()).thenReturn(principal);
+
+      for (Operation operation : Operation.values()) {
+        // reference: check every table individually
+        boolean allowed = true;
+        for (Table t : db.tables.values())
+          try {
+            ACLContainerRequestFilter.check(sc, db, t, operation);
+          } catch (NotAuthorizedException e) {
+            allowed = false;
+          }
+        try {
+          ACLContainerRequestFilter.check(sc, db, null, operation);
+          Assertions.assertTrue(allowed, "user" + u + " " + operation);
+        } catch (NotAuthorizedException e) {
+          Assertions.assertFalse(allowed, "user" + u + " " + operation);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testCompiledAclChange() {
+    SecurityContext sc = Mockito.mock(SecurityContext.class);
+    Mockito.when(sc.isUserInRole(ArgumentMatchers.contains("authenticated"))).thenReturn(true);
+    SQLDatabase db = new SQLDatabase();
+    Table table = Table.ofName("table");
+    db.tables.put("table", table);
+    db.readRoles = Arrays.asList("authenticated");
+    ACLContainerRequestFilter.check(sc, db);
+
+    // the pojo is not managed by the config DB, changes are picked up immediately
+    table.readRoles = Arrays.asList("other");
+    Assertions.assertThrows(NotAuthorizedException.class, () -> {
+      ACLContainerRequestFilter.check(sc, db);
+    });
+
+    table.readRoles = null;
+    db.tables.put("other", Table.ofName("other"));
+    ACLContainerRequestFilter.check(sc, db);
+
+    db.readRoles = Arrays.asList("other");
+    Assertions.assertThrows(NotAuthorizedException.class, () -> {
+      ACLContainerRequestFilter.check(sc, db);
+    });
+  }
+
+  @Test
+  public void testCompiledAclCache() throws Exception {
+    PojoDatabase config = (PojoDatabase) services.getConfig();
+    AbstractDatabase a = config.getDatabase("dj/junit");
+    AbstractDatabase b = config.getDatabase("dj/junit");
+    Assertions.assertNotSame(a, b);
+
+    // compiled once per database ID rather than per pojo
+    CompiledACL acl = ACLContainerRequestFilter.compile(a);
+    Assertions.assertSame(acl, ACLContainerRequestFilter.compile(b));
+
+    // recompiled after a config change
+    config.schema().invalidate("dj/junit");
+    Assertions.assertNotSame(acl, ACLContainerRequestFilter.compile(a));
+  }
+
   /**
    * make sure GET throws 401 unauthorized
    */
@@ -0,0 +1,53 @@
+package org.dashjoin.service;
+
+import org.dashjoin.model.AbstractDatabase;
+import org.dashjoin.model.Property;
+
+/**
+ * micro benchmark of the value converters used by AbstractDatabase.cast. Not a formal unit test (it
+ * asserts nothing and takes a few seconds). Run the main method and compare the times before and
+ * after changing the converters
+ */
+public class CastBenchmark {
+
+  static final int N = 1000000;
+
+  public static void main(String[] args) throws Exception {
+    String[] numbers = new String[1000];
+    for (int i = 0; i < numbers.length; i++)
+      numbers[i] = i % 3 == 0 ? "" + i : i % 3 == 1 ? "" + (i * 10000000000l) : i + ".5";
+    String[] dates = new String[1000];
+    for (int i = 0; i < dates.length; i++)
+      dates[i] = i % 2 == 0 ? "2021-01-19T10:33:" + (10 + i % 50) + "Z"
+          : "2021-11-06 05:" + (10 + i % 50) + ":44";
+
+    for (int round = 0; round < 3; round++) {
+      run("json numbers", new UnionDatabase(), numbers, p("integer", "INT"), p("number", "DOUBLE"));
+      run("sql numbers", new SQLDatabase(), numbers, p("integer", "INT"), p("number", "DOUBLE"));
+      run("sql dates", new SQLDatabase(), dates, p("date", "DATE"), p("date", "timestamptz"));
+    }
+  }
+
+  static Property p(String type, String dbType) {
+    Property p = new Property();
+    p.type = type;
+    p.dbType = dbType;
+    return p;
+  }
+
+  /**
+   * casts N values, every third one with the first property, the others with the second one
+   */
+  static void run(String name, AbstractDatabase db, String[] values, Property a, Property b)
+      throws Exception {
+    int hash = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < N; i++) {
+      int j = i % values.length;
+      Object res = db.cast(j % 3 == 0 ? a : b, values[j]);
+      hash += res.hashCode();
+    }
+    long ms = (System.nanoTime() - start) / 1000000;
+    System.out.println(name + ": " + ms + "ms per million values (" + hash + ")");
+  }
+}
@@ -0,0 +1,41 @@
+package org.dashjoin.service;
+
+import java.util.Map;
+import org.dashjoin.util.MapUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class FilterTest {
+
+  OdataApi api = new OdataApi();
+
+  @Test
+  public void testParse() throws Exception {
+    Assertions.assertNull(api.filter(null));
+    Assertions.assertEquals("ID eq 1", api.filter("ID eq 1").toString());
+    Assertions.assertEquals("or[and[A eq 1, B ne x], not[C gt 2.5]]",
+        api.filter("A eq 1 and B ne 'x' or not C gt 2.5").toString());
+    Assertions.assertEquals("and[A eq 1, or[B eq 2, B eq 3]]",
+        api.filter("A eq 1 and (B eq 2 or B eq 3)").toString());
+    Assertions.assertEquals("A in [1, it's]", api.filter("A in (1, 'it''s')").toString());
+    Assertions.assertEquals("A contains a b", api.filter("contains(A, 'a b')").toString());
+    Assertions.assertEquals("A eq null", api.filter("A eq null").toString());
+    Assertions.assertThrows(Exception.class, () -> api.filter("A eq 1)"));
+    Assertions.assertThrows(Exception.class, () -> api.filter("A like 1"));
+    Assertions.assertThrows(Exception.class, () -> api.filter("A eq 'x"));
+  }
+
+  @Test
+  public void testEvaluate() throws Exception {
+    Map<String, Object> row = MapUtil.of("ID", 2, "NAME", "joe", "X", null);
+    Assertions.assertTrue(api.filter("ID eq 2.0").test(row));
+    Assertions.assertTrue(api.filter("ID gt 1 and ID le 2").test(row));
+    Assertions.assertFalse(api.filter("not (ID ge 2)").test(row));
+    Assertions.assertTrue(api.filter("ID eq 5 or NAME eq 'joe'").test(row));
+    Assertions.assertTrue(api.filter("ID in (1, 2)").test(row));
+    Assertions.assertTrue(api.filter("contains(NAME, 'o')").test(row));
+    Assertions.assertFalse(api.filter("startswith(NAME, 'o')").test(row));
+    Assertions.assertTrue(api.filter("X eq null").test(row));
+    Assertions.assertFalse(api.filter("X lt 1").test(row));
+  }
+}
@@ -95,4 +95,36 @@ public class JsonApiTest {
     Assertions.assertEquals("[{NAME=joe, WORKSON=1000}, {NAME=mike, WORKSON=1000}]",
         p(api.getTable(uriInfo, sc, "junit", "EMP", "-ID", null, null, null)).toString());
   }
+
+  @Test
+  public void testAfter() throws Exception {
+    UriInfo uriInfo = Mockito.mock(UriInfo.class);
+    Mockito.when(uriInfo.getBaseUri()).thenReturn(new URI("http://localhost/"));
+    Mockito.when(uriInfo.getQueryParameters()).thenReturn(new MultivaluedHashMap<>());
+    SecurityContext sc = Mockito.mock(SecurityContext.class);
+    when(sc.isUserInRole(ArgumentMatchers.anyString())).thenReturn(true);
+
+    // first page continues with the key of the last record
+    Map<String, Object> page = api.getTable(uriInfo, sc, "junit", "EMP", null, null, null, "", 1);
+    Assertions.assertEquals("[{NAME=mike, WORKSON=1000}]", p(page).toString());
+    Assertions.assertEquals(
+        "http://localhost/rest/jsonapi/junit/EMP?page%5Bafter%5D=1&page%5Blimit%5D=1",
+        ((Map<String, Object>) page.get("links")).get("next"));
+
+    page = api.getTable(uriInfo, sc, "junit", "EMP", null, null, null, "1", 1);
+    Assertions.assertEquals("[{NAME=joe, WORKSON=1000}]", p(page).toString());
+
+    page = api.getTable(uriInfo, sc, "junit", "EMP", null, null, null, "2", 1);
+    Assertions.assertEquals("[]", p(page).toString());
+    Assertions.assertNull(((Map<String, Object>) page.get("links")).get("next"));
+
+    // descending
+    page = api.getTable(uriInfo, sc, "junit", "EMP", "-ID", null, null, "2", 1);
+    Assertions.assertEquals("[{NAME=mike, WORKSON=1000}]", p(page).toString());
+
+    Assertions.assertThrows(Exception.class,
+        () -> api.getTable(uriInfo, sc, "junit", "EMP", "NAME", null, null, "1", 1));
+    Assertions.assertThrows(Exception.class,
+        () -> api.getTable(uriInfo, sc, "junit", "EMP", null, null, 1, "1", 1));
+  }
 }
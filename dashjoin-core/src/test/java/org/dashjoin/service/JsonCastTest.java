@@ -40,6 +40,42 @@ public class JsonCastTest {
     Assertions.assertEquals(99999999999l, db().cast(p("number", "BIGINT"), "99999999999"));
   }
 
+  @Test
+  public void testIntegerRange() throws Exception {
+    Assertions.assertEquals(-5, db().cast(p("integer", "INT"), "-5"));
+    Assertions.assertEquals(5, db().cast(p("integer", "INT"), "+5"));
+    Assertions.assertEquals(2147483648l, db().cast(p("integer", "BIGINT"), "2147483648"));
+    Assertions.assertEquals(Long.MAX_VALUE, db().cast(p("number", "BIGINT"), "" + Long.MAX_VALUE));
+    Assertions.assertEquals(Long.MIN_VALUE, db().cast(p("number", "BIGINT"), "" + Long.MIN_VALUE));
+    Assertions.assertEquals(9223372036854775808d,
+        db().cast(p("number", "DOUBLE"), "9223372036854775808"));
+    Assertions.assertEquals(1000d, db().cast(p("number", "DOUBLE"), "1e3"));
+    Assertions.assertThrows(NumberFormatException.class,
+        () -> db().cast(p("integer", "INT"), "abc"));
+    Assertions.assertThrows(NumberFormatException.class,
+        () -> db().cast(p("number", "INT"), "abc"));
+
+    // non string values are passed through
+    Assertions.assertEquals(5l, db().cast(p("integer", "INT"), 5l));
+  }
+
+  @Test
+  public void testConverter() throws Exception {
+    AbstractDatabase db = db();
+    db.ID = "dj/converter";
+    Property p = p("integer", "INT");
+
+    // compiled once per property and database
+    Assertions.assertSame(db.converter(p), db.converter(p));
+    AbstractDatabase other = db();
+    other.ID = "dj/other";
+    Assertions.assertEquals(5, other.cast(p, "5"));
+
+    // recompiled if the type changes
+    p.type = "boolean";
+    Assertions.assertEquals(true, db.cast(p, "true"));
+  }
+
   @Test
   public void testFloat() throws Exception {
     // uses double at the moment
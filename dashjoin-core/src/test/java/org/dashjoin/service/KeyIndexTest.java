@@ -0,0 +1,117 @@
+package org.dashjoin.service;
+
+import java.util.List;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.SecurityContext;
+import org.dashjoin.model.AbstractDatabase;
+import org.dashjoin.model.Table;
+import org.dashjoin.service.Data.Choice;
+import org.dashjoin.util.MapUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+public class KeyIndexTest {
+
+  @Inject
+  Services services;
+
+  @Inject
+  Data data;
+
+  @Test
+  public void testIndexRowsConfig() throws Exception {
+    PojoDatabase config = (PojoDatabase) services.getConfig();
+    AbstractDatabase db = config.getDatabase("dj/junit");
+    Table m = db.tables.get("EMP");
+    SecurityContext sc = Mockito.mock(SecurityContext.class);
+    Mockito.when(sc.isUserInRole(ArgumentMatchers.anyString())).thenReturn(true);
+
+    // the index is built with the default setting
+    KeyIndex.invalidate(db, m);
+    data.keys(sc, "junit", "EMP", "1", 10);
+    Assertions.assertTrue(KeyIndex.indexes.getIfPresent(KeyIndex.key(db, m)).isPresent());
+
+    // and disabled right after the setting is changed
+    Table t = Table.ofName("dj-config");
+    try {
+      config.update(t, MapUtil.of("ID", "autocomplete-index-rows"), MapUtil.of("integer", 0));
+      KeyIndex.invalidate(db, m);
+      Assertions.assertEquals(1, data.keys(sc, "junit", "EMP", "1", 10).size());
+      Assertions.assertNull(KeyIndex.indexes.getIfPresent(KeyIndex.key(db, m)));
+    } finally {
+      config.delete(t, MapUtil.of("ID", "autocomplete-index-rows"));
+    }
+  }
+
+  @Test
+  public void testIndex() throws Exception {
+    AbstractDatabase db = services.getConfig().getDatabase("dj/junit");
+    Table m = db.tables.get("EMP");
+    KeyIndex.invalidate(db, m);
+
+    List<Choice> res = KeyIndex.keys(db, m, "1", 10, null, 1000);
+    Assertions.assertEquals(1, res.size());
+    Assertions.assertEquals(1, res.get(0).value);
+    Assertions.assertTrue(KeyIndex.indexes.getIfPresent(KeyIndex.key(db, m)).isPresent());
+    Assertions.assertEquals(2, KeyIndex.keys(db, m, null, 10, null, 1000).size());
+    Assertions.assertEquals(1, KeyIndex.keys(db, m, null, 1, null, 1000).size());
+
+    // writes via Data refresh the index
+    SecurityContext sc = Mockito.mock(SecurityContext.class);
+    Mockito.when(sc.isUserInRole(ArgumentMatchers.anyString())).thenReturn(true);
+    data.create(sc, "junit", "EMP", MapUtil.of("ID", 17, "NAME", "new"));
+    try {
+      Assertions.assertFalse(KeyIndex.indexes.asMap().containsKey(KeyIndex.key(db, m)));
+      Assertions.assertEquals(2, KeyIndex.keys(db, m, "1", 10, null, 1000).size());
+    } finally {
+      data.delete(sc, "junit", "EMP", "17");
+    }
+    Assertions.assertEquals(1, KeyIndex.keys(db, m, "1", 10, null, 1000).size());
+  }
+
+  @Test
+  public void testPrefixCache() throws Exception {
+    AbstractDatabase db = services.getConfig().getDatabase("dj/junit");
+    Table m = db.tables.get("EMP");
+    KeyIndex.invalidate(db, m);
+
+    // table is too large to be indexed, recent prefixes are cached
+    Assertions.assertEquals(1, KeyIndex.keys(db, m, "2", 10, null, 1).size());
+    Assertions.assertFalse(KeyIndex.indexes.getIfPresent(KeyIndex.key(db, m)).isPresent());
+    Assertions.assertEquals(1, cached(db, m));
+    Assertions.assertEquals(1, KeyIndex.keys(db, m, "2", 10, null, 1).size());
+    Assertions.assertEquals(1, cached(db, m));
+
+    KeyIndex.invalidate(db, m);
+    Assertions.assertEquals(0, cached(db, m));
+  }
+
+  @Test
+  public void testTenantKey() throws Exception {
+    PojoDatabase config = (PojoDatabase) services.getConfig();
+    AbstractDatabase db = config.getDatabase("dj/junit");
+    Table m = db.tables.get("EMP");
+
+    // the same database ID in another tenant does not share the caches
+    PojoDatabase tenant = new PojoDatabase();
+    tenant._tenant = "other";
+    AbstractDatabase other = new SQLDatabase() {
+      @Override
+      public Config config() {
+        return tenant;
+      }
+    };
+    other.ID = db.ID;
+    Assertions.assertNotEquals(KeyIndex.key(db, m), KeyIndex.key(other, m));
+    Assertions.assertFalse(KeyIndex.key(other, m).startsWith(KeyIndex.key(db, m)));
+  }
+
+  long cached(AbstractDatabase db, Table m) {
+    return KeyIndex.prefixes.asMap().keySet().stream()
+        .filter(k -> k.startsWith(KeyIndex.key(db, m))).count();
+  }
+}
@@ -4,6 +4,7 @@ import static org.dashjoin.service.QueryEditor.Col.col;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.Statement;
+import java.util.Arrays;
 import jakarta.inject.Inject;
 import org.dashjoin.model.Table;
 import org.dashjoin.service.Metadata.Key;
@@ -53,6 +54,49 @@ public class MetadataTest {
     }
   }
 
+  @Test
+  public void testFingerprint() throws Exception {
+    String url = "jdbc:h2:mem:fingerprint";
+    try (Connection con = DriverManager.getConnection(url)) {
+      try (Statement s = con.createStatement()) {
+        s.execute("create table t(a int not null, b int not null)");
+        s.execute("create table s(i int, x int)");
+        String empty = Metadata.fingerprint(con, url, null);
+        Assertions.assertEquals(empty, Metadata.fingerprint(con, url, null));
+
+        s.execute("alter table t add primary key (a)");
+        String pk = Metadata.fingerprint(con, url, null);
+        Assertions.assertNotEquals(empty, pk);
+
+        s.execute("alter table s add constraint fk foreign key (x) references t(a)");
+        String fk = Metadata.fingerprint(con, url, null);
+        Assertions.assertNotEquals(pk, fk);
+
+        // same columns, different key
+        s.execute("alter table s drop constraint fk");
+        s.execute("alter table t drop primary key");
+        s.execute("alter table t add primary key (b)");
+        Assertions.assertNotEquals(pk, Metadata.fingerprint(con, url, null));
+
+        Assertions.assertTrue(
+            Metadata.keys(con, con.getMetaData(), null, "PUBLIC", Arrays.asList("T"))
+                .contains(" T.B 1 "));
+      }
+    }
+
+    // sqlite has no information schema, keys are read table by table
+    url = "jdbc:sqlite::memory:";
+    try (Connection con = DriverManager.getConnection(url)) {
+      try (Statement s = con.createStatement()) {
+        s.execute("create table t(a int primary key)");
+        s.execute("create table s(i int, x int references t(a))");
+        String keys = Metadata.keys(con, con.getMetaData(), null, null, Arrays.asList("t", "s"));
+        Assertions.assertTrue(keys.contains(" t.a 1"));
+        Assertions.assertTrue(keys.contains(" s.x 1 t.a"));
+      }
+    }
+  }
+
   @Test
   public void testMultipleFksToSameTable() {
     MdTable t = new MdTable("t");
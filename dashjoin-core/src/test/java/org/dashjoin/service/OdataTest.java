@@ -1,9 +1,11 @@
 package org.dashjoin.service;
 
 import static org.mockito.Mockito.when;
+import java.util.Map;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.core.SecurityContext;
 import jakarta.ws.rs.core.UriInfo;
+import org.dashjoin.util.MapUtil;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
@@ -85,4 +87,76 @@ public class OdataTest {
         api.getTable(uriInfo, sc, "junit", "EMP", null, "NAME, WORKSON", "ID desc", null, null)
             .toString());
   }
+
+  @Test
+  public void testFilterOperators() throws Exception {
+    UriInfo uriInfo = Mockito.mock(UriInfo.class);
+    SecurityContext sc = Mockito.mock(SecurityContext.class);
+    when(sc.isUserInRole(ArgumentMatchers.anyString())).thenReturn(true);
+    Assertions.assertEquals("{value=[{ID=2}]}", api
+        .getTable(uriInfo, sc, "junit", "EMP", "ID gt 1", "ID", null, null, null).toString());
+    Assertions.assertEquals("{value=[{ID=1}, {ID=2}]}",
+        api.getTable(uriInfo, sc, "junit", "EMP", "ID ge 1 and ID le 2", "ID", "ID", null, null)
+            .toString());
+    Assertions.assertEquals("{value=[{ID=1}]}", api
+        .getTable(uriInfo, sc, "junit", "EMP", "not (ID ne 1)", "ID", null, null, null).toString());
+    Assertions.assertEquals("{value=[{ID=1}, {ID=2}]}",
+        api.getTable(uriInfo, sc, "junit", "EMP", "NAME eq 'joe' or ID lt 2", "ID", "ID", null,
+            null).toString());
+    Assertions.assertEquals("{value=[{ID=2}]}", api
+        .getTable(uriInfo, sc, "junit", "EMP", "ID in (2, 3)", "ID", null, null, null).toString());
+    Assertions.assertEquals("{value=[{NAME=mike}]}",
+        api.getTable(uriInfo, sc, "junit", "EMP", "contains(NAME,'ik')", "NAME", null, null, null)
+            .toString());
+    Assertions.assertEquals("{value=[{NAME=joe}]}",
+        api.getTable(uriInfo, sc, "junit", "EMP", "startswith(NAME,'jo')", "NAME", null, null,
+            null).toString());
+    Assertions.assertEquals("{value=[]}",
+        api.getTable(uriInfo, sc, "junit", "EMP", "contains(NAME,'%')", "NAME", null, null, null)
+            .toString());
+    Assertions.assertThrows(Exception.class,
+        () -> api.getTable(uriInfo, sc, "junit", "EMP", "ID eq", null, null, null, null));
+    Assertions.assertThrows(Exception.class,
+        () -> api.getTable(uriInfo, sc, "junit", "EMP", "X eq 1", null, null, null, null));
+  }
+
+  @Test
+  public void testFilterNull() throws Exception {
+    UriInfo uriInfo = Mockito.mock(UriInfo.class);
+    SecurityContext sc = Mockito.mock(SecurityContext.class);
+    when(sc.isUserInRole(ArgumentMatchers.anyString())).thenReturn(true);
+    Assertions.assertEquals("{value=[{ID=1000}, {ID=1001}]}", api
+        .getTable(uriInfo, sc, "junit", "PRJ", "BUDGET ne 5", "ID", "ID", null, null).toString());
+    Assertions.assertEquals("{value=[]}", api
+        .getTable(uriInfo, sc, "junit", "PRJ", "not (BUDGET ne 5)", "ID", "ID", null, null)
+        .toString());
+    Assertions.assertEquals("{value=[{ID=1000}, {ID=1001}]}", api
+        .getTable(uriInfo, sc, "junit", "PRJ", "not (BUDGET eq 5)", "ID", "ID", null, null)
+        .toString());
+    Assertions.assertEquals("{value=[{ID=1000}]}", api
+        .getTable(uriInfo, sc, "junit", "PRJ", "not (BUDGET gt 5 or ID gt 1000)", "ID", "ID", null,
+            null)
+        .toString());
+    Assertions.assertEquals("{value=[{ID=1001}]}", api
+        .getTable(uriInfo, sc, "junit", "PRJ", "not (not (ID gt 1000))", "ID", "ID", null, null)
+        .toString());
+
+    // the SQL predicate agrees with the in-memory evaluation
+    Map<String, Object> row = MapUtil.of("ID", 1000, "BUDGET", null);
+    Assertions.assertTrue(new OdataApi().filter("BUDGET ne 5").test(row));
+    Assertions.assertFalse(new OdataApi().filter("not (BUDGET ne 5)").test(row));
+    Assertions.assertTrue(new OdataApi().filter("not (BUDGET eq 5)").test(row));
+    Assertions.assertTrue(new OdataApi().filter("not (BUDGET gt 5 or ID gt 1000)").test(row));
+  }
+
+  @Test
+  public void testCount() throws Exception {
+    UriInfo uriInfo = Mockito.mock(UriInfo.class);
+    SecurityContext sc = Mockito.mock(SecurityContext.class);
+    when(sc.isUserInRole(ArgumentMatchers.anyString())).thenReturn(true);
+    Assertions.assertEquals(2, api.getCount(uriInfo, sc, "junit", "EMP", null));
+    Assertions.assertEquals(1, api.getCount(uriInfo, sc, "junit", "EMP", "NAME eq 'joe'"));
+    Assertions.assertEquals("{@odata.count=2, value=[{ID=1}]}",
+        api.getTable(uriInfo, sc, "junit", "EMP", null, "ID", "ID", 1, null, true).toString());
+  }
 }
@@ -2,9 +2,17 @@ package org.dashjoin.service;
 
 import static com.google.common.collect.ImmutableMap.of;
 import static com.google.common.collect.Maps.newHashMap;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.core.SecurityContext;
 import org.dashjoin.model.AbstractDatabase;
@@ -14,11 +22,15 @@ import org.dashjoin.model.Table;
 import org.dashjoin.service.Data.Choice;
 import org.dashjoin.service.QueryEditor.InitialQueryRequest;
 import org.dashjoin.service.QueryEditor.QueryResponse;
+import org.dashjoin.service.cluster.InvalidationBus;
+import org.dashjoin.service.cluster.LocalInvalidationBus;
 import org.dashjoin.util.MapUtil;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.arc.ClientProxy;
 import io.quarkus.test.junit.QuarkusTest;
 
 /**
@@ -67,6 +79,122 @@ public class PojoDatabaseTest {
     Assertions.assertEquals("test", db.tables.get("dj-database").properties.get("ID").widget);
   }
 
+  @Test
+  public void testSharedMemo() throws Exception {
+    // config pojos are created per lookup and share the memoized reads of the root
+    PojoDatabase config = (PojoDatabase) services.getConfig();
+    PojoDatabase pojo = (PojoDatabase) config.getDatabase("dj/config");
+    Assertions.assertNotSame(config, pojo);
+    Assertions.assertSame(config._memo, pojo.memo());
+
+    Table t = Table.ofName("dj-role");
+    config._memo.invalidate("dj-role/admin");
+    for (int i = 0; i < 2; i++)
+      Assertions.assertNotNull(pojo.read(t, of("ID", "admin")));
+    Assertions.assertNotNull(config._memo.getIfPresent("dj-role/admin"));
+  }
+
+  @Test
+  public void testConfigSnapshot() throws Exception {
+    PojoDatabase config = (PojoDatabase) services.getConfig();
+    AbstractDatabase db = config.getDatabase("dj/junit");
+    Table t = Table.ofName("dj-config");
+
+    // classpath defaults, the snapshot is only replaced on writes
+    Assertions.assertEquals(5000, config.getAllTimeoutMs());
+    Assertions.assertEquals(2000, config.getAutocompleteTimeoutMs());
+    Assertions.assertFalse(config.excludeFromSearch(db));
+    Assertions.assertEquals(Arrays.asList("query"),
+        config.getConfigSnapshot().externalizeFields("dj-query-catalog"));
+    Assertions.assertSame(config.getConfigSnapshot(), config.getConfigSnapshot());
+
+    // edits are picked up immediately
+    try {
+      config.update(t, of("ID", "all-timeout-ms"), newHashMap(of("integer", 1234)));
+      Assertions.assertEquals(1234, config.getAllTimeoutMs());
+      config.update(t, of("ID", "all-timeout-ms"), newHashMap(of("integer", 0)));
+      Assertions.assertNull(config.getAllTimeoutMs());
+
+      config.update(t, of("ID", "exclude-database-from-search"),
+          newHashMap(of("list", Arrays.asList("junit"))));
+      Assertions.assertTrue(config.excludeFromSearch(db));
+      config.update(t, of("ID", "exclude-table-from-search"),
+          newHashMap(of("list", Arrays.asList("EMP"))));
+      Assertions.assertFalse(config.searchTables(db).contains(db.tables.get("EMP")));
+      config.update(t, of("ID", "database-search-query"),
+          newHashMap(of("map", of("junit", "search"))));
+      Assertions.assertEquals("search", config.databaseSearchQuery(db));
+    } finally {
+      config.delete(t, of("ID", "all-timeout-ms"));
+      config.delete(t, of("ID", "exclude-database-from-search"));
+      config.delete(t, of("ID", "exclude-table-from-search"));
+      config.delete(t, of("ID", "database-search-query"));
+    }
+    Assertions.assertEquals(5000, config.getAllTimeoutMs());
+    Assertions.assertFalse(config.excludeFromSearch(db));
+    Assertions.assertTrue(config.searchTables(db).contains(db.tables.get("EMP")));
+    Assertions.assertNull(config.databaseSearchQuery(db));
+  }
+
+  @Test
+  public void testInvalidationBus() throws Exception {
+    PojoDatabase config = (PojoDatabase) services.getConfig();
+    Table t = Table.ofName("dj-config");
+
+    // second node sharing the config files
+    PojoDatabase node = services.pojoDatabase();
+    LocalInvalidationBus bus = new LocalInvalidationBus();
+    new LocalInvalidationBus(bus).subscribe((tenant, table, id) -> node.invalidate(table, id));
+    Assertions.assertEquals(5000, node.getAllTimeoutMs());
+    long changes = node.schema().changes("dj/junit");
+
+    // services is a client proxy, set the bus on the instance
+    Services instance = ClientProxy.unwrap(services);
+    InvalidationBus old = instance.invalidationBus;
+    instance.invalidationBus = bus;
+    try {
+      config.update(t, of("ID", "all-timeout-ms"), newHashMap(of("integer", 1234)));
+      Assertions.assertEquals(1234, node.getAllTimeoutMs());
+
+      config.update(Table.ofName("Table"), of("ID", "dj/junit/EMP"),
+          newHashMap(of("title", "Employees")));
+      Assertions.assertEquals(changes + 1, node.schema().changes("dj/junit"));
+      config.update(Table.ofName("Table"), of("ID", "dj/junit/EMP"), MapUtil.of("title", null));
+
+      config.delete(t, of("ID", "all-timeout-ms"));
+      Assertions.assertEquals(5000, node.getAllTimeoutMs());
+    } finally {
+      instance.invalidationBus = old;
+      config.delete(t, of("ID", "all-timeout-ms"));
+    }
+  }
+
+  @Test
+  public void testGetSchema() throws Exception {
+    services.getConfig().metadataCollection();
+    PojoDatabase config = (PojoDatabase) services.getConfig();
+
+    // table and column IDs resolve to the table
+    Table emp = config.getSchema("dj/junit/EMP");
+    Assertions.assertEquals("EMP", emp.name);
+    Assertions.assertSame(emp, config.getSchema("dj/junit/EMP/NAME"));
+    Assertions.assertNull(config.getSchema("dj/junit/UNKNOWN"));
+    Assertions.assertNull(config.getSchema("dj/unknown/EMP"));
+    Assertions.assertNull(config.getSchema("dj/junit"));
+
+    // the database is re-indexed after a change
+    config.update(Table.ofName("Table"), of("ID", "dj/junit/EMP"),
+        newHashMap(of("title", "Employees")));
+    try {
+      Assertions.assertEquals("Employees", config.getSchema("dj/junit/EMP").title);
+      Assertions.assertEquals("Employees",
+          config.read(Table.ofName("Table"), of("ID", "dj/junit/EMP")).get("title"));
+    } finally {
+      config.update(Table.ofName("Table"), of("ID", "dj/junit/EMP"), MapUtil.of("title", null));
+    }
+    Assertions.assertNull(config.getSchema("dj/junit/EMP").title);
+  }
+
   @Test
   public void update() throws Exception {
     PojoDatabase config = services.pojoDatabase();
@@ -310,4 +438,162 @@ public class PojoDatabaseTest {
     Assertions
         .assertTrue(PojoDatabase.parse("2022-10-20T11:01:15.070+00:00").toString().endsWith(":01"));
   }
+
+  @Test
+  public void testParallelMetadataCollection() throws Exception {
+    PojoDatabase config = services.pojoDatabase();
+    List<AbstractDatabase> dbs = new ArrayList<>();
+    for (int i = 0; i < 4; i++)
+      dbs.add(h2("parallel" + i, null, null));
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(1);
+    SQLDatabase slow = h2("parallelslow", release, done);
+    dbs.add(slow);
+
+    PojoDatabase test = new PojoDatabase(services) {
+      @Override
+      public List<AbstractDatabase> getDatabases() throws Exception {
+        return dbs;
+      }
+    };
+    test._cache = new ConcurrentHashMap<>();
+    test._user = config._user;
+    test._dbs = new CopyOnWriteArrayList<>(config._dbs);
+
+    long timeout = PojoDatabase.METADATA_TIMEOUT_MS;
+    PojoDatabase.METADATA_TIMEOUT_MS = 2000;
+    try {
+      test.metadataCollection();
+
+      // returns while the slow database is still blocked, the others are ready
+      Assertions.assertEquals(1, release.getCount());
+      Assertions.assertNull(slow._cp);
+      for (AbstractDatabase db : dbs.subList(0, 4))
+        Assertions.assertNotNull(((SQLDatabase) test.getCached(db.ID))._cp);
+
+      // slow database is done in the background
+      release.countDown();
+      Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+      Assertions.assertNotNull(slow._cp);
+    } finally {
+      release.countDown();
+      PojoDatabase.METADATA_TIMEOUT_MS = timeout;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testMetadataSnapshot() throws Exception {
+    String url = "jdbc:h2:mem:snapshot;DB_CLOSE_DELAY=-1";
+    try (Connection con = DriverManager.getConnection(url)) {
+      con.createStatement().execute("create table if not exists S(ID int primary key)");
+    }
+    MetadataSnapshot.file("dj/snapshot").delete();
+
+    AtomicInteger crawls = new AtomicInteger();
+    PojoDatabase config = services.pojoDatabase();
+
+    // no snapshot, collect the metadata and save the snapshot
+    PojoDatabase test = config(config);
+    test.metadataCollectionEx(snapshot(url, crawls), true);
+    Assertions.assertEquals(1, crawls.get());
+    MetadataSnapshot saved =
+        new ObjectMapper().readValue(MetadataSnapshot.file("dj/snapshot"), MetadataSnapshot.class);
+    Assertions.assertTrue(saved.tables.containsKey("S"));
+
+    // restart with the same schema
+    test = config(config);
+    SQLDatabase db = snapshot(url, crawls);
+    test.metadataCollectionEx(db, true);
+    PojoDatabase.snapshotExecutor.submit(() -> {
+    }).get();
+    Assertions.assertEquals(1, crawls.get());
+    Assertions.assertNotNull(db._cp);
+    Map<String, Object> status = status(test, "dj/snapshot");
+    Assertions.assertEquals("OK", status.get("status"));
+    Assertions.assertTrue(((Map<String, Object>) status.get("tables")).containsKey("S"));
+
+    // restart with a changed schema, snapshot is served and updated in the background
+    try (Connection con = DriverManager.getConnection(url)) {
+      con.createStatement().execute("alter table S add column NAME varchar(255)");
+    }
+    test = config(config);
+    test.metadataCollectionEx(snapshot(url, crawls), true);
+    PojoDatabase.snapshotExecutor.submit(() -> {
+    }).get();
+    Assertions.assertEquals(2, crawls.get());
+    Map<String, Object> s = (Map<String, Object>) ((Map<String, Object>) status(test,
+        "dj/snapshot").get("tables")).get("S");
+    Assertions.assertTrue(((Map<String, Object>) s.get("properties")).containsKey("NAME"));
+    saved =
+        new ObjectMapper().readValue(MetadataSnapshot.file("dj/snapshot"), MetadataSnapshot.class);
+    Assertions.assertTrue(((Map<String, Object>) ((Map<String, Object>) saved.tables.get("S"))
+        .get("properties")).containsKey("NAME"));
+
+    // explicit metadata collection ignores the snapshot
+    test = config(config);
+    test.metadataCollectionEx(snapshot(url, crawls));
+    Assertions.assertEquals(3, crawls.get());
+  }
+
+  PojoDatabase config(PojoDatabase config) {
+    PojoDatabase test = new PojoDatabase(services);
+    test._cache = new ConcurrentHashMap<>();
+    test._user = config._user;
+    test._dbs = new CopyOnWriteArrayList<>(config._dbs);
+    return test;
+  }
+
+  @SuppressWarnings("unchecked")
+  Map<String, Object> status(PojoDatabase config, String id) {
+    for (JSONDatabase db : config._dbs)
+      if (db instanceof ProviderDatabase && ((ProviderDatabase) db).ID.equals(id))
+        return ((ProviderDatabase) db).data.get("dj-database").get(id);
+    return null;
+  }
+
+  SQLDatabase snapshot(String url, AtomicInteger crawls) {
+    SQLDatabase db = new SQLDatabase() {
+      @Override
+      public Map<String, Object> connectAndCollectMetadata() throws Exception {
+        crawls.incrementAndGet();
+        return super.connectAndCollectMetadata();
+      }
+
+      @Override
+      public String password() throws Exception {
+        return null;
+      }
+    };
+    db.ID = "dj/snapshot";
+    db.name = "snapshot";
+    db.url = url;
+    return db;
+  }
+
+  /**
+   * H2 database whose metadata collection waits for release (if set) and counts down done (if set)
+   */
+  SQLDatabase h2(String name, CountDownLatch release, CountDownLatch done) {
+    SQLDatabase db = new SQLDatabase() {
+      @Override
+      public Map<String, Object> connectAndCollectMetadata() throws Exception {
+        if (release != null)
+          release.await();
+        Map<String, Object> res = super.connectAndCollectMetadata();
+        if (done != null)
+          done.countDown();
+        return res;
+      }
+
+      @Override
+      public String password() throws Exception {
+        return null;
+      }
+    };
+    db.ID = "dj/" + name;
+    db.name = name;
+    db.url = "jdbc:h2:mem:" + name;
+    return db;
+  }
 }
@@ -0,0 +1,192 @@
+package org.dashjoin.service;
+
+import static com.google.common.collect.ImmutableMap.of;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import jakarta.inject.Inject;
+import org.dashjoin.model.Table;
+import org.dashjoin.util.MapUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import io.quarkus.test.junit.QuarkusTest;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+@QuarkusTest
+public class RemoteDatabaseTest {
+
+  @Inject
+  Services services;
+
+  @Test
+  public void testSchema() throws Exception {
+    try (MockWebServer server = new MockWebServer()) {
+      server.enqueue(new MockResponse().setBody("{\"T\":{}}"));
+      server.enqueue(new MockResponse().setResponseCode(204));
+      server.enqueue(new MockResponse().setBody("[{\"ID\":1}]"));
+      server.enqueue(new MockResponse().setBody("{\"ID\":1}"));
+      server.enqueue(new MockResponse().setResponseCode(572).setBody("Schema not set"));
+      server.enqueue(new MockResponse().setResponseCode(204));
+      server.enqueue(new MockResponse().setBody("{\"ID\":1}"));
+      server.start();
+
+      RemoteDatabase db = db(server);
+      db.connectAndCollectMetadata();
+      Assertions.assertEquals("/database/connectAndCollectMetadata/dj%2Fjunit",
+          server.takeRequest().getPath());
+
+      // schema is sent before the first call, the call carries its version
+      Assertions.assertEquals(Arrays.asList(of("ID", 1)),
+          db.all(Table.ofName("T"), null, null, null, false, null));
+      String version = RemoteDatabase.version(services.getConfig().getDatabase("dj/junit").tables);
+      Assertions.assertEquals("/database/setSchema/dj%2Fjunit?version=" + version,
+          server.takeRequest().getPath());
+      RecordedRequest all = server.takeRequest();
+      Assertions.assertEquals("/database/all/T?descending=false", all.getPath());
+      Assertions.assertEquals(version, all.getHeader(RemoteDatabase.SCHEMA_VERSION));
+
+      // but only once
+      Assertions.assertEquals(of("ID", 1), db.read(Table.ofName("T"), MapUtil.of("ID", 1)));
+      Assertions.assertEquals("/database/read/T", server.takeRequest().getPath());
+
+      // server lost the schema or holds another version
+      Assertions.assertEquals(of("ID", 1), db.read(Table.ofName("T"), MapUtil.of("ID", 1)));
+      Assertions.assertEquals("/database/read/T", server.takeRequest().getPath());
+      Assertions.assertEquals("/database/setSchema/dj%2Fjunit?version=" + version,
+          server.takeRequest().getPath());
+      Assertions.assertEquals("/database/read/T", server.takeRequest().getPath());
+    }
+  }
+
+  @Test
+  public void testSchemaVersion() throws Exception {
+    long[] changes = {0};
+    Map<String, Table> schema = new LinkedHashMap<>();
+    schema.put("T", Table.ofName("T"));
+    try (MockWebServer server = new MockWebServer()) {
+      server.enqueue(new MockResponse().setBody("{\"T\":{}}"));
+      server.enqueue(new MockResponse().setResponseCode(204));
+      server.enqueue(new MockResponse().setBody("{\"ID\":1}"));
+      server.enqueue(new MockResponse().setBody("{\"ID\":1}"));
+      server.enqueue(new MockResponse().setResponseCode(204));
+      server.enqueue(new MockResponse().setBody("{\"ID\":1}"));
+      server.start();
+
+      RemoteDatabase db = new RemoteDatabase() {
+        @Override
+        protected long changes() {
+          return changes[0];
+        }
+
+        @Override
+        protected Map<String, Table> tables() {
+          return schema;
+        }
+      };
+      db.ID = "dj/version";
+      db.url = server.url("/database").toString();
+      db.init(services);
+      db.connectAndCollectMetadata();
+      db.read(Table.ofName("T"), MapUtil.of("ID", 1));
+      server.takeRequest();
+      server.takeRequest();
+      server.takeRequest();
+
+      // the schema was touched but did not change, the version is the same
+      changes[0]++;
+      db.read(Table.ofName("T"), MapUtil.of("ID", 1));
+      Assertions.assertEquals("/database/read/T", server.takeRequest().getPath());
+
+      // the schema changed, the new version is sent before the call
+      schema.put("NEW", Table.ofName("NEW"));
+      changes[0]++;
+      db.read(Table.ofName("T"), MapUtil.of("ID", 1));
+      String version = RemoteDatabase.version(schema);
+      Assertions.assertEquals("/database/setSchema/dj%2Fversion?version=" + version,
+          server.takeRequest().getPath());
+      Assertions.assertEquals(version,
+          server.takeRequest().getHeader(RemoteDatabase.SCHEMA_VERSION));
+    }
+  }
+
+  @Test
+  public void testBatch() throws Exception {
+    try (MockWebServer server = new MockWebServer()) {
+      server.enqueue(new MockResponse().setBody("{\"T\":{}}"));
+      server.enqueue(new MockResponse().setResponseCode(204));
+      server.enqueue(
+          new MockResponse().setBody("[{\"ID\":1,\"name\":\"a\"},{\"ID\":2,\"name\":\"b\"}]"));
+      server.start();
+
+      RemoteDatabase db = db(server);
+      db.connectAndCollectMetadata();
+      server.takeRequest();
+
+      List<Map<String, Object>> objects = new ArrayList<>();
+      objects.add(MapUtil.of("name", "a"));
+      objects.add(MapUtil.of("name", "b"));
+      db.create(Table.ofName("T"), objects);
+
+      // generated keys are picked up
+      Assertions.assertEquals(of("name", "a", "ID", 1), objects.get(0));
+      Assertions.assertEquals(of("name", "b", "ID", 2), objects.get(1));
+
+      server.takeRequest();
+      Assertions.assertEquals(
+          "{\"method\":\"create\",\"objects\":[{\"name\":\"a\"},{\"name\":\"b\"}]}",
+          server.takeRequest().getBody().readUtf8());
+      Assertions.assertEquals(3, server.getRequestCount());
+    }
+  }
+
+  @Test
+  public void testBatchNotSupported() throws Exception {
+    try (MockWebServer server = new MockWebServer()) {
+      server.enqueue(new MockResponse().setBody("{\"T\":{}}"));
+      server.enqueue(new MockResponse().setResponseCode(204));
+      server.enqueue(new MockResponse().setResponseCode(404));
+      server.enqueue(new MockResponse().setBody("{\"ID\":1}"));
+      server.enqueue(new MockResponse().setBody("{\"ID\":2}"));
+      server.enqueue(new MockResponse().setBody("{\"ID\":3}"));
+      server.start();
+
+      RemoteDatabase db = db(server);
+      db.connectAndCollectMetadata();
+      server.takeRequest();
+
+      // older servers without the batch endpoint get one request per record
+      List<Map<String, Object>> objects = new ArrayList<>();
+      objects.add(MapUtil.of("name", "a"));
+      objects.add(MapUtil.of("name", "b"));
+      db.create(Table.ofName("T"), objects);
+      Assertions.assertEquals(of("name", "a", "ID", 1), objects.get(0));
+      Assertions.assertEquals(of("name", "b", "ID", 2), objects.get(1));
+
+      server.takeRequest();
+      Assertions.assertEquals("/database/batch/T", server.takeRequest().getPath());
+      Assertions.assertEquals("/database/create/T", server.takeRequest().getPath());
+      Assertions.assertEquals("/database/create/T", server.takeRequest().getPath());
+
+      // the batch endpoint is not tried again
+      objects = new ArrayList<>();
+      objects.add(MapUtil.of("name", "c"));
+      db.create(Table.ofName("T"), objects);
+      Assertions.assertEquals("/database/create/T", server.takeRequest().getPath());
+    } finally {
+      RemoteDatabase.noBatch.clear();
+    }
+  }
+
+  RemoteDatabase db(MockWebServer server) {
+    RemoteDatabase db = new RemoteDatabase();
+    db.ID = "dj/junit";
+    db.name = "junit";
+    db.url = server.url("/database").toString();
+    db.init(services);
+    return db;
+  }
+}
@@ -11,6 +11,7 @@ import java.time.OffsetDateTime;
 import java.time.OffsetTime;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.Map;
 import java.util.UUID;
 import org.dashjoin.model.AbstractDatabase;
 import org.dashjoin.model.Property;
@@ -43,6 +44,18 @@ public class SQLCastTest extends JsonCastTest {
     // System.out.println(db().cast(p("date", "DATE"), "2021-11-06 05:20"));
   }
 
+  @Test
+  public void testDateFormats() throws Exception {
+    Assertions.assertTrue(db().cast(p("date", "DATE"), "2021-01-19T10:33:26") instanceof Date);
+    Assertions.assertTrue(db().cast(p("date", "DATE"), "2021-01-19t10:33:26Z") instanceof Date);
+    Assertions.assertEquals(new Date(1611052406000l),
+        db().cast(p("date", "timestamptz"), "2021-01-19T10:33:26Z"));
+
+    // strings that are not dates are passed through
+    Assertions.assertEquals("yesterday", db().cast(p("date", "DATE"), "yesterday"));
+    Assertions.assertEquals("2021-01-19 noon", db().cast(p("date", "DATE"), "2021-01-19 noon"));
+  }
+
   @Test
   public void testDatePostgres() throws Exception {
     SQLDatabase db = (SQLDatabase) db();
@@ -133,4 +146,43 @@ public class SQLCastTest extends JsonCastTest {
     new SQLDatabase().serialize(res.getMetaData(), res, 1);
     new SQLDatabase().serialize(res.getMetaData(), res, 2);
   }
+
+  @Test
+  public void testRowReader() throws Exception {
+    String url = "jdbc:h2:mem:testSQLDatabase4";
+    Class.forName(Driver.class.getName());
+    Connection con = DriverManager.getConnection(url);
+    con.createStatement().executeUpdate(
+        "create table test(i int, s varchar(10), d decimal(10,2), n numeric(20), b blob, c clob)");
+    con.createStatement().executeUpdate("insert into test values(1, 'a', 1.5, 12345678901, "
+        + "'bbbb', 'cccc'), (null, null, 2, 3, null, null)");
+
+    SQLDatabase db = new SQLDatabase();
+    db.url = url;
+    String query = "select i, s as label, d, n, b, c from test order by i";
+    ResultSet res = con.createStatement().executeQuery(query);
+    SQLDatabase.RowReader reader = db.new RowReader(res.getMetaData(), TableName.create(url, query));
+    Assertions.assertArrayEquals(
+        new String[] {"TEST.I", "LABEL", "TEST.D", "TEST.N", "TEST.B", "TEST.C"}, reader.keys);
+
+    // same values as serialize
+    while (res.next()) {
+      Map<String, Object> row = reader.read(res);
+      int c = 1;
+      for (Object value : row.values()) {
+        Object expected = db.serialize(res.getMetaData(), res, c++);
+        if (value instanceof byte[])
+          Assertions.assertArrayEquals((byte[]) expected, (byte[]) value);
+        else
+          Assertions.assertEquals(expected, value);
+      }
+      if (row.get("TEST.I") == null)
+        Assertions.assertEquals(2, row.get("TEST.D"));
+      else {
+        Assertions.assertEquals(1.5, row.get("TEST.D"));
+        Assertions.assertEquals(12345678901L, row.get("TEST.N"));
+        Assertions.assertEquals("cccc", row.get("TEST.C"));
+      }
+    }
+  }
 }
@@ -1,8 +1,27 @@
 package org.dashjoin.service;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.core.SecurityContext;
+import org.dashjoin.model.AbstractDatabase.Reference;
+import org.dashjoin.model.Property;
+import org.dashjoin.model.QueryMeta;
+import org.dashjoin.model.Table;
+import org.dashjoin.service.Data.Origin;
+import org.dashjoin.util.MapUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
 import io.quarkus.test.junit.QuarkusTest;
 
 /**
@@ -30,4 +49,233 @@ public class SQLDatabaseTest extends AbstractDatabaseTest {
     services.getConfig().metadataCollection();
     return services.getConfig().getDatabase("dj/junit");
   }
+
+  /**
+   * in-memory H2 database dj/name (call connect before using it)
+   */
+  SQLDatabase h2(String name) {
+    SQLDatabase db = new SQLDatabase() {
+      @Override
+      public String password() throws Exception {
+        return null;
+      }
+    };
+    db.ID = "dj/" + name;
+    db.name = name;
+    db.url = "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1";
+    return db;
+  }
+
+  /**
+   * connects the database and registers it with the config
+   */
+  SQLDatabase connect(SQLDatabase db) throws Exception {
+    db.init(services);
+    db.connect();
+    ((PojoDatabase) services.getConfig()).putCache(db.ID, db);
+    return db;
+  }
+
+  /**
+   * removes the database from the config
+   */
+  void disconnect(SQLDatabase db) throws Exception {
+    ((PojoDatabase) services.getConfig()).removeCache(db.ID);
+  }
+
+  @Test
+  public void testTenantFilter() throws Exception {
+    SQLDatabase db = connect(h2("tenant"));
+    try (Connection con = db.getConnection()) {
+      con.createStatement()
+          .execute("create table if not exists T(ID int primary key, TENANT varchar(255))");
+      con.createStatement().execute("create index if not exists T_TENANT on T(TENANT)");
+      con.createStatement().execute("delete from T");
+      for (int i = 0; i < 100; i++)
+        con.createStatement()
+            .execute("insert into T values(" + i + ", '" + (i % 4 == 0 ? "a" : "b") + "')");
+    }
+
+    Table t = Table.ofName("T");
+    t.tenantColumn = "TENANT";
+    t.roleMappings = MapUtil.of("role-a", "a");
+    SecurityContext sc = Mockito.mock(SecurityContext.class);
+    Mockito.when(sc.isUserInRole(ArgumentMatchers.eq("role-a"))).thenReturn(true);
+    Map<String, Object> arguments = ACLContainerRequestFilter.tenantFilter(sc, t, null);
+
+    // offset and limit apply to the rows of the tenant
+    List<Map<String, Object>> page = db.all(t, 10, 10, "ID", false, arguments);
+    Assertions.assertEquals(10, page.size());
+    Assertions.assertEquals(40, page.get(0).get("ID"));
+    for (Map<String, Object> row : page)
+      Assertions.assertEquals("a", row.get("TENANT"));
+
+    // tenant predicate is part of the query and uses the index
+    List<Object> args = new ArrayList<>();
+    String select = db.select(t, 10, 10, "ID", false, arguments, args);
+    Assertions.assertEquals(Arrays.asList("a"), args);
+    try (Connection con = db.getConnection()) {
+      try (PreparedStatement stmt = con.prepareStatement("explain " + select)) {
+        stmt.setObject(1, "a");
+        try (ResultSet res = stmt.executeQuery()) {
+          res.next();
+          Assertions.assertTrue(res.getString(1).contains("T_TENANT"), res.getString(1));
+        }
+      }
+    }
+
+    // keys with a tenant filter but no prefix
+    Table k = Table.ofName("T");
+    Property id = new Property();
+    id.name = "ID";
+    id.pkpos = 0;
+    k.properties = MapUtil.of("ID", id);
+    Assertions.assertEquals(25, db.keys(k, null, null, arguments).size());
+    disconnect(db);
+  }
+
+  @Test
+  public void testKeysPrefix() throws Exception {
+    SQLDatabase db = connect(h2("keys"));
+    try (Connection con = db.getConnection()) {
+      con.createStatement().execute("create table if not exists K(ID varchar(255) primary key)");
+      con.createStatement().execute("delete from K");
+      for (String id : Arrays.asList("ab", "abc", "b", "a%x", "a_y", "Berlin"))
+        con.createStatement().execute("insert into K values('" + id + "')");
+    }
+
+    Table k = Table.ofName("K");
+    Property id = new Property();
+    id.name = "ID";
+    id.pkpos = 0;
+    id.type = "string";
+    k.properties = MapUtil.of("ID", id);
+
+    // prefix match on the key column, wildcards are escaped
+    Assertions.assertEquals(2, db.keys(k, "ab", null, null).size());
+    Assertions.assertEquals("a%x", db.keys(k, "a%", null, null).get(0).name);
+    Assertions.assertEquals(1, db.keys(k, "a_", null, null).size());
+    Assertions.assertEquals(6, db.keys(k, null, null, null).size());
+
+    // case insensitive like the in-memory index
+    Assertions.assertEquals("Berlin", db.keys(k, "ber", null, null).get(0).name);
+    disconnect(db);
+  }
+
+  @Test
+  public void testPool() throws Exception {
+    SQLDatabase db = h2("pool");
+    db.maxTotal = 1;
+    db.maxWaitMs = 100L;
+    db.poolPreparedStatements = true;
+    db.maxOpenPreparedStatements = 10;
+    connect(db);
+    Assertions.assertEquals(1, db._cp.getMaxTotal());
+    Assertions.assertTrue(db._cp.isPoolPreparedStatements());
+
+    // other pojos of the database resolve the pool once
+    SQLDatabase copy = new SQLDatabase();
+    copy.ID = db.ID;
+    copy.init(services);
+    try (Connection con = copy.getConnection()) {
+      Assertions.assertSame(db, copy._pooled);
+
+      // the pool is exhausted
+      Assertions.assertThrows(SQLException.class, () -> db.getConnection());
+      Assertions.assertEquals(1, db._stats.getActive());
+    }
+    Assertions.assertEquals(1, db._stats.getBorrows());
+    Assertions.assertEquals(1, db._stats.getTimeouts());
+    Assertions.assertTrue(db._stats.getMaxWaitMs() >= 100);
+    Assertions.assertEquals(1, (long) db._stats.getWaitHistogram().get("<1000ms")
+        + db._stats.getWaitHistogram().get(">=1000ms"));
+
+    // exposed as config table
+    QueryMeta info = new QueryMeta();
+    info.query = "dj-pool-performance";
+    Map<String, Object> row = null;
+    for (Map<String, Object> i : ((PojoDatabase) services.getConfig()).query(info, null))
+      if (db.ID.equals(i.get("ID")))
+        row = i;
+    Assertions.assertEquals(1L, row.get("timeouts"));
+    Assertions.assertEquals(0, row.get("active"));
+    Assertions.assertEquals(1, row.get("idle"));
+
+    disconnect(db);
+    Assertions.assertNull(PoolPerformanceDatabase.pools.get(db.ID));
+  }
+
+  @Test
+  public void testIncoming() throws Exception {
+    SQLDatabase db = connect(h2("incoming"));
+    try (Connection con = db.getConnection()) {
+      con.createStatement().execute("create table if not exists A(ID int primary key, P int)");
+      con.createStatement().execute(
+          "create table if not exists B(K1 varchar(255), K2 int, P int, primary key(K1, K2))");
+      con.createStatement().execute("delete from A");
+      con.createStatement().execute("delete from B");
+      con.createStatement().execute("insert into A values(1, 1), (2, 1), (3, 1), (4, 2)");
+      con.createStatement().execute("insert into B values('x', 1, 1), ('y', 2, 2)");
+    }
+
+    Table a = Table.ofName("A");
+    a.properties = MapUtil.of("ID", property("A", "ID", 0, "integer", null), "P",
+        property("A", "P", null, "integer", "dj/incoming/P/ID"));
+    Table b = Table.ofName("B");
+    b.properties = MapUtil.of("K1", property("B", "K1", 0, "string", null), "K2",
+        property("B", "K2", 1, "integer", null), "P",
+        property("B", "P", null, "integer", "dj/incoming/P/ID"));
+    db.tables = MapUtil.of("A", a, "B", b);
+
+    Assertions.assertEquals(2, db.references("dj/incoming/P/ID").size());
+    Assertions.assertEquals(0, db.references("dj/incoming/A/ID").size());
+
+    // one query over both tables, the limit applies per table
+    SecurityContext sc = Mockito.mock(SecurityContext.class);
+    Mockito.when(sc.isUserInRole(ArgumentMatchers.eq("admin"))).thenReturn(true);
+    List<String> res = new ArrayList<>();
+    for (Origin o : db.incoming(sc, "incoming", "P", "1", null, 2, System.currentTimeMillis(),
+        null, "dj/incoming/P/ID"))
+      res.add(o.id.table + o.id.pk + " " + o.fk);
+    Assertions.assertEquals(
+        Arrays.asList("A[1] dj/incoming/A/P", "A[2] dj/incoming/A/P", "B[x, 1] dj/incoming/B/P"),
+        res);
+
+    res.clear();
+    for (Origin o : db.incoming(sc, "incoming", "P", "1", 1, 5, System.currentTimeMillis(), null,
+        "dj/incoming/P/ID"))
+      res.add(o.id.table + o.id.pk);
+    Assertions.assertEquals(Arrays.asList("A[2]", "A[3]"), res);
+
+    // once the time is up, the partial result of the first table is returned
+    res.clear();
+    for (Origin o : db.incoming(sc, "incoming", "P", "1", null, 5, 0, 1, "dj/incoming/P/ID"))
+      res.add(o.id.table + o.id.pk);
+    Assertions.assertEquals(Arrays.asList("A[1]", "A[2]", "A[3]"), res);
+    disconnect(db);
+  }
+
+  @Test
+  public void testReferencesIndex() throws Exception {
+    // indexed during the metadata collection and kept by database ID
+    PojoDatabase config = (PojoDatabase) services.getConfig();
+    Assertions.assertNotNull(config.schema().databases.get("dj/junit").references);
+    Map<String, List<Reference>> index = config.referenceIndex("dj/junit");
+    Assertions.assertSame(index, config.referenceIndex("dj/junit"));
+    Assertions.assertEquals("dj/junit/EMP/WORKSON", index.get("dj/junit/PRJ/ID").get(0).fk.ID);
+
+    // rebuilt after a change
+    config.schema().invalidate("dj/junit");
+    Assertions.assertNotSame(index, config.referenceIndex("dj/junit"));
+  }
+
+  Property property(String table, String name, Integer pkpos, String type, String ref) {
+    Property p = new Property();
+    p.ID = "dj/incoming/" + table + "/" + name;
+    p.name = name;
+    p.pkpos = pkpos;
+    p.type = type;
+    p.ref = ref;
+    return p;
+  }
 }
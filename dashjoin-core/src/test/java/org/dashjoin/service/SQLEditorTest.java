@@ -0,0 +1,81 @@
+package org.dashjoin.service;
+
+import jakarta.inject.Inject;
+import org.dashjoin.service.QueryEditor.InitialQueryRequest;
+import org.dashjoin.service.QueryEditor.QueryDatabase;
+import org.dashjoin.service.QueryEditor.QueryResponse;
+import org.dashjoin.service.QueryEditor.SortRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * SQL specific query editor tests
+ */
+@QuarkusTest
+public class SQLEditorTest {
+
+  @Inject
+  Services services;
+
+  SQLDatabase db() throws Exception {
+    services.getConfig().metadataCollection();
+    return (SQLDatabase) services.getConfig().getDatabase("dj/junit");
+  }
+
+  @Test
+  public void testCache() throws Exception {
+    SQLDatabase db = db();
+    SQLEditor e = new SQLEditor(services, db);
+
+    InitialQueryRequest r = new InitialQueryRequest();
+    r.table = "dj/junit/EMP";
+    QueryResponse res = e.getInitialQuery(r);
+    Assertions.assertNotNull(db.editorCache.getIfPresent(res.query));
+
+    // the next operation takes the statement from the cache
+    SortRequest sort = new SortRequest();
+    sort.database = "dj/junit";
+    sort.query = res.query;
+    sort.col = QueryEditor.Col.col("EMP", "NAME");
+    sort.order = "asc";
+    QueryResponse sorted = e.sort(sort);
+    Assertions.assertNull(db.editorCache.getIfPresent(res.query));
+    Assertions.assertTrue(sorted.query.endsWith("ORDER BY\n   \"EMP\".\"NAME\""));
+    Assertions.assertEquals("joe", sorted.data.get(0).get("EMP.NAME"));
+
+    // same query text again, statement is parsed
+    sort.order = "desc";
+    Assertions.assertTrue(e.sort(sort).query.contains("\"EMP\".\"NAME\" DESC"));
+  }
+
+  @Test
+  public void testWhereNotModified() throws Exception {
+    SQLEditor e = new SQLEditor(services, db());
+    QueryDatabase q = new QueryDatabase();
+    q.database = "dj/junit";
+    q.query = "SELECT \"EMP\".\"ID\" FROM \"EMP\" WHERE \"ID\" = 1";
+    QueryResponse res = e.noop(q);
+    Assertions.assertEquals("= 1", res.metadata.get(0).where);
+
+    // parseWhere must not qualify ID in the cached statement
+    Assertions.assertEquals(res.query, e.noop(res).query);
+    Assertions.assertTrue(res.query.endsWith("WHERE\n  \"ID\" = 1"));
+  }
+
+  @Test
+  public void testLimit() throws Exception {
+    SQLEditor e = new SQLEditor(services, db());
+    QueryDatabase q = new QueryDatabase();
+    q.database = "dj/junit";
+    q.query = "SELECT \"EMP\".\"ID\" FROM \"EMP\"";
+    q.limit = 1;
+    QueryResponse res = e.noop(q);
+    Assertions.assertEquals(1, res.data.size());
+
+    q.limit = null;
+    res = e.noop(q);
+    Assertions.assertEquals(QueryEditorInternal.DEFAULT_LIMIT, res.limit);
+    Assertions.assertEquals(2, res.data.size());
+  }
+}
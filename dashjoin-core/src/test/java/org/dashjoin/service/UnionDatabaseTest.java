@@ -3,10 +3,20 @@ package org.dashjoin.service;
 import static com.google.common.collect.ImmutableMap.of;
 import static java.util.Arrays.asList;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.FileUtils;
 import org.dashjoin.model.QueryMeta;
 import org.dashjoin.model.Table;
 import org.dashjoin.util.MapUtil;
@@ -110,4 +120,169 @@ public class UnionDatabaseTest {
 
     u.delete(qc);
   }
+
+  @Test
+  public void testSingleWrite() throws Exception {
+    UnionDatabase u = new UnionDatabase();
+    u._dbs = Arrays.asList(JSONDatabaseFactory.getReadOnlyInstance());
+    u._user = JSONDatabaseFactory.getPersistantInstance();
+    Table qc = Table.ofName("dj-query-catalog");
+    File file = new File("model/dj-query-catalog/list.json");
+
+    // several changed fields result in a single write of the user object
+    long writes = JSONDatabase.writes.get();
+    u.update(qc, of("ID", "list"), of("type", "write", "roles", asList("admin"), "query", "x"));
+    Assertions.assertEquals(writes + 1, JSONDatabase.writes.get());
+    Assertions.assertEquals(of("ID", "list", "type", "write", "roles", asList("admin"), "query", "x"),
+        u.read(qc, of("ID", "list")));
+
+    // fields equal to the read only part are removed from the user object
+    writes = JSONDatabase.writes.get();
+    u.update(qc, of("ID", "list"), of("type", "read", "query", "y"));
+    Assertions.assertEquals(writes + 1, JSONDatabase.writes.get());
+    Assertions.assertEquals(of("ID", "list", "roles", asList("admin"), "query", "y"),
+        JSONDatabaseFactory.getPersistantInstance().read(qc, of("ID", "list")));
+
+    // the user object is deleted once it only contains the ID
+    writes = JSONDatabase.writes.get();
+    u.update(qc, of("ID", "list"), MapUtil.of("roles", asList("user"), "query", null));
+    Assertions.assertEquals(writes + 1, JSONDatabase.writes.get());
+    Assertions.assertFalse(file.exists());
+    Assertions.assertEquals("read", u.read(qc, of("ID", "list")).get("type"));
+  }
+
+  /**
+   * in-memory JSON DB, objects are versioned with a counter
+   */
+  static class MemoryDatabase extends JSONDatabase {
+
+    Map<String, Map<String, Object>> objects = new ConcurrentHashMap<>();
+
+    AtomicLong version = new AtomicLong();
+
+    @Override
+    public Map<String, Map<String, Object>> queryMap(QueryMeta info, Map<String, Object> arguments)
+        throws Exception {
+      return new LinkedHashMap<>(objects);
+    }
+
+    @Override
+    public Map<String, Object> read(Table s, Map<String, Object> search) throws Exception {
+      Map<String, Object> res = objects.get("" + search.get("ID"));
+      return res == null ? null : new LinkedHashMap<>(res);
+    }
+
+    @Override
+    public void create(Table s, Map<String, Object> object) throws Exception {
+      objects.put("" + object.get("ID"), new LinkedHashMap<>(object));
+      version.incrementAndGet();
+    }
+
+    @Override
+    public Object version(Table s, Map<String, Object> search) throws Exception {
+      return version.get();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testMemo() throws Exception {
+    UnionDatabase u = new UnionDatabase();
+    u._dbs = Arrays.asList(JSONDatabaseFactory.getReadOnlyInstance());
+    u._user = JSONDatabaseFactory.getPersistantInstance();
+
+    Table qc = Table.ofName("dj-query-catalog");
+    Map<String, Object> list = u.read(qc, of("ID", "list"));
+    Assertions.assertEquals("read", list.get("type"));
+
+    // callers get a copy
+    list.put("type", "write");
+    ((List<Object>) list.get("roles")).add("admin");
+    Assertions.assertEquals("read", u.read(qc, of("ID", "list")).get("type"));
+    Assertions.assertEquals(Arrays.asList("user"), u.read(qc, of("ID", "list")).get("roles"));
+
+    // writes are picked up
+    u.update(qc, of("ID", "list"), of("type", "write"));
+    Assertions.assertEquals("write", u.read(qc, of("ID", "list")).get("type"));
+
+    // so are edits that bypass the DB
+    FileUtils.writeStringToFile(new File("model/dj-query-catalog/list.json"),
+        "{\"ID\": \"list\", \"type\": \"other\"}", StandardCharsets.UTF_8);
+    Assertions.assertEquals("other", u.read(qc, of("ID", "list")).get("type"));
+
+    u.delete(qc, of("ID", "list"));
+    Assertions.assertEquals("read", u.read(qc, of("ID", "list")).get("type"));
+  }
+
+  @Test
+  public void testMemoExternalized() throws Exception {
+    JSONFileDatabase user = (JSONFileDatabase) JSONDatabaseFactory.getPersistantInstance();
+    UnionDatabase u = new UnionDatabase();
+    u._dbs = Arrays.asList(JSONDatabaseFactory.getReadOnlyInstance());
+    u._user = user;
+
+    Table qc = Table.ofName("dj-query-catalog");
+    File json = new File("model/dj-query-catalog/memo.json");
+    File sql = new File("model/dj-query-catalog/memo.0.sql");
+    try {
+      FileUtils.writeStringToFile(json, "{\"ID\": \"memo\", \"query-pointer\": \"0.sql\"}",
+          StandardCharsets.UTF_8);
+      FileUtils.writeStringToFile(sql, "select 1", StandardCharsets.UTF_8);
+
+      // the externalized strings are known once the object was read
+      Assertions.assertNull(user.version(qc, of("ID", "memo")));
+      Assertions.assertEquals("select 1", u.read(qc, of("ID", "memo")).get("query"));
+      Assertions.assertNotNull(user.version(qc, of("ID", "memo")));
+      Assertions.assertEquals("select 1", u.read(qc, of("ID", "memo")).get("query"));
+
+      // edits of the externalized string are picked up
+      FileUtils.writeStringToFile(sql, "select 22", StandardCharsets.UTF_8);
+      Assertions.assertEquals("select 22", u.read(qc, of("ID", "memo")).get("query"));
+    } finally {
+      json.delete();
+      sql.delete();
+    }
+  }
+
+  @Test
+  public void testMemoConcurrentUpdates() throws Exception {
+    MemoryDatabase ro = new MemoryDatabase();
+    MemoryDatabase user = new MemoryDatabase();
+    UnionDatabase u = new UnionDatabase();
+    u._dbs = Arrays.asList(ro);
+    u._user = user;
+
+    Table t = Table.ofName("t");
+    ro.create(t, MapUtil.of("ID", "x", "default", "d", "a", 0, "b", 0));
+
+    AtomicBoolean done = new AtomicBoolean();
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    List<Future<Integer>> readers = new ArrayList<>();
+    for (int r = 0; r < 4; r++)
+      readers.add(pool.submit(() -> {
+        int last = 0, reads = 0;
+        while (!done.get() || reads == 0) {
+          Map<String, Object> x = u.read(t, of("ID", "x"));
+          // the merged view is consistent and does not go back in time
+          Assertions.assertEquals("d", x.get("default"));
+          Assertions.assertEquals(x.get("a"), x.get("b"));
+          Assertions.assertTrue((Integer) x.get("a") >= last);
+          last = (Integer) x.get("a");
+          // and cannot be corrupted by the caller
+          x.put("b", -1);
+          reads++;
+        }
+        return last;
+      }));
+
+    for (int i = 1; i <= 500; i++)
+      user.create(t, MapUtil.of("ID", "x", "a", i, "b", i));
+    done.set(true);
+    for (Future<Integer> f : readers)
+      f.get();
+    pool.shutdown();
+
+    Assertions.assertEquals(500, u.read(t, of("ID", "x")).get("a"));
+    Assertions.assertEquals(500, u.read(t, of("ID", "x")).get("b"));
+  }
 }
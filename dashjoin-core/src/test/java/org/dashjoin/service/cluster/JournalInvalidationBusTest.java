@@ -0,0 +1,66 @@
+package org.dashjoin.service.cluster;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class JournalInvalidationBusTest {
+
+  @Test
+  public void testSharedFolder() throws Exception {
+    File folder = Files.createTempDirectory("journal").toFile();
+    try {
+      JournalInvalidationBus a = new JournalInvalidationBus(folder, 60000);
+      a.publish("dj", "dj-config", "before-start");
+
+      // two nodes sharing the folder
+      JournalInvalidationBus b = new JournalInvalidationBus(folder, 60000);
+      List<String> ra = new ArrayList<>();
+      List<String> rb = new ArrayList<>();
+      a.subscribe((tenant, table, id) -> ra.add(tenant + "/" + table + "/" + id));
+      b.subscribe((tenant, table, id) -> rb.add(tenant + "/" + table + "/" + id));
+
+      a.publish("dj", "dj-database", "dj/junit");
+      a.publish("dj", "Table", "dj/junit/EMP");
+      b.publish("dj", "dj-config", "all-timeout-ms");
+      a.poll();
+      b.poll();
+
+      // entries are delivered once, to the other node only
+      Assertions.assertEquals(List.of("dj/dj-config/all-timeout-ms"), ra);
+      Assertions.assertEquals(List.of("dj/dj-database/dj/junit", "dj/Table/dj/junit/EMP"), rb);
+      a.poll();
+      b.poll();
+      Assertions.assertEquals(1, ra.size());
+      Assertions.assertEquals(2, rb.size());
+
+      // old entries are removed
+      for (File f : folder.listFiles())
+        f.setLastModified(System.currentTimeMillis() - JournalInvalidationBus.RETENTION_MS - 1000);
+      a.poll();
+      Assertions.assertEquals(0, folder.listFiles().length);
+      Assertions.assertTrue(a.seen.isEmpty());
+    } finally {
+      FileUtils.deleteDirectory(folder);
+    }
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    File folder = Files.createTempDirectory("journal").toFile();
+    try {
+      JournalInvalidationBus a = new JournalInvalidationBus(folder, 0);
+      a.subscribe((tenant, table, id) -> {
+      });
+      a.publish("dj", "dj-config", "all-timeout-ms");
+      Assertions.assertNull(a.poller);
+      Assertions.assertEquals(0, folder.listFiles().length);
+    } finally {
+      FileUtils.deleteDirectory(folder);
+    }
+  }
+}
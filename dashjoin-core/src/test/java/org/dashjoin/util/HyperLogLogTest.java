@@ -0,0 +1,23 @@
+package org.dashjoin.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class HyperLogLogTest {
+
+  @Test
+  public void testSmall() {
+    HyperLogLog hll = new HyperLogLog();
+    for (int i = 0; i < 1000; i++)
+      hll.add(i % 10);
+    Assertions.assertEquals(10, hll.cardinality());
+  }
+
+  @Test
+  public void testLarge() {
+    HyperLogLog hll = new HyperLogLog();
+    for (int i = 0; i < 1000000; i++)
+      hll.add("value" + i);
+    Assertions.assertEquals(1000000, hll.cardinality(), 30000);
+  }
+}
@@ -0,0 +1,69 @@
+package org.dashjoin.util;
+
+import static org.dashjoin.util.MapUtil.of;
+import org.dashjoin.util.Routes.Match;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class RoutesTest {
+
+  Routes routes() {
+    JsonNode paths = new ObjectMapper().valueToTree(of("/a", of("get", 1), "/{a}", of("get", 2),
+        "/--{a}--/ccc", of("get", 3), "/{a}/ccc", of("get", 4), "/x/{id}.json", of("get", 5),
+        "/{a}/{c}", of("get", 6)));
+    return new Routes(paths);
+  }
+
+  String match(String url) {
+    Match m = routes().match(url);
+    return m == null ? null : m.path + " " + m.parameters;
+  }
+
+  @Test
+  public void testMatch() {
+    Assertions.assertEquals("/a {}", match("/a"));
+    Assertions.assertEquals("/{a} {a=b}", match("/b"));
+    Assertions.assertEquals("/{a}/ccc {a=b}", match("/b/ccc"));
+    Assertions.assertEquals("/{a}/{c} {a=b, c=ddd}", match("/b/ddd"));
+    Assertions.assertEquals("/--{a}--/ccc {a=b}", match("/--b--/ccc"));
+    Assertions.assertEquals("/x/{id}.json {id=1}", match("/x/1.json"));
+    Assertions.assertEquals("/{a}/{c} {a=x, c=1.xml}", match("/x/1.xml"));
+    Assertions.assertNull(match("/a/b/c"));
+  }
+
+  @Test
+  public void testMatchPathCompatibility() {
+    // same results as the linear scan using OpenAPI.matchPath (paths in spec order)
+    String[] paths = {"/a", "/{a}", "/--{a}--/ccc", "/{a}/ccc", "/x/{id}.json", "/{a}/{c}"};
+    String[] urls = {"/a", "/b", "/b/ccc", "/b/ddd", "/--b--/ccc", "/x/1.json", "/x/1.xml",
+        "/a/b/c", "/", ""};
+    for (String url : urls) {
+      String first = null;
+      for (String path : paths)
+        if (OpenAPI.matchPath(path, url) != null) {
+          first = path;
+          break;
+        }
+      Match m = routes().match(url);
+      if (first == null)
+        Assertions.assertNull(m, url);
+      else {
+        Assertions.assertNotNull(m, url);
+        Assertions.assertEquals(first, m.path, url);
+        Assertions.assertEquals(OpenAPI.matchPath(first, url), m.parameters, url);
+      }
+    }
+  }
+
+  @Test
+  public void testSpecOrder() {
+    // an earlier template wins over a later literal path
+    JsonNode paths = new ObjectMapper()
+        .valueToTree(of("/{a}", of("get", 1), "/a", of("get", 2), "/{a}/b", of("get", 3)));
+    Routes routes = new Routes(paths);
+    Assertions.assertEquals("/{a}", routes.match("/a").path);
+    Assertions.assertEquals("{a=x}", routes.match("/x/b").parameters.toString());
+  }
+}
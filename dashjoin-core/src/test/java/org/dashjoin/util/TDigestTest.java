@@ -0,0 +1,33 @@
+package org.dashjoin.util;
+
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TDigestTest {
+
+  @Test
+  public void testEmpty() {
+    Assertions.assertTrue(Double.isNaN(new TDigest().quantile(0.5)));
+  }
+
+  @Test
+  public void testSingle() {
+    TDigest d = new TDigest();
+    d.add(3);
+    Assertions.assertEquals(3, d.quantile(0.5));
+  }
+
+  @Test
+  public void testUniform() {
+    TDigest d = new TDigest();
+    Random r = new Random(0);
+    for (int i = 0; i < 1000000; i++)
+      d.add(r.nextDouble() * 1000);
+    Assertions.assertEquals(250, d.quantile(0.25), 5);
+    Assertions.assertEquals(500, d.quantile(0.5), 5);
+    Assertions.assertEquals(990, d.quantile(0.99), 2);
+    Assertions.assertEquals(0, d.quantile(0), 0.1);
+    Assertions.assertEquals(1000, d.quantile(1), 0.1);
+  }
+}
@@ -33,6 +33,23 @@ public class TemplateTest {
         Template.replace("http://ex.org/${x}", ImmutableMap.of("x", "a b"), true));
   }
 
+  @Test
+  public void compile() {
+    Assertions.assertEquals("", Template.compile("").replace(ImmutableMap.of("x", 1), false));
+    Assertions.assertEquals("efef",
+        Template.compile("efef").replace(ImmutableMap.of("x", 1), false));
+    Assertions.assertEquals(1,
+        Template.compile("${x}").replace(ImmutableMap.of("x", 1, "y", "yyy"), false));
+    Assertions.assertEquals("1 yyy",
+        Template.compile("${x} ${y}").replace(ImmutableMap.of("x", 1, "y", "yyy"), false));
+    Assertions.assertEquals("11",
+        Template.compile("${x}${x}").replace(ImmutableMap.of("x", 1), false));
+    Assertions.assertEquals("1 ${y}",
+        Template.compile("${x} ${y}").replace(ImmutableMap.of("x", 1), false));
+    Assertions.assertEquals("http://ex.org/a+b",
+        Template.compile("http://ex.org/${x}").replace(ImmutableMap.of("x", "a b"), true));
+  }
+
   @Test
   public void sql() {
     Assertions.assertEquals("cast(x as VARCHAR(255))", Template.sql("", "x", null));
@@ -87,10 +87,8 @@ public class KsqlDB extends SQLDatabase {
   }
 
   @Override
-  protected List<QueryColumn> getMetadata(String query) throws Exception {
+  protected List<QueryColumn> getMetadata(String query, PlainSelect body) throws Exception {
 
-    Select select = (Select) CCJSqlParserUtil.parse(query);
-    PlainSelect body = (PlainSelect) select.getSelectBody();
     Map<Col, String> map = new HashMap<>();
     SQLEditor.parseWhere(true, map, body.getWhere(), body);
 
@@ -197,6 +195,12 @@ public class KsqlDB extends SQLDatabase {
     return meta.getTables(ID);
   }
 
+  @Override
+  public boolean connect() throws Exception {
+    // no JDBC connection pool, always collect the metadata
+    return false;
+  }
+
   @Override
   public void close() throws Exception {}
 
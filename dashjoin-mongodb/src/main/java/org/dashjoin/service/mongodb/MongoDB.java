@@ -13,6 +13,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 import org.apache.commons.io.FilenameUtils;
 import org.bson.Document;
 import org.bson.conversions.Bson;
@@ -22,6 +23,7 @@ import org.dashjoin.model.JsonSchema;
 import org.dashjoin.model.Property;
 import org.dashjoin.model.QueryMeta;
 import org.dashjoin.model.Table;
+import org.dashjoin.service.Filter;
 import org.dashjoin.service.Metadata;
 import org.dashjoin.service.Metadata.Column;
 import org.dashjoin.service.Metadata.Key;
@@ -40,6 +42,9 @@ import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
 import de.bwaldvogel.mongo.MongoServer;
@@ -176,15 +181,60 @@ public class MongoDB extends AbstractDatabase {
     List<Bson> filters = new ArrayList<>();
     if (search != null)
       for (Entry<String, Object> e : search.entrySet()) {
-        filters.add(eq(e.getKey(),
-            "_id".equals(e.getKey()) && e.getValue() instanceof String
-                && ((String) e.getValue()).startsWith("_")
-                    ? new ObjectId(((String) e.getValue()).substring(1))
-                    : e.getValue()));
+        filters.add(eq(e.getKey(), value(e.getKey(), e.getValue())));
       }
     return filters;
   }
 
+  /**
+   * _id strings starting with _ are object ids
+   */
+  Object value(String key, Object value) {
+    return "_id".equals(key) && value instanceof String && ((String) value).startsWith("_")
+        ? new ObjectId(((String) value).substring(1))
+        : value;
+  }
+
+  /**
+   * translates the filter predicate tree into a native query
+   */
+  Bson bson(Filter filter) {
+    List<Bson> args = new ArrayList<>();
+    if (filter.isLogical())
+      for (Filter f : filter.args)
+        args.add(bson(f));
+    switch (filter.op) {
+      case "and":
+        return Filters.and(args);
+      case "or":
+        return Filters.or(args);
+      case "not":
+        return Filters.nor(args);
+      case "eq":
+        return Filters.eq(filter.field, value(filter.field, filter.value));
+      case "ne":
+        return Filters.ne(filter.field, value(filter.field, filter.value));
+      case "gt":
+        return Filters.gt(filter.field, filter.value);
+      case "ge":
+        return Filters.gte(filter.field, filter.value);
+      case "lt":
+        return Filters.lt(filter.field, filter.value);
+      case "le":
+        return Filters.lte(filter.field, filter.value);
+      case "in":
+        List<Object> values = new ArrayList<>();
+        for (Object o : (List<?>) filter.value)
+          values.add(value(filter.field, o));
+        return Filters.in(filter.field, values);
+      case "contains":
+        return Filters.regex(filter.field, Pattern.quote("" + filter.value));
+      case "startswith":
+        return Filters.regex(filter.field, "^" + Pattern.quote("" + filter.value));
+    }
+    throw new IllegalArgumentException("Unknown filter operator: " + filter.op);
+  }
+
   Document document(Map<String, Object> object, boolean set) {
     Document doc = new Document();
     for (Entry<String, Object> e : object.entrySet())
@@ -254,19 +304,23 @@ public class MongoDB extends AbstractDatabase {
     for (Document d : doc(s, search, offset, limit)) {
       if (limit != null && list.size() == limit)
         break;
-      Map<String, Object> res = new LinkedHashMap<>();
-      for (Entry<String, Object> e : d.entrySet()) {
-        String prop = e.getKey();
-        if (e.getValue() instanceof ObjectId)
-          res.put(prop, "_" + ((ObjectId) e.getValue()).toString());
-        else
-          res.put(prop, e.getValue());
-      }
-      list.add(res);
+      list.add(row(d));
     }
     return list;
   }
 
+  Map<String, Object> row(Document d) {
+    Map<String, Object> res = new LinkedHashMap<>();
+    for (Entry<String, Object> e : d.entrySet()) {
+      String prop = e.getKey();
+      if (e.getValue() instanceof ObjectId)
+        res.put(prop, "_" + ((ObjectId) e.getValue()).toString());
+      else
+        res.put(prop, e.getValue());
+    }
+    return res;
+  }
+
   @Override
   public boolean update(Table schema, Map<String, Object> search, Map<String, Object> object)
       throws Exception {
@@ -299,6 +353,43 @@ public class MongoDB extends AbstractDatabase {
     return readInternal(s, offset, limit, arguments);
   }
 
+  @Override
+  public List<Map<String, Object>> filter(Table s, Integer offset, Integer limit, String sort,
+      boolean descending, Map<String, Object> arguments, Filter filter, List<String> select)
+      throws Exception {
+    List<Bson> filters = filters(s, arguments);
+    if (filter != null)
+      filters.add(bson(filter));
+    FindIterable<Document> i =
+        filters.isEmpty() ? collection(s.name).find() : collection(s.name).find(and(filters));
+
+    if (select != null)
+      i = i.projection(select.contains("_id") ? Projections.include(select)
+          : Projections.fields(Projections.include(select), Projections.excludeId()));
+    if (sort != null)
+      i = i.sort(descending ? Sorts.descending(sort) : Sorts.ascending(sort));
+    if (offset != null)
+      i = i.skip(offset);
+    if (limit != null)
+      i = i.limit(limit);
+
+    List<Map<String, Object>> res = new ArrayList<>();
+    try (MongoCursor<Document> iter = i.iterator()) {
+      while (iter.hasNext())
+        res.add(row(iter.next()));
+    }
+    return res;
+  }
+
+  @Override
+  public Number count(Table s, Map<String, Object> arguments, Filter filter) throws Exception {
+    List<Bson> filters = filters(s, arguments);
+    if (filter != null)
+      filters.add(bson(filter));
+    return filters.isEmpty() ? collection(s.name).countDocuments()
+        : collection(s.name).countDocuments(and(filters));
+  }
+
   @Override
   public Map<String, Property> queryMeta(QueryMeta info, Map<String, Object> arguments)
       throws Exception {
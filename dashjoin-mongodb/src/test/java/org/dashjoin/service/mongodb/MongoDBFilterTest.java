@@ -0,0 +1,82 @@
+package org.dashjoin.service.mongodb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import jakarta.inject.Inject;
+import org.dashjoin.model.Table;
+import org.dashjoin.service.Filter;
+import org.dashjoin.service.Services;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * tests the translation of filter predicate trees into native queries
+ */
+@QuarkusTest
+public class MongoDBFilterTest {
+
+  @Inject
+  Services services;
+
+  @Test
+  public void testEq() throws Exception {
+    Assertions.assertEquals("[1000]", ids(Filter.of("eq", "NAME", "dev-project")));
+    Assertions.assertEquals("[1001]", ids(Filter.of("ne", "NAME", "dev-project")));
+  }
+
+  @Test
+  public void testLogical() throws Exception {
+    Assertions.assertEquals("[1000, 1001]", ids(Filter.of("or",
+        Filter.of("eq", "NAME", "dev-project"), Filter.of("gt", "_id", 1000))));
+    Assertions.assertEquals("[]", ids(Filter.of("and", Filter.of("eq", "NAME", "dev-project"),
+        Filter.of("gt", "_id", 1000))));
+    Assertions.assertEquals("[1001]", ids(Filter.of("not", Filter.of("le", "_id", 1000))));
+  }
+
+  @Test
+  public void testNull() throws Exception {
+    // like Filter.test, null is not equal to any value
+    Assertions.assertEquals("[1000, 1001]", ids(Filter.of("ne", "BUDGET", 5)));
+    Assertions.assertEquals("[1000, 1001]", ids(Filter.of("not", Filter.of("eq", "BUDGET", 5))));
+  }
+
+  @Test
+  public void testFunctions() throws Exception {
+    Assertions.assertEquals("[1000, 1001]", ids(Filter.of("in", "_id", Arrays.asList(1000, 1001))));
+    Assertions.assertEquals("[1000]", ids(Filter.of("contains", "NAME", "v-p")));
+    Assertions.assertEquals("[1001]", ids(Filter.of("startswith", "NAME", "oth")));
+    Assertions.assertEquals("[]", ids(Filter.of("startswith", "NAME", ".")));
+  }
+
+  @Test
+  public void testSelect() throws Exception {
+    List<Map<String, Object>> res = db().filter(prj(), null, null, "_id", true, null,
+        Filter.of("gt", "_id", 0), Arrays.asList("NAME"));
+    Assertions.assertEquals("[{NAME=other}, {NAME=dev-project}]", "" + res);
+  }
+
+  @Test
+  public void testCount() throws Exception {
+    Assertions.assertEquals(2l, db().count(prj(), null, null));
+    Assertions.assertEquals(1l, db().count(prj(), null, Filter.of("eq", "NAME", "other")));
+  }
+
+  String ids(Filter filter) throws Exception {
+    List<Object> res = new ArrayList<>();
+    for (Map<String, Object> row : db().filter(prj(), null, null, "_id", false, null, filter,
+        null))
+      res.add(row.get("_id"));
+    return "" + res;
+  }
+
+  MongoDB db() throws Exception {
+    return (MongoDB) services.getConfig().getDatabase("dj/junit");
+  }
+
+  Table prj() throws Exception {
+    return db().tables.get("PRJ");
+  }
+}
@@ -1,5 +1,6 @@
 package org.dashjoin.sdk;
 
+import static org.dashjoin.service.RemoteDatabase.SCHEMA_VERSION;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -10,6 +11,7 @@ import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.SecurityContext;
 import org.dashjoin.model.AbstractDatabase;
 import org.dashjoin.model.Property;
@@ -48,6 +50,10 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
  * ready: connected and schema present. We reach this state if the central system calls setSchema()
  * - which in turn is called when another call fails with the respective error message indicating
  * that we are in one of the states above
+ * 
+ * setSchema() also passes the version of the schema. The central system sends the version it
+ * expects with every call (header X-Schema-Version). If it does not match, the call fails like in
+ * the connected state, so a changed schema is not silently ignored
  */
 @Path("/database")
 // @RolesAllowed("admin")
@@ -60,25 +66,54 @@ public class DatabaseService {
   Optional<String> database;
 
   /**
-   * contained DB instance
+   * contained DB instance, set once it is fully initialized. Requests are served concurrently by
+   * the worker threads (see quarkus.thread-pool.max-threads)
    */
-  AbstractDatabase db;
+  volatile AbstractDatabase db;
 
   /**
    * pseudo config DB injected into db
    */
   SDKServices services;
 
+  /**
+   * version of the schema set via setSchema (null if the caller did not provide one)
+   */
+  volatile String schemaVersion;
+
+  @Context
+  HttpHeaders headers;
+
   /**
    * get and init db
    */
-  synchronized AbstractDatabase db() throws Exception {
+  AbstractDatabase db() throws Exception {
     return db(true);
   }
 
-  synchronized AbstractDatabase db(boolean expectSchema) throws Exception {
+  AbstractDatabase db(boolean expectSchema) throws Exception {
+    AbstractDatabase db = this.db;
+    if (db == null)
+      db = init();
+
+    if (expectSchema) {
+      if (db.tables == null)
+        throw new WebApplicationException("Schema not set", 572);
+      String version = headers == null ? null : headers.getHeaderString(SCHEMA_VERSION);
+      if (version != null && schemaVersion != null && !version.equals(schemaVersion))
+        throw new WebApplicationException("Schema version mismatch", 572);
+    }
+
+    return db;
+  }
+
+  /**
+   * creates the DB instance on the first request
+   */
+  synchronized AbstractDatabase init() throws Exception {
     if (db == null && database.isPresent()) {
-      db = (AbstractDatabase) Class.forName(database.get()).getDeclaredConstructor().newInstance();
+      AbstractDatabase db =
+          (AbstractDatabase) Class.forName(database.get()).getDeclaredConstructor().newInstance();
 
       // set db.tables to null to indicate that the field still needs to be set from the central
       // system
@@ -99,12 +134,8 @@ public class DatabaseService {
 
       services = new SDKServices(db, password);
       db.init(services);
+      this.db = db;
     }
-
-    if (expectSchema)
-      if (db.tables == null)
-        throw new WebApplicationException("Schema not set", 572);
-
     return db;
   }
 
@@ -171,6 +202,7 @@ public class DatabaseService {
       throws Exception {
     // invalidate the table metadata since we need to fetch them from the config DB
     db(false).tables = null;
+    schemaVersion = null;
     db(false).ID = id;
     System.out.println("ID=" + id);
     Map<String, Object> res = db(false).connectAndCollectMetadata();
@@ -179,10 +211,12 @@ public class DatabaseService {
 
   @POST
   @Path("/setSchema/{id}")
-  public void setSchema(@PathParam("id") String id, Map<String, Table> tables) throws Exception {
+  public void setSchema(@PathParam("id") String id, @QueryParam("version") String version,
+      Map<String, Table> tables) throws Exception {
     if (db(false).ID == null)
       this.connectAndCollectMetadata(id);
     db(false).tables = tables;
+    schemaVersion = version;
   }
 
   @POST
@@ -191,6 +225,7 @@ public class DatabaseService {
     db().close();
     db().ID = null;
     db().tables = null;
+    schemaVersion = null;
   }
 
   @POST
@@ -206,7 +241,7 @@ public class DatabaseService {
   @Path("/create/{table}")
   public Map<String, Object> create(@PathParam("table") String table, Map<String, Object> object)
       throws Exception {
-    db.cast(table(table), object);
+    db().cast(table(table), object);
     db().create(table(table), object);
     return object;
   }
@@ -215,7 +250,7 @@ public class DatabaseService {
   @Path("/read/{table}")
   public Map<String, Object> read(@PathParam("table") String table, Map<String, Object> search)
       throws Exception {
-    db.cast(table(table), search);
+    db().cast(table(table), search);
     return db().read(table(table), search);
   }
 
@@ -230,8 +265,8 @@ public class DatabaseService {
   @POST
   @Path("/update/{table}")
   public boolean update(@PathParam("table") String table, SearchObject so) throws Exception {
-    db.cast(table(table), so.object);
-    db.cast(table(table), so.search);
+    db().cast(table(table), so.object);
+    db().cast(table(table), so.search);
     return db().update(table(table), so.search, so.object);
   }
 
@@ -239,10 +274,43 @@ public class DatabaseService {
   @Path("/delete/{table}")
   public boolean delete(@PathParam("table") String table, Map<String, Object> search)
       throws Exception {
-    db.cast(table(table), search);
+    db().cast(table(table), search);
     return db().delete(table(table), search);
   }
 
+  /**
+   * bulk operation holder
+   */
+  public static class Batch {
+    /**
+     * create, merge, or delete
+     */
+    public String method;
+    public List<Map<String, Object>> objects;
+  }
+
+  /**
+   * runs a bulk create, merge, or delete in a single request. Returns the objects (create fills in
+   * generated keys)
+   */
+  @POST
+  @Path("/batch/{table}")
+  public List<Map<String, Object>> batch(@PathParam("table") String table, Batch batch)
+      throws Exception {
+    Table t = table(table);
+    for (Map<String, Object> object : batch.objects)
+      db().cast(t, object);
+    if ("create".equals(batch.method))
+      db().create(t, batch.objects);
+    else if ("merge".equals(batch.method))
+      db().merge(t, batch.objects);
+    else if ("delete".equals(batch.method))
+      db().delete(t, batch.objects);
+    else
+      throw new IllegalArgumentException("Unknown batch method: " + batch.method);
+    return batch.objects;
+  }
+
   @POST
   @Path("/createColumn/{table}/{columnName}/{columnType}")
   public void createColumn(@PathParam("table") String table,
@@ -0,0 +1,130 @@
+package org.dashjoin.sdk;
+
+import static org.dashjoin.service.RemoteDatabase.SCHEMA_VERSION;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.HttpHeaders;
+import org.dashjoin.model.AbstractDatabase;
+import org.dashjoin.model.Table;
+import org.dashjoin.service.SQLDatabase;
+import org.dashjoin.util.MapUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class DatabaseServiceTest {
+
+  /**
+   * H2 database whose all() waits until all parties of the barrier (if set) are inside all()
+   */
+  public static class SlowDatabase extends SQLDatabase {
+
+    static CyclicBarrier barrier;
+
+    public SlowDatabase() {
+      name = "sdk";
+      url = "jdbc:h2:mem:sdk;DB_CLOSE_DELAY=-1";
+    }
+
+    @Override
+    public List<Map<String, Object>> all(Table s, Integer offset, Integer limit, String sort,
+        boolean descending, Map<String, Object> arguments) throws Exception {
+      if (barrier != null)
+        barrier.await(10, TimeUnit.SECONDS);
+      return super.all(s, offset, limit, sort, descending, arguments);
+    }
+  }
+
+  @Test
+  public void testInit() throws Exception {
+    DatabaseService service = new DatabaseService();
+    service.database = Optional.of(SlowDatabase.class.getName());
+
+    int n = 8;
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService pool = Executors.newFixedThreadPool(n);
+    List<Future<AbstractDatabase>> res = new ArrayList<>();
+    for (int i = 0; i < n; i++)
+      res.add(pool.submit(() -> {
+        start.await();
+        return service.db(false);
+      }));
+    start.countDown();
+    AbstractDatabase db = res.get(0).get();
+    for (Future<AbstractDatabase> f : res)
+      Assertions.assertSame(db, f.get());
+    pool.shutdown();
+  }
+
+  @Test
+  public void testConcurrentRequests() throws Exception {
+    DatabaseService service = new DatabaseService();
+    service.database = Optional.of(SlowDatabase.class.getName());
+    service.connectAndCollectMetadata("dj/sdk");
+    try (Connection con = ((SQLDatabase) service.db(false)).getConnection()) {
+      con.createStatement().execute("create table if not exists T(ID int primary key)");
+      con.createStatement().execute("merge into T values(1)");
+    }
+    service.setSchema("dj/sdk", null, MapUtil.of("T", Table.ofName("T")));
+
+    // the barrier only opens if all n requests are inside all() at the same time, if requests were
+    // serialized, the first one times out and breaks the barrier
+    int n = 8;
+    SlowDatabase.barrier = new CyclicBarrier(n);
+    ExecutorService pool = Executors.newFixedThreadPool(n);
+    try {
+      List<Future<List<Map<String, Object>>>> res = new ArrayList<>();
+      for (int i = 0; i < n; i++)
+        res.add(pool.submit(() -> service.all("T", null, null, null, false, null)));
+      for (Future<List<Map<String, Object>>> f : res)
+        Assertions.assertEquals("[{ID=1}]", "" + f.get());
+    } finally {
+      SlowDatabase.barrier = null;
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testSchemaVersion() throws Exception {
+    DatabaseService service = new DatabaseService();
+    service.database = Optional.of(SlowDatabase.class.getName());
+    service.connectAndCollectMetadata("dj/sdk");
+    service.setSchema("dj/sdk", "v1", MapUtil.of("T", Table.ofName("T")));
+
+    // calls without a version (older clients) and with the current version pass
+    service.db();
+    service.headers = headers("v1");
+    service.db();
+
+    // the caller expects another version
+    service.headers = headers("v2");
+    WebApplicationException e =
+        Assertions.assertThrows(WebApplicationException.class, () -> service.db());
+    Assertions.assertEquals(572, e.getResponse().getStatus());
+
+    service.setSchema("dj/sdk", "v2", MapUtil.of("T", Table.ofName("T")));
+    service.db();
+  }
+
+  /**
+   * request headers with the given schema version
+   */
+  static HttpHeaders headers(String version) {
+    return (HttpHeaders) Proxy.newProxyInstance(HttpHeaders.class.getClassLoader(),
+        new Class<?>[] {HttpHeaders.class}, (proxy, method, args) -> {
+          if ("getHeaderString".equals(method.getName()) && SCHEMA_VERSION.equals(args[0]))
+            return version;
+          return null;
+        });
+  }
+}